@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AVLTree lookup latency by insertion order
+ * Rebalancing keeps the height logarithmic whatever order the keys arrive
+ * in, so lookups should cost about the same for sorted, reverse and random
+ * builds at each size; an unbalanced tree could not even be built from the
+ * sorted million. Lookups hit present keys in random order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AVLTreeBenchmark {
+
+    /** Length of the precomputed access sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"SORTED", "REVERSE", "RANDOM"})
+    public KeyOrder order;
+
+    private Object tree;
+    private int[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        tree = TreeHandles.NEW_AVL_TREE.invokeExact();
+        for (int key : order.keys(size, random)) {
+            TreeHandles.AVL_INSERT.invokeExact(tree, key);
+        }
+        keys = Workload.RANDOM.indexes(size, OPERATIONS, random);
+    }
+
+    @Benchmark
+    public boolean search() throws Throwable {
+        return (boolean) TreeHandles.AVL_SEARCH.invokeExact(tree, keys[next++ & (OPERATIONS - 1)]);
+    }
+}
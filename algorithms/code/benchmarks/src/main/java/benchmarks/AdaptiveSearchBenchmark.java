@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Search latency with and without splay-on-access
+ * Splaying pays for rotations on every search and wins them back only when
+ * the hot keys are few enough to stay near the root. The tree is built once
+ * per trial so splaying can settle into the access pattern.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AdaptiveSearchBenchmark {
+
+    /** Length of the precomputed access sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public Workload workload;
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    private Object tree;
+    private int[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        keys = workload.indexes(size, OPERATIONS, random);
+
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int value : values) {
+            TreeHandles.INSERT.invokeExact(tree, value);
+        }
+        TreeHandles.SET_ADAPTIVE.invokeExact(tree, adaptive);
+    }
+
+    @Benchmark
+    public boolean search() throws Throwable {
+        return (boolean) TreeHandles.SEARCH.invokeExact(tree, keys[next++ & (OPERATIONS - 1)]);
+    }
+}
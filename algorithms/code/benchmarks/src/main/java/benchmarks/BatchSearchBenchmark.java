@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A batch of lookups: one search per key versus a single searchAll
+ * Half of the batch's keys are present. Both benchmarks return one result
+ * per key, so their times compare directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BatchSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"10000", "100000"})
+    public int batchSize;
+
+    private Object tree;
+    private int[] batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 2 * i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int value : values) {
+            TreeHandles.INSERT.invokeExact(tree, value);
+        }
+
+        batch = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = random.nextInt(2 * size);
+        }
+    }
+
+    @Benchmark
+    public boolean[] searchLoop() throws Throwable {
+        boolean[] found = new boolean[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            found[i] = (boolean) TreeHandles.SEARCH.invokeExact(tree, batch[i]);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public boolean[] searchAll() throws Throwable {
+        return (boolean[]) TreeHandles.SEARCH_ALL.invokeExact(tree, batch);
+    }
+}
@@ -0,0 +1,126 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-operation latency of BinarySearchTree on a populated tree
+ *
+ * The tree holds the even numbers 0, 2, ..., 2(size - 1), inserted in random
+ * order. Searches and deletes target present (even) keys; inserts target
+ * absent (odd) keys, so every insert adds a node. Each mutating benchmark
+ * undoes its own change, keeping the tree's size fixed, and the tree is
+ * rebuilt before every iteration so delete and reinsert cannot drift its
+ * shape for long. The workload only orders the accesses;
+ * InsertionOrderBenchmark covers trees built from sorted input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BinarySearchTreeBenchmark {
+
+    /** Length of the precomputed access sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "ZIPFIAN"})
+    public Workload workload;
+
+    /** Percentage of writes in the mixed benchmark */
+    @Param({"10"})
+    public int writePercent;
+
+    private Object tree;
+    private int[] keys;
+    private boolean[] writes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generateOperations() {
+        Random random = new Random(42);
+        int[] indexes = workload.indexes(size, OPERATIONS, random);
+        keys = new int[OPERATIONS];
+        writes = new boolean[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            keys[i] = 2 * indexes[i];
+            writes[i] = random.nextInt(100) < writePercent;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTree() throws Throwable {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = 2 * i;
+        }
+        Random random = new Random(7);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int value : values) {
+            TreeHandles.INSERT.invokeExact(tree, value);
+        }
+        next = 0;
+    }
+
+    private int nextKey() {
+        return keys[next++ & (OPERATIONS - 1)];
+    }
+
+    @Benchmark
+    public boolean search() throws Throwable {
+        return (boolean) TreeHandles.SEARCH.invokeExact(tree, nextKey());
+    }
+
+    @Benchmark
+    public void insertThenDelete() throws Throwable {
+        int key = nextKey() + 1;
+        TreeHandles.INSERT.invokeExact(tree, key);
+        TreeHandles.DELETE.invokeExact(tree, key);
+    }
+
+    @Benchmark
+    public void deleteThenInsert() throws Throwable {
+        int key = nextKey();
+        TreeHandles.DELETE.invokeExact(tree, key);
+        TreeHandles.INSERT.invokeExact(tree, key);
+    }
+
+    /**
+     * Mixed read/write: writePercent of operations are an insert and delete
+     * of an absent key, the rest are searches
+     */
+    @Benchmark
+    public boolean mixedReadWrite() throws Throwable {
+        int index = next++ & (OPERATIONS - 1);
+        int key = keys[index];
+        if (writes[index]) {
+            TreeHandles.INSERT.invokeExact(tree, key + 1);
+            TreeHandles.DELETE.invokeExact(tree, key + 1);
+            return false;
+        }
+        return (boolean) TreeHandles.SEARCH.invokeExact(tree, key);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to build a BinarySearchTree by inserting keys one at a time
+ * Sorted input degenerates the unbalanced tree into a list, making a build
+ * quadratic, so sizes stay small enough for both orders to finish.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BuildBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED"})
+    public Workload order;
+
+    private int[] values;
+
+    @Setup(Level.Trial)
+    public void generateValues() {
+        int[] indexes = order.indexes(Integer.MAX_VALUE, size, new Random(42));
+        values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = indexes[i];
+        }
+    }
+
+    @Benchmark
+    public Object insertAll() throws Throwable {
+        Object tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int value : values) {
+            TreeHandles.INSERT.invokeExact(tree, value);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,181 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput scaling of ConcurrentBinarySearchTree against a
+ * BinarySearchTree behind one global lock
+ *
+ * All threads share one tree, half filled from a key range of a million.
+ * The mixed benchmarks run 90% searches, 5% inserts and 5% deletes at 1, 2,
+ * 4 and 8 threads; compare the total ops/us across thread counts. The
+ * readersWithWriter group runs three searching threads beside one thread
+ * that only writes, showing whether readers stall behind writers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentTreeBenchmark {
+
+    /** Length of each thread's precomputed operation sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    private static final int SEARCH = 0;
+    private static final int INSERT = 1;
+    private static final int DELETE = 2;
+
+    @State(Scope.Benchmark)
+    public static class SharedTree {
+
+        @Param({"concurrent", "globalLock"})
+        public String implementation;
+
+        @Param({"1000000"})
+        public int keyRange;
+
+        private Object tree;
+        private boolean locked;
+
+        @Setup(Level.Trial)
+        public void fill() throws Throwable {
+            locked = implementation.equals("globalLock");
+            tree = locked ? TreeHandles.NEW_TREE.invokeExact() : TreeHandles.NEW_CONCURRENT_TREE.invokeExact();
+            for (int key : KeyOrder.RANDOM.keys(keyRange, new Random(42))) {
+                if ((key & 1) == 0) {
+                    insert(key);
+                }
+            }
+        }
+
+        boolean search(int key) throws Throwable {
+            if (!locked) {
+                return (boolean) TreeHandles.CONCURRENT_SEARCH.invokeExact(tree, key);
+            }
+            synchronized (tree) {
+                return (boolean) TreeHandles.SEARCH.invokeExact(tree, key);
+            }
+        }
+
+        void insert(int key) throws Throwable {
+            if (locked) {
+                synchronized (tree) {
+                    TreeHandles.INSERT.invokeExact(tree, key);
+                }
+            } else {
+                boolean ignored = (boolean) TreeHandles.CONCURRENT_INSERT.invokeExact(tree, key);
+            }
+        }
+
+        void delete(int key) throws Throwable {
+            if (locked) {
+                synchronized (tree) {
+                    TreeHandles.DELETE.invokeExact(tree, key);
+                }
+            } else {
+                boolean ignored = (boolean) TreeHandles.CONCURRENT_DELETE.invokeExact(tree, key);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Operations {
+
+        /** Percentage of searches in the mixed workload */
+        @Param({"90"})
+        public int readPercent;
+
+        private int[] keys;
+        private int[] kinds;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void generate(SharedTree shared, ThreadParams thread) {
+            Random random = new Random(thread.getThreadIndex());
+            keys = new int[OPERATIONS];
+            kinds = new int[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                keys[i] = random.nextInt(shared.keyRange);
+                int roll = random.nextInt(100);
+                kinds[i] = roll < readPercent ? SEARCH : (roll & 1) == 0 ? INSERT : DELETE;
+            }
+        }
+    }
+
+    private static boolean mixed(SharedTree shared, Operations operations) throws Throwable {
+        int index = operations.next++ & (OPERATIONS - 1);
+        int key = operations.keys[index];
+        switch (operations.kinds[index]) {
+            case INSERT:
+                shared.insert(key);
+                return true;
+            case DELETE:
+                shared.delete(key);
+                return false;
+            default:
+                return shared.search(key);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean mixed1Thread(SharedTree shared, Operations operations) throws Throwable {
+        return mixed(shared, operations);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean mixed2Threads(SharedTree shared, Operations operations) throws Throwable {
+        return mixed(shared, operations);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean mixed4Threads(SharedTree shared, Operations operations) throws Throwable {
+        return mixed(shared, operations);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean mixed8Threads(SharedTree shared, Operations operations) throws Throwable {
+        return mixed(shared, operations);
+    }
+
+    @Benchmark
+    @Group("readersWithWriter")
+    @GroupThreads(3)
+    public boolean reader(SharedTree shared, Operations operations) throws Throwable {
+        return shared.search(operations.keys[operations.next++ & (OPERATIONS - 1)]);
+    }
+
+    @Benchmark
+    @Group("readersWithWriter")
+    @GroupThreads(1)
+    public void writer(SharedTree shared, Operations operations) throws Throwable {
+        int index = operations.next++ & (OPERATIONS - 1);
+        int key = operations.keys[index];
+        if ((index & 1) == 0) {
+            shared.insert(key);
+        } else {
+            shared.delete(key);
+        }
+    }
+}
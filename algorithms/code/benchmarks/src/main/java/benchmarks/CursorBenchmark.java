@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups through a cursor versus from the root
+ * A cursor resumes from the previous key, so it wins when consecutive keys
+ * are close, as in a sorted scan or time-ordered log replay, and pays for
+ * climbing back up when they are not. The tree holds 0 .. size - 1,
+ * inserted in random order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CursorBenchmark {
+
+    /** Length of the precomputed access sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"SORTED", "RANDOM"})
+    public Workload workload;
+
+    private Object tree;
+    private Object cursor;
+    private int[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        keys = workload.indexes(size, OPERATIONS, random);
+
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int value : values) {
+            TreeHandles.INSERT.invokeExact(tree, value);
+        }
+        cursor = TreeHandles.CURSOR.invokeExact(tree);
+    }
+
+    @Benchmark
+    public boolean searchFromRoot() throws Throwable {
+        return (boolean) TreeHandles.SEARCH.invokeExact(tree, keys[next++ & (OPERATIONS - 1)]);
+    }
+
+    @Benchmark
+    public boolean cursorSearch() throws Throwable {
+        return (boolean) TreeHandles.CURSOR_SEARCH.invokeExact(cursor, keys[next++ & (OPERATIONS - 1)]);
+    }
+}
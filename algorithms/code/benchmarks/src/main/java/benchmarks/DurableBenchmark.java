@@ -0,0 +1,146 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Write-ahead logging cost of DurableBinarySearchTree
+ * insert measures a durable insert for several group commit sizes: with a
+ * batch of 1 every insert pays its own fsync, larger batches share one.
+ * Background flushing and checkpoints are off so only the commits are
+ * timed. recover measures reopening a tree from a checkpoint plus a log
+ * holding a tenth as many records again; the files are in the page cache
+ * after the first run, so it measures parsing and replay rather than the
+ * disk. Results depend on the file system under java.io.tmpdir.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DurableBenchmark {
+
+    @State(Scope.Thread)
+    public static class Log {
+
+        @Param({"1", "64", "4096"})
+        public int batchSize;
+
+        private Path directory;
+        private Object tree;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void open() throws Throwable {
+            directory = Files.createTempDirectory("durable-bst");
+            tree = openTree(directory, batchSize);
+        }
+
+        /**
+         * Next value to insert; multiplying by an odd constant is a bijection
+         * on int, so values never repeat and still arrive in random order
+         */
+        int nextValue() {
+            return next++ * 0x9E3779B9;
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Throwable {
+            TreeHandles.DURABLE_CLOSE.invokeExact(tree);
+            deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        @Param({"200000"})
+        public int checkpointedValues;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void write() throws Throwable {
+            directory = Files.createTempDirectory("durable-bst");
+            Object tree = openTree(directory, 4096);
+            Random random = new Random(42);
+            for (int i = 0; i < checkpointedValues; i++) {
+                TreeHandles.DURABLE_INSERT.invokeExact(tree, random.nextInt());
+            }
+            TreeHandles.DURABLE_CHECKPOINT.invokeExact(tree);
+            for (int i = 0; i < checkpointedValues / 10; i++) {
+                TreeHandles.DURABLE_INSERT.invokeExact(tree, random.nextInt());
+            }
+            TreeHandles.DURABLE_CLOSE.invokeExact(tree);
+        }
+
+        @TearDown(Level.Invocation)
+        public void removeEmptySegments() throws IOException {
+            // Every reopen starts a fresh, empty segment; drop it so each run replays the same files
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(".log") && Files.size(file) == 0) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Open a tree that commits only when a batch fills
+     * @param directory the tree's directory
+     * @param batchSize records per group commit
+     * @return the opened tree
+     */
+    private static Object openTree(Path directory, int batchSize) throws Throwable {
+        Object options = TreeHandles.NEW_DURABLE_OPTIONS.invokeExact();
+        TreeHandles.SET_DURABLE_BATCH_SIZE.invokeExact(options, batchSize);
+        TreeHandles.SET_DURABLE_FLUSH_INTERVAL.invokeExact(options, 0L);
+        TreeHandles.SET_DURABLE_CHECKPOINT_EVERY.invokeExact(options, 0L);
+        return TreeHandles.DURABLE_OPEN.invokeExact(directory, options);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void insert(Log log) throws Throwable {
+        TreeHandles.DURABLE_INSERT.invokeExact(log.tree, log.nextValue());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recover(Recovery recovery) throws Throwable {
+        Object tree = openTree(recovery.directory, 4096);
+        int size = (int) TreeHandles.DURABLE_SIZE.invokeExact(tree);
+        TreeHandles.DURABLE_CLOSE.invokeExact(tree);
+        return size;
+    }
+}
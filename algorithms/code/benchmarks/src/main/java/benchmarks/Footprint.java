@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Retained heap footprint of the trees for the same random keys
+ * JOL walks the object graph reachable from each tree and adds up the exact
+ * size of every object in it, so the result does not depend on when the GC
+ * runs. Spare capacity in growable arrays counts, since the tree holds it.
+ *
+ * Usage: java -cp target/benchmarks.jar benchmarks.Footprint [keys]
+ */
+public final class Footprint {
+
+    private Footprint() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] keys = KeyOrder.RANDOM.keys(count, new Random(42));
+
+        System.out.printf("Retained heap for %,d random keys:%n", count);
+        report("BinarySearchTree", build(TreeHandles.NEW_TREE, TreeHandles.INSERT, keys), count);
+        report("CompactBinarySearchTree", build(TreeHandles.NEW_COMPACT_TREE, TreeHandles.COMPACT_INSERT, keys), count);
+
+        Object offHeap = build(TreeHandles.NEW_OFF_HEAP_TREE, TreeHandles.OFF_HEAP_INSERT, keys);
+        report("OffHeapBinarySearchTree", offHeap, count);
+        System.out.printf("  %-26s %,14d bytes reserved outside the heap%n", "",
+                          (long) TreeHandles.OFF_HEAP_BYTES.invokeExact(offHeap));
+        TreeHandles.OFF_HEAP_CLOSE.invokeExact(offHeap);
+    }
+
+    /**
+     * Build a tree by inserting every key
+     * @param newTree constructor handle
+     * @param insert insert handle of the same tree
+     * @param keys keys in insertion order
+     * @return the populated tree
+     */
+    private static Object build(MethodHandle newTree, MethodHandle insert, int[] keys) throws Throwable {
+        Object tree = newTree.invokeExact();
+        for (int key : keys) {
+            insert.invokeExact(tree, key);
+        }
+        return tree;
+    }
+
+    private static void report(String name, Object tree, int count) {
+        long bytes = GraphLayout.parseInstance(tree).totalSize();
+        System.out.printf("  %-26s %,14d bytes  %6.1f bytes/key%n", name, bytes, (double) bytes / count);
+    }
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookups in the pointer tree, a sorted array and the frozen Eytzinger
+ * index built from the same keys
+ * The tree is built from random inserts, so its nodes are scattered over
+ * the heap as in a long-lived tree. Half the queries hit a stored key, half
+ * are random ints that almost always miss. Each invocation runs a batch of
+ * lookups; scores are per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FrozenSearchBenchmark {
+
+    /** Lookups per invocation; a power of two */
+    private static final int BATCH = 1 << 10;
+
+    /** Length of the precomputed query sequence; a power of two */
+    private static final int QUERIES = 1 << 20;
+
+    @Param({"100000", "4000000"})
+    public int size;
+
+    private Object tree;
+    private Object frozen;
+    private int[] sorted;
+    private int[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int i = 0; i < size; i++) {
+            TreeHandles.INSERT.invokeExact(tree, random.nextInt());
+        }
+        frozen = TreeHandles.FREEZE.invokeExact(tree);
+        sorted = (int[]) TreeHandles.INORDER_ARRAY.invokeExact(tree);
+
+        queries = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = random.nextBoolean() ? sorted[random.nextInt(sorted.length)] : random.nextInt();
+        }
+    }
+
+    /**
+     * Start of the next batch of queries
+     */
+    private int nextBatch() {
+        int start = next;
+        next = (next + BATCH) & (QUERIES - 1);
+        return start;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void pointerTree(Blackhole blackhole) throws Throwable {
+        int start = nextBatch();
+        for (int i = start; i < start + BATCH; i++) {
+            blackhole.consume((boolean) TreeHandles.SEARCH.invokeExact(tree, queries[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sortedArray(Blackhole blackhole) {
+        int start = nextBatch();
+        for (int i = start; i < start + BATCH; i++) {
+            blackhole.consume(Arrays.binarySearch(sorted, queries[i]) >= 0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void frozenEytzinger(Blackhole blackhole) throws Throwable {
+        int start = nextBatch();
+        for (int i = start; i < start + BATCH; i++) {
+            blackhole.consume((boolean) TreeHandles.FROZEN_SEARCH.invokeExact(frozen, queries[i]));
+        }
+    }
+}
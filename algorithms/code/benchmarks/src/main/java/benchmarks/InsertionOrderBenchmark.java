@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BinarySearchTree operation latency by the order the tree was built in
+ * BinarySearchTreeBenchmark always builds from random inserts; here the
+ * tree holds 0, 2, ..., 2(size - 1) inserted in sorted, reverse or random
+ * order. Sorted and reverse builds degenerate into a chain, so every
+ * operation walks O(n) nodes. Sizes stay small because building such a
+ * chain is quadratic. Accesses hit present keys in random order; inserts
+ * add an absent odd key and delete it again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InsertionOrderBenchmark {
+
+    /** Length of the precomputed access sequence; a power of two */
+    private static final int OPERATIONS = 1 << 20;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"SORTED", "REVERSE", "RANDOM"})
+    public KeyOrder order;
+
+    private Object tree;
+    private int[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int key : order.keys(size, random)) {
+            TreeHandles.INSERT.invokeExact(tree, 2 * key);
+        }
+        keys = Workload.RANDOM.indexes(size, OPERATIONS, random);
+        for (int i = 0; i < OPERATIONS; i++) {
+            keys[i] *= 2;
+        }
+    }
+
+    private int nextKey() {
+        return keys[next++ & (OPERATIONS - 1)];
+    }
+
+    @Benchmark
+    public boolean search() throws Throwable {
+        return (boolean) TreeHandles.SEARCH.invokeExact(tree, nextKey());
+    }
+
+    @Benchmark
+    public void insertThenDelete() throws Throwable {
+        int key = nextKey() + 1;
+        TreeHandles.INSERT.invokeExact(tree, key);
+        TreeHandles.DELETE.invokeExact(tree, key);
+    }
+}
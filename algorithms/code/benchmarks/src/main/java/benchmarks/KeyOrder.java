@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Orders in which a tree receives its keys while it is built
+ * Each order is a permutation of 0 .. count - 1. Sorted and reverse input
+ * degenerate an unbalanced tree into a chain; random input gives it
+ * logarithmic expected depth.
+ */
+public enum KeyOrder {
+
+    /** Ascending */
+    SORTED {
+        @Override
+        int[] keys(int count, Random random) {
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = i;
+            }
+            return result;
+        }
+    },
+
+    /** Descending */
+    REVERSE {
+        @Override
+        int[] keys(int count, Random random) {
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = count - 1 - i;
+            }
+            return result;
+        }
+    },
+
+    /** Uniformly shuffled */
+    RANDOM {
+        @Override
+        int[] keys(int count, Random random) {
+            int[] result = SORTED.keys(count, random);
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = result[i];
+                result[i] = result[j];
+                result[j] = swap;
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Generate an insertion sequence
+     * @param count number of keys
+     * @param random source of randomness
+     * @return the keys 0 .. count - 1 in this order
+     */
+    abstract int[] keys(int count, Random random);
+}
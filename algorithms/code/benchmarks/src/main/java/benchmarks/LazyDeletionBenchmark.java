@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Delete-heavy churn with eager deletion versus tombstones
+ * Each operation deletes the oldest key and inserts a fresh random one, so
+ * the size stays fixed while tombstones pile up and trigger compactions in
+ * lazy mode. Sampling mode reports the latency percentiles and the worst
+ * single operation, which is where eager restructuring and compaction
+ * installs differ; the averages alone hide them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LazyDeletionBenchmark {
+
+    /** Operations available per iteration; far more than one second needs */
+    private static final int OPERATIONS = 1 << 23;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private Object tree;
+    private int[] sequence;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        // Distinct keys in random order: the first size of them start in the
+        // tree, and operation i retires sequence[i] for sequence[i + size]
+        sequence = new int[size + OPERATIONS];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = i;
+        }
+        Random random = new Random(42);
+        for (int i = sequence.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = sequence[i];
+            sequence[i] = sequence[j];
+            sequence[j] = swap;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTree() throws Throwable {
+        int[] initial = Arrays.copyOf(sequence, size);
+        Arrays.sort(initial);
+        tree = TreeHandles.FROM_SORTED.invokeExact(initial);
+        TreeHandles.SET_LAZY_DELETION.invokeExact(tree, lazy);
+        next = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void finishCompaction() throws Throwable {
+        // Keep a running rebuild from stealing time from the next iteration
+        TreeHandles.AWAIT_COMPACTION.invokeExact(tree);
+    }
+
+    @Benchmark
+    public void deleteOldestInsertFresh() throws Throwable {
+        int i = next++;
+        TreeHandles.DELETE.invokeExact(tree, sequence[i]);
+        TreeHandles.INSERT.invokeExact(tree, sequence[i + size]);
+    }
+}
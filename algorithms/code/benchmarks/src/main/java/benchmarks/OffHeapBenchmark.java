@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a tree of random keys on the heap versus in direct buffers
+ * Each invocation builds one whole tree. The GC profiler's
+ * gc.alloc.rate.norm is the heap allocated per build: one node object per
+ * key for BinarySearchTree, only the chunk table and buffer headers for the
+ * off-heap tree. The off-heap tree is closed after the build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OffHeapBenchmark {
+
+    @Param({"1000000", "5000000"})
+    public int size;
+
+    private int[] keys;
+
+    @Setup(Level.Trial)
+    public void generateKeys() {
+        keys = KeyOrder.RANDOM.keys(size, new Random(42));
+    }
+
+    @Benchmark
+    public Object heapTree() throws Throwable {
+        Object tree = TreeHandles.NEW_TREE.invokeExact();
+        for (int key : keys) {
+            TreeHandles.INSERT.invokeExact(tree, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public long offHeapTree() throws Throwable {
+        Object tree = TreeHandles.NEW_OFF_HEAP_TREE.invokeExact();
+        for (int key : keys) {
+            TreeHandles.OFF_HEAP_INSERT.invokeExact(tree, key);
+        }
+        long reserved = (long) TreeHandles.OFF_HEAP_BYTES.invokeExact(tree);
+        TreeHandles.OFF_HEAP_CLOSE.invokeExact(tree);
+        return reserved;
+    }
+}
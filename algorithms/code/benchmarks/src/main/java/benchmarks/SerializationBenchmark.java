@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode throughput of the compact wire format
+ * The fixed-width pair ships inorderArray() as four bytes per key and loads
+ * it with fromSorted, the fastest path without a compact format. Dense keys
+ * have gaps of 1 to 3; sparse keys are random ints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SerializationBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"dense", "sparse"})
+    public String keys;
+
+    private Object tree;
+    private ByteArrayOutputStream out;
+    private byte[] compactPayload;
+    private byte[] fixedPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        int[] values = new int[size];
+        if (keys.equals("dense")) {
+            for (int i = 0, key = 0; i < size; i++) {
+                key += 1 + random.nextInt(3);
+                values[i] = key;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt();
+            }
+            Arrays.sort(values);
+        }
+        tree = TreeHandles.FROM_SORTED.invokeExact(values);
+
+        out = new ByteArrayOutputStream(5 * size + 64);
+        compactPayload = encodeCompact();
+        fixedPayload = encodeFixedWidth();
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() throws Throwable {
+        out.reset();
+        TreeHandles.WRITE_COMPACT.invokeExact(tree, (OutputStream) out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Object decodeCompact() throws Throwable {
+        return TreeHandles.READ_COMPACT.invokeExact((InputStream) new ByteArrayInputStream(compactPayload));
+    }
+
+    @Benchmark
+    public byte[] encodeFixedWidth() throws Throwable {
+        int[] values = (int[]) TreeHandles.INORDER_ARRAY.invokeExact(tree);
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    @Benchmark
+    public Object decodeFixedWidth() throws Throwable {
+        int[] values = new int[fixedPayload.length / 4];
+        ByteBuffer.wrap(fixedPayload).asIntBuffer().get(values);
+        return TreeHandles.FROM_SORTED.invokeExact(values);
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merging two trees: split/join union versus inserting one into a copy of
+ * the other
+ * Interleaved operands (evens and odds) make every split do real work;
+ * disjoint ranges ([0, size) and [size, 2 size)) let union join whole
+ * subtrees in O(log n), while the insert loop still pays per key. The loop
+ * inserts in random order; sorted disjoint keys would grow a chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SetOperationBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"interleaved", "disjoint"})
+    public String layout;
+
+    private int[] leftKeys;
+    private int[] rightKeys;
+    private int[] shuffledRightKeys;
+    private Object left;
+    private Object right;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        leftKeys = new int[size];
+        rightKeys = new int[size];
+        boolean interleaved = layout.equals("interleaved");
+        for (int i = 0; i < size; i++) {
+            leftKeys[i] = interleaved ? 2 * i : i;
+            rightKeys[i] = interleaved ? 2 * i + 1 : size + i;
+        }
+        shuffledRightKeys = rightKeys.clone();
+        Random random = new Random(42);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffledRightKeys[i];
+            shuffledRightKeys[i] = shuffledRightKeys[j];
+            shuffledRightKeys[j] = swap;
+        }
+        left = TreeHandles.FROM_SORTED.invokeExact(leftKeys);
+        right = TreeHandles.FROM_SORTED.invokeExact(rightKeys);
+    }
+
+    @Benchmark
+    public Object union() throws Throwable {
+        return TreeHandles.UNION.invokeExact(left, right);
+    }
+
+    @Benchmark
+    public Object insertLoop() throws Throwable {
+        Object merged = TreeHandles.FROM_SORTED.invokeExact(leftKeys);
+        for (int key : shuffledRightKeys) {
+            TreeHandles.INSERT.invokeExact(merged, key);
+        }
+        return merged;
+    }
+}
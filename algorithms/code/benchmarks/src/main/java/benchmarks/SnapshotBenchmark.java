@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Snapshot files: writing one, mapping one and answering a first search,
+ * and reloading one into a heap tree
+ * Mapping only checks the header, so openAndSearch should stay flat as the
+ * file grows, while write and reload are linear. The file is in the page
+ * cache after the first run; write includes its fsync.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SnapshotBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Object tree;
+    private Path directory;
+    private Path snapshot;
+    private Path scratch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = 3 * i;
+        }
+        tree = TreeHandles.FROM_SORTED.invokeExact(sorted);
+        directory = Files.createTempDirectory("bst-snapshot");
+        snapshot = directory.resolve("tree.snapshot");
+        scratch = directory.resolve("scratch.snapshot");
+        TreeHandles.WRITE_SNAPSHOT.invokeExact(tree, snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(scratch);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void write() throws Throwable {
+        TreeHandles.WRITE_SNAPSHOT.invokeExact(tree, scratch);
+    }
+
+    @Benchmark
+    public boolean openAndSearch() throws Throwable {
+        Object mapped = TreeHandles.MAPPED_OPEN.invokeExact(snapshot);
+        boolean found = (boolean) TreeHandles.MAPPED_SEARCH.invokeExact(mapped, 3 * (size / 2));
+        TreeHandles.MAPPED_CLOSE.invokeExact(mapped);
+        return found;
+    }
+
+    @Benchmark
+    public Object reload() throws Throwable {
+        return TreeHandles.READ_SNAPSHOT.invokeExact(snapshot);
+    }
+}
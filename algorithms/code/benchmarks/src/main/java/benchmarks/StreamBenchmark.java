@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Summing every key through a sequential and a parallel IntStream
+ * The parallel stream's spliterator splits the tree by rank, so the gain
+ * is bounded by the number of cores available to the fork.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StreamBenchmark {
+
+    @Param({"1000000", "5000000"})
+    public int size;
+
+    private Object tree;
+
+    @Setup(Level.Trial)
+    public void buildTree() throws Throwable {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        tree = TreeHandles.FROM_SORTED.invokeExact(values);
+    }
+
+    @Benchmark
+    public long sequentialSum() throws Throwable {
+        return ((IntStream) TreeHandles.INT_STREAM.invokeExact(tree)).asLongStream().sum();
+    }
+
+    @Benchmark
+    public long parallelSum() throws Throwable {
+        return ((IntStream) TreeHandles.INT_STREAM.invokeExact(tree)).parallel().asLongStream().sum();
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full in-order traversal of a BinarySearchTree built from random inserts
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TraversalBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Object tree;
+
+    @Setup(Level.Trial)
+    public void buildTree() throws Throwable {
+        Random random = new Random(42);
+        tree = TreeHandles.NEW_TREE.invokeExact();
+        while ((int) TreeHandles.SIZE.invokeExact(tree) < size) {
+            TreeHandles.INSERT.invokeExact(tree, random.nextInt());
+        }
+    }
+
+    @Benchmark
+    public void inorderTraversal(Blackhole blackhole) throws Throwable {
+        TreeHandles.INORDER_TRAVERSAL.invokeExact(tree, (IntConsumer) blackhole::consume);
+    }
+}
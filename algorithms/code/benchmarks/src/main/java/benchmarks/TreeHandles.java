@@ -0,0 +1,239 @@
+package benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Method handles onto the trees
+ * The trees live in the unnamed package, which named packages cannot
+ * import, and JMH refuses benchmark classes in the unnamed package. The
+ * handles bridge the two: every tree type in a signature is seen as Object.
+ * They are static final, so the JIT treats them as constants and inlines
+ * straight through to the tree's methods: a call costs the same as a direct
+ * call once compiled.
+ */
+final class TreeHandles {
+
+    // BinarySearchTree
+    static final MethodHandle NEW_TREE;
+    static final MethodHandle INSERT;
+    static final MethodHandle SEARCH;
+    static final MethodHandle SEARCH_ALL;
+    static final MethodHandle CURSOR;
+    static final MethodHandle CURSOR_SEARCH;
+    static final MethodHandle DELETE;
+    static final MethodHandle INORDER_TRAVERSAL;
+    static final MethodHandle INT_STREAM;
+    static final MethodHandle SIZE;
+    static final MethodHandle SET_ADAPTIVE;
+    static final MethodHandle SET_LAZY_DELETION;
+    static final MethodHandle AWAIT_COMPACTION;
+    static final MethodHandle INORDER_ARRAY;
+    static final MethodHandle FROM_SORTED;
+    static final MethodHandle UNION;
+    static final MethodHandle WRITE_COMPACT;
+    static final MethodHandle READ_COMPACT;
+    static final MethodHandle FREEZE;
+    static final MethodHandle WRITE_SNAPSHOT;
+    static final MethodHandle READ_SNAPSHOT;
+
+    // AVLTree
+    static final MethodHandle NEW_AVL_TREE;
+    static final MethodHandle AVL_INSERT;
+    static final MethodHandle AVL_SEARCH;
+
+    // CompactBinarySearchTree
+    static final MethodHandle NEW_COMPACT_TREE;
+    static final MethodHandle COMPACT_INSERT;
+
+    // OffHeapBinarySearchTree
+    static final MethodHandle NEW_OFF_HEAP_TREE;
+    static final MethodHandle OFF_HEAP_INSERT;
+    static final MethodHandle OFF_HEAP_BYTES;
+    static final MethodHandle OFF_HEAP_CLOSE;
+
+    // FrozenBinarySearchTree
+    static final MethodHandle FROZEN_SEARCH;
+
+    // MappedBinarySearchTree
+    static final MethodHandle MAPPED_OPEN;
+    static final MethodHandle MAPPED_SEARCH;
+    static final MethodHandle MAPPED_CLOSE;
+
+    // DurableBinarySearchTree
+    static final MethodHandle NEW_DURABLE_OPTIONS;
+    static final MethodHandle SET_DURABLE_BATCH_SIZE;
+    static final MethodHandle SET_DURABLE_FLUSH_INTERVAL;
+    static final MethodHandle SET_DURABLE_CHECKPOINT_EVERY;
+    static final MethodHandle DURABLE_OPEN;
+    static final MethodHandle DURABLE_INSERT;
+    static final MethodHandle DURABLE_CHECKPOINT;
+    static final MethodHandle DURABLE_SIZE;
+    static final MethodHandle DURABLE_CLOSE;
+
+    // ConcurrentBinarySearchTree
+    static final MethodHandle NEW_CONCURRENT_TREE;
+    static final MethodHandle CONCURRENT_INSERT;
+    static final MethodHandle CONCURRENT_SEARCH;
+    static final MethodHandle CONCURRENT_DELETE;
+
+    static {
+        try {
+            NEW_TREE = constructor("BinarySearchTree");
+            INSERT = virtual("BinarySearchTree", "insert", void.class, int.class);
+            SEARCH = virtual("BinarySearchTree", "search", boolean.class, int.class);
+            SEARCH_ALL = virtual("BinarySearchTree", "searchAll", boolean[].class, int[].class);
+            CURSOR = virtual("BinarySearchTree", "cursor", type("BinarySearchTree$Cursor"));
+            CURSOR_SEARCH = virtual("BinarySearchTree$Cursor", "search", boolean.class, int.class);
+            DELETE = virtual("BinarySearchTree", "delete", void.class, int.class);
+            INORDER_TRAVERSAL = virtual("BinarySearchTree", "inorderTraversal", void.class, IntConsumer.class);
+            INT_STREAM = virtual("BinarySearchTree", "intStream", IntStream.class);
+            SIZE = virtual("BinarySearchTree", "size", int.class);
+            SET_ADAPTIVE = virtual("BinarySearchTree", "setAdaptive", void.class, boolean.class);
+            SET_LAZY_DELETION = virtual("BinarySearchTree", "setLazyDeletion", void.class, boolean.class);
+            AWAIT_COMPACTION = virtual("BinarySearchTree", "awaitCompaction", void.class);
+            INORDER_ARRAY = virtual("BinarySearchTree", "inorderArray", int[].class);
+            FROM_SORTED = staticMethod("BinarySearchTree", "fromSorted", type("BinarySearchTree"), int[].class);
+            UNION = virtual("BinarySearchTree", "union", type("BinarySearchTree"), type("BinarySearchTree"));
+            WRITE_COMPACT = virtual("BinarySearchTree", "writeCompact", void.class, OutputStream.class);
+            READ_COMPACT = staticMethod("BinarySearchTree", "readCompact", type("BinarySearchTree"), InputStream.class);
+            FREEZE = virtual("BinarySearchTree", "freeze", type("FrozenBinarySearchTree"));
+            WRITE_SNAPSHOT = virtual("BinarySearchTree", "writeSnapshot", void.class, Path.class);
+            READ_SNAPSHOT = staticMethod("BinarySearchTree", "readSnapshot", type("BinarySearchTree"), Path.class);
+
+            NEW_AVL_TREE = constructor("AVLTree");
+            AVL_INSERT = virtual("AVLTree", "insert", void.class, int.class);
+            AVL_SEARCH = virtual("AVLTree", "search", boolean.class, int.class);
+
+            NEW_COMPACT_TREE = constructor("CompactBinarySearchTree");
+            COMPACT_INSERT = virtual("CompactBinarySearchTree", "insert", void.class, int.class);
+
+            NEW_OFF_HEAP_TREE = constructor("OffHeapBinarySearchTree");
+            OFF_HEAP_INSERT = virtual("OffHeapBinarySearchTree", "insert", void.class, int.class);
+            OFF_HEAP_BYTES = virtual("OffHeapBinarySearchTree", "offHeapBytes", long.class);
+            OFF_HEAP_CLOSE = virtual("OffHeapBinarySearchTree", "close", void.class);
+
+            FROZEN_SEARCH = virtual("FrozenBinarySearchTree", "search", boolean.class, int.class);
+
+            MAPPED_OPEN = staticMethod("MappedBinarySearchTree", "open", type("MappedBinarySearchTree"), Path.class);
+            MAPPED_SEARCH = virtual("MappedBinarySearchTree", "search", boolean.class, int.class);
+            MAPPED_CLOSE = virtual("MappedBinarySearchTree", "close", void.class);
+
+            NEW_DURABLE_OPTIONS = constructor("DurableBinarySearchTree$Options");
+            SET_DURABLE_BATCH_SIZE = setter("DurableBinarySearchTree$Options", "batchSize", int.class);
+            SET_DURABLE_FLUSH_INTERVAL = setter("DurableBinarySearchTree$Options", "flushIntervalMillis", long.class);
+            SET_DURABLE_CHECKPOINT_EVERY = setter("DurableBinarySearchTree$Options", "checkpointEveryRecords", long.class);
+            DURABLE_OPEN = staticMethod("DurableBinarySearchTree", "open", type("DurableBinarySearchTree"),
+                                        Path.class, type("DurableBinarySearchTree$Options"));
+            DURABLE_INSERT = virtual("DurableBinarySearchTree", "insert", void.class, int.class);
+            DURABLE_CHECKPOINT = virtual("DurableBinarySearchTree", "checkpoint", void.class);
+            DURABLE_SIZE = virtual("DurableBinarySearchTree", "size", int.class);
+            DURABLE_CLOSE = virtual("DurableBinarySearchTree", "close", void.class);
+
+            NEW_CONCURRENT_TREE = constructor("ConcurrentBinarySearchTree");
+            CONCURRENT_INSERT = virtual("ConcurrentBinarySearchTree", "insert", boolean.class, int.class);
+            CONCURRENT_SEARCH = virtual("ConcurrentBinarySearchTree", "search", boolean.class, int.class);
+            CONCURRENT_DELETE = virtual("ConcurrentBinarySearchTree", "delete", boolean.class, int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private TreeHandles() {
+    }
+
+    /**
+     * Load a tree class
+     * @param name binary name in the unnamed package
+     * @return the class
+     * @throws ClassNotFoundException if the tree is not on the classpath
+     */
+    private static Class<?> type(String name) throws ClassNotFoundException {
+        return Class.forName(name);
+    }
+
+    /**
+     * Handle onto a public constructor
+     * @param className tree class to instantiate
+     * @param parameterTypes constructor parameters
+     * @return handle returning the new tree as Object
+     * @throws ReflectiveOperationException if there is no such constructor
+     */
+    private static MethodHandle constructor(String className, Class<?>... parameterTypes)
+            throws ReflectiveOperationException {
+        return erase(MethodHandles.publicLookup().findConstructor(type(className),
+                MethodType.methodType(void.class, parameterTypes)));
+    }
+
+    /**
+     * Handle onto a public instance method
+     * @param className declaring tree class
+     * @param name method name
+     * @param returnType declared return type
+     * @param parameterTypes declared parameters, without the receiver
+     * @return handle taking the receiver as Object
+     * @throws ReflectiveOperationException if there is no such method
+     */
+    private static MethodHandle virtual(String className, String name, Class<?> returnType,
+                                        Class<?>... parameterTypes) throws ReflectiveOperationException {
+        return erase(MethodHandles.publicLookup().findVirtual(type(className), name,
+                MethodType.methodType(returnType, parameterTypes)));
+    }
+
+    /**
+     * Handle onto a public static method
+     * @param className declaring tree class
+     * @param name method name
+     * @param returnType declared return type
+     * @param parameterTypes declared parameters
+     * @return the handle
+     * @throws ReflectiveOperationException if there is no such method
+     */
+    private static MethodHandle staticMethod(String className, String name, Class<?> returnType,
+                                             Class<?>... parameterTypes) throws ReflectiveOperationException {
+        return erase(MethodHandles.publicLookup().findStatic(type(className), name,
+                MethodType.methodType(returnType, parameterTypes)));
+    }
+
+    /**
+     * Handle onto a public field's setter
+     * @param className declaring class
+     * @param name field name
+     * @param fieldType declared field type
+     * @return handle taking the instance as Object and the new value
+     * @throws ReflectiveOperationException if there is no such field
+     */
+    private static MethodHandle setter(String className, String name, Class<?> fieldType)
+            throws ReflectiveOperationException {
+        return erase(MethodHandles.publicLookup().findSetter(type(className), name, fieldType));
+    }
+
+    /**
+     * Retype every tree class in a handle's signature as Object, so
+     * benchmarks can call it with invokeExact; JDK types are kept
+     * @param handle handle with the tree's declared signature
+     * @return the same handle, seen through Object
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isTree(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isTree(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isTree(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Key access patterns for the benchmarks
+ * Each pattern turns a number of keys into a sequence of indexes into the
+ * tree's sorted keys.
+ */
+public enum Workload {
+
+    /** Uniformly random keys */
+    RANDOM {
+        @Override
+        int[] indexes(int keys, int count, Random random) {
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = random.nextInt(keys);
+            }
+            return result;
+        }
+    },
+
+    /** Keys in ascending order, wrapping around: consecutive operations share most of their path */
+    SORTED {
+        @Override
+        int[] indexes(int keys, int count, Random random) {
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = i % keys;
+            }
+            return result;
+        }
+    },
+
+    /** Zipfian (s = 0.99) hot keys, scattered over the key space */
+    ZIPFIAN {
+        @Override
+        int[] indexes(int keys, int count, Random random) {
+            double[] cumulative = new double[keys];
+            double total = 0;
+            for (int rank = 0; rank < keys; rank++) {
+                total += 1.0 / Math.pow(rank + 1, 0.99);
+                cumulative[rank] = total;
+            }
+
+            // Hot ranks map to random keys, not to the smallest ones
+            int[] keyOfRank = new int[keys];
+            for (int i = 0; i < keys; i++) {
+                keyOfRank[i] = i;
+            }
+            for (int i = keys - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = keyOfRank[i];
+                keyOfRank[i] = keyOfRank[j];
+                keyOfRank[j] = swap;
+            }
+
+            int[] result = new int[count];
+            for (int i = 0; i < count; i++) {
+                double target = random.nextDouble() * total;
+                int lo = 0;
+                int hi = keys - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (cumulative[mid] < target) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                result[i] = keyOfRank[lo];
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Generate an access sequence
+     * @param keys number of keys to choose from
+     * @param count length of the sequence
+     * @param random source of randomness
+     * @return indexes in [0, keys)
+     */
+    abstract int[] indexes(int keys, int count, Random random);
+}
@@ -0,0 +1,461 @@
+import java.util.*;
+
+/**
+ * Self-balancing AVL tree implementation in Java
+ * Exposes the same public API as BinarySearchTree but keeps the height at
+ * O(log n) for any insertion order, so sorted or reverse-sorted input no
+ * longer degrades search and delete to O(n)
+ */
+public class AVLTree {
+
+    /**
+     * TreeNode represents a node in the AVL tree
+     */
+    public static class TreeNode {
+        public int value;
+        public TreeNode left;
+        public TreeNode right;
+        public int height;
+
+        public TreeNode(int value) {
+            this.value = value;
+            this.left = null;
+            this.right = null;
+            this.height = 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    TreeNode root;
+
+    /**
+     * Constructor - creates an empty AVL tree
+     */
+    public AVLTree() {
+        this.root = null;
+    }
+
+    /**
+     * Insert a new value into the tree, rebalancing on the way back up
+     * @param value the value to insert
+     */
+    public void insert(int value) {
+        root = insertNode(root, value);
+    }
+
+    /**
+     * Helper method for insertion
+     * @param node current node
+     * @param value value to insert
+     * @return the new root of the subtree
+     */
+    private TreeNode insertNode(TreeNode node, int value) {
+        if (node == null) {
+            return new TreeNode(value);
+        }
+
+        if (value < node.value) {
+            node.left = insertNode(node.left, value);
+        } else if (value > node.value) {
+            node.right = insertNode(node.right, value);
+        } else {
+            // If value == node.value, do nothing (no duplicates)
+            return node;
+        }
+
+        return rebalance(node);
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return true;
+            }
+            node = value < node.value ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Delete a value from the tree, rebalancing on the way back up
+     * @param value the value to delete
+     */
+    public void delete(int value) {
+        root = deleteNode(root, value);
+    }
+
+    /**
+     * Helper method for deletion
+     * @param node current node
+     * @param value value to delete
+     * @return the new root of the subtree
+     */
+    private TreeNode deleteNode(TreeNode node, int value) {
+        if (node == null) {
+            return null;
+        }
+
+        if (value < node.value) {
+            node.left = deleteNode(node.left, value);
+        } else if (value > node.value) {
+            node.right = deleteNode(node.right, value);
+        } else {
+            // Node found, handle deletion based on children
+            if (node.left == null) {
+                return node.right;
+            } else if (node.right == null) {
+                return node.left;
+            }
+
+            // Node has two children: replace with inorder successor
+            TreeNode minNode = findMin(node.right);
+            node.value = minNode.value;
+            node.right = deleteNode(node.right, minNode.value);
+        }
+
+        return rebalance(node);
+    }
+
+    /**
+     * Find the minimum value node in a subtree
+     * @param node the root of the subtree
+     * @return the minimum value node
+     */
+    private TreeNode findMin(TreeNode node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    /**
+     * Height of a possibly empty subtree
+     * @param node the root of the subtree
+     * @return -1 for an empty subtree, otherwise the stored height
+     */
+    private static int heightOf(TreeNode node) {
+        return node == null ? -1 : node.height;
+    }
+
+    /**
+     * Recompute the stored height of a node from its children
+     * @param node the node to update
+     */
+    private static void updateHeight(TreeNode node) {
+        node.height = 1 + Math.max(heightOf(node.left), heightOf(node.right));
+    }
+
+    /**
+     * Balance factor of a node (left height minus right height)
+     * @param node the node to inspect
+     * @return the balance factor
+     */
+    private static int balanceFactor(TreeNode node) {
+        return heightOf(node.left) - heightOf(node.right);
+    }
+
+    /**
+     * Rotate a subtree to the right
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static TreeNode rotateRight(TreeNode node) {
+        TreeNode pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotate a subtree to the left
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static TreeNode rotateLeft(TreeNode node) {
+        TreeNode pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Restore the AVL invariant at a node whose children are already balanced
+     * @param node the node to rebalance
+     * @return the new root of the subtree
+     */
+    private static TreeNode rebalance(TreeNode node) {
+        updateHeight(node);
+        int balance = balanceFactor(node);
+
+        if (balance > 1) {
+            // Left-right case: straighten the left child first
+            if (balanceFactor(node.left) < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            // Right-left case: straighten the right child first
+            if (balanceFactor(node.right) > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * Perform inorder traversal (left, root, right)
+     * @return list of values in inorder
+     */
+    public List<Integer> inorderTraversal() {
+        List<Integer> result = new ArrayList<>();
+        inorderHelper(root, result);
+        return result;
+    }
+
+    /**
+     * Helper method for inorder traversal
+     * @param node current node
+     * @param result list to store results
+     */
+    private void inorderHelper(TreeNode node, List<Integer> result) {
+        if (node != null) {
+            inorderHelper(node.left, result);
+            result.add(node.value);
+            inorderHelper(node.right, result);
+        }
+    }
+
+    /**
+     * Perform preorder traversal (root, left, right)
+     * @return list of values in preorder
+     */
+    public List<Integer> preorderTraversal() {
+        List<Integer> result = new ArrayList<>();
+        preorderHelper(root, result);
+        return result;
+    }
+
+    /**
+     * Helper method for preorder traversal
+     * @param node current node
+     * @param result list to store results
+     */
+    private void preorderHelper(TreeNode node, List<Integer> result) {
+        if (node != null) {
+            result.add(node.value);
+            preorderHelper(node.left, result);
+            preorderHelper(node.right, result);
+        }
+    }
+
+    /**
+     * Perform postorder traversal (left, right, root)
+     * @return list of values in postorder
+     */
+    public List<Integer> postorderTraversal() {
+        List<Integer> result = new ArrayList<>();
+        postorderHelper(root, result);
+        return result;
+    }
+
+    /**
+     * Helper method for postorder traversal
+     * @param node current node
+     * @param result list to store results
+     */
+    private void postorderHelper(TreeNode node, List<Integer> result) {
+        if (node != null) {
+            postorderHelper(node.left, result);
+            postorderHelper(node.right, result);
+            result.add(node.value);
+        }
+    }
+
+    /**
+     * Perform level-order traversal (breadth-first)
+     * @return list of values in level-order
+     */
+    public List<Integer> levelOrderTraversal() {
+        List<Integer> result = new ArrayList<>();
+        if (root == null) {
+            return result;
+        }
+
+        Queue<TreeNode> queue = new LinkedList<>();
+        queue.offer(root);
+
+        while (!queue.isEmpty()) {
+            TreeNode node = queue.poll();
+            result.add(node.value);
+
+            if (node.left != null) {
+                queue.offer(node.left);
+            }
+            if (node.right != null) {
+                queue.offer(node.right);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the height of the tree
+     * Heights are stored in the nodes, so this is O(1)
+     * @return the height of the tree, -1 for an empty tree
+     */
+    public int height() {
+        return heightOf(root);
+    }
+
+    /**
+     * Check if the tree is balanced
+     * Always true for a correctly maintained AVL tree; the full check is kept
+     * so tests can verify the invariant after arbitrary operation sequences
+     * @return true if balanced, false otherwise
+     */
+    public boolean isBalanced() {
+        return isBalancedHelper(root) != -2;
+    }
+
+    /**
+     * Helper method for checking balance
+     * @param node current node
+     * @return -2 if unbalanced, otherwise returns height
+     */
+    private int isBalancedHelper(TreeNode node) {
+        if (node == null) {
+            return -1;
+        }
+
+        int leftHeight = isBalancedHelper(node.left);
+        if (leftHeight == -2) {
+            return -2;
+        }
+
+        int rightHeight = isBalancedHelper(node.right);
+        if (rightHeight == -2) {
+            return -2;
+        }
+
+        if (Math.abs(leftHeight - rightHeight) > 1) {
+            return -2;
+        }
+
+        return 1 + Math.max(leftHeight, rightHeight);
+    }
+
+    /**
+     * Get the number of nodes in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        return sizeHelper(root);
+    }
+
+    /**
+     * Helper method for calculating size
+     * @param node current node
+     * @return size of the subtree
+     */
+    private int sizeHelper(TreeNode node) {
+        if (node == null) {
+            return 0;
+        }
+        return 1 + sizeHelper(node.left) + sizeHelper(node.right);
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Clear all nodes from the tree
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Get a string representation of the tree
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        if (root == null) {
+            return "Empty AVL";
+        }
+        StringBuilder result = new StringBuilder();
+        stringHelper(root, 0, result);
+        return result.toString();
+    }
+
+    /**
+     * Helper method for creating string representation
+     * @param node current node
+     * @param depth current depth
+     * @param result builder to append to
+     */
+    private void stringHelper(TreeNode node, int depth, StringBuilder result) {
+        for (int i = 0; i < depth; i++) {
+            result.append("  ");
+        }
+        result.append(node.value).append("\n");
+
+        if (node.left != null) {
+            stringHelper(node.left, depth + 1, result);
+        }
+        if (node.right != null) {
+            stringHelper(node.right, depth + 1, result);
+        }
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        // Create a new AVL tree
+        AVLTree avl = new AVLTree();
+
+        // Insert sorted values - a plain BST would degenerate into a list here
+        int[] values = {10, 20, 25, 30, 35, 40, 45, 50, 60, 70, 80};
+        System.out.println("Inserting values: " + Arrays.toString(values));
+        for (int value : values) {
+            avl.insert(value);
+        }
+
+        // Display tree structure
+        System.out.println("\nTree structure:");
+        System.out.print(avl.toString());
+
+        // Perform traversals
+        System.out.println("Inorder traversal: " + avl.inorderTraversal());
+        System.out.println("Level-order traversal: " + avl.levelOrderTraversal());
+
+        // Tree properties
+        System.out.println("\nTree properties:");
+        System.out.println("Height: " + avl.height());
+        System.out.println("Size: " + avl.size());
+        System.out.println("Is balanced: " + avl.isBalanced());
+    }
+}
@@ -1,4 +1,20 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Binary Search Tree implementation in Java
@@ -13,11 +29,16 @@ public class BinarySearchTree {
         public int value;
         public TreeNode left;
         public TreeNode right;
+        public int size; // number of nodes in the subtree rooted here
+        public int height; // edges on the longest path down to a leaf
+        int unbalanced; // nodes in the subtree whose child heights differ by more than one
+        Object owner; // tree allowed to change this node in place
         
         public TreeNode(int value) {
             this.value = value;
             this.left = null;
             this.right = null;
+            this.size = 1;
         }
         
         @Override
@@ -26,176 +47,2154 @@ public class BinarySearchTree {
         }
     }
     
-    private TreeNode root;
+    TreeNode root;
+    
+    /**
+     * Nodes whose owner is this token belong to this tree alone and may be
+     * changed in place; any other node may be shared with a snapshot and is
+     * copied before it is changed
+     */
+    private Object owner;
+    
+    /**
+     * True for snapshots, which reject every mutation
+     */
+    private final boolean readOnly;
+    
+    /**
+     * Nodes on the current insert or delete path, reused so that updates
+     * do not allocate
+     */
+    private TreeNode[] path;
+    
+    /**
+     * Number of nodes at each depth, or null when it has to be recounted
+     * because a splay or a set operation reshaped the tree, or a delete
+     * lifted a subtree too large to re-level in place
+     */
+    private int[] depthCounts;
+    
+    /**
+     * True while depthCounts is shared with a snapshot and must be copied
+     * before it is changed
+     */
+    private boolean depthCountsShared;
+    
+    /**
+     * Queue for re-leveling a subtree lifted by a delete, allocated on the
+     * first such delete and reused, so deletes do not allocate
+     */
+    private TreeNode[] lifted;
+    
+    /**
+     * Largest subtree a delete re-levels in the depth histogram; lifting a
+     * larger one leaves the histogram to be recounted
+     */
+    private static final int LIFT_WALK_LIMIT = 1 << 6;
+    
+    /**
+     * True when search splays the node it reaches up to the root
+     */
+    private boolean adaptive;
+    
+    /**
+     * Incremented by every change to the tree's shape, so cursors can tell
+     * when their remembered path is stale
+     */
+    private int modifications;
+    
+    /**
+     * True when delete only marks the node as a tombstone
+     */
+    private boolean lazyDeletion;
+    
+    /**
+     * Deleted values still present as nodes. A tombstone is a node whose
+     * subtree count leaves itself out, so it needs no field of its own, and
+     * every count-based query (size, rank, select) already ignores it.
+     */
+    private int tombstones;
+    
+    /**
+     * Fraction of nodes that may be tombstones before the tree is compacted
+     */
+    private double compactionThreshold = 0.25;
+    
+    /**
+     * Rebuild running in the background, or null
+     */
+    private Compaction compaction;
+    
+    /**
+     * Trees with fewer nodes than this are compacted inline; the rebuild is
+     * cheaper than handing it to another thread
+     */
+    private static final int BACKGROUND_COMPACTION_GRAIN = 1 << 13;
+    
+    /**
+     * Longest update log a finished compaction replays inline when it is
+     * installed; longer backlogs are first replayed in the background
+     */
+    private static final int INLINE_REPLAY_LIMIT = 1 << 10;
+    
+    /**
+     * Background replay rounds after which a compaction is installed anyway,
+     * in case updates keep arriving as fast as they are replayed
+     */
+    private static final int MAX_REPLAY_ROUNDS = 8;
+    
+    /**
+     * Receives per-operation metrics; always null unless the JVM runs with
+     * -Dbst.instrumentation=true
+     */
+    private BinarySearchTreeMetrics metrics;
+    
+    /**
+     * Instrumentation switch; static final, so the JIT removes every hook
+     * when it is off
+     */
+    private static final boolean INSTRUMENTED = BinarySearchTreeMetrics.ENABLED;
     
     /**
      * Constructor - creates an empty BST
      */
     public BinarySearchTree() {
         this.root = null;
+        this.owner = new Object();
+        this.readOnly = false;
+        this.path = new TreeNode[32];
+        this.depthCounts = new int[16];
+    }
+    
+    /**
+     * Constructor for snapshots - shares the given nodes read-only
+     * @param root root of the shared nodes
+     * @param depthCounts depth histogram shared with the source tree, or null
+     */
+    private BinarySearchTree(TreeNode root, int[] depthCounts) {
+        this.root = root;
+        this.owner = null;
+        this.readOnly = true;
+        this.depthCounts = depthCounts;
+    }
+    
+    /**
+     * Take an immutable, consistent view of the tree in O(1)
+     * The snapshot shares every node with this tree. Later inserts and deletes
+     * copy the nodes on their path instead of changing shared ones (path
+     * copying), so the snapshot never observes them and needs no locking.
+     * @return a read-only tree holding the current contents
+     */
+    public BinarySearchTree snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        // Retire the current owner token: every existing node is now shared
+        owner = new Object();
+        depthCountsShared = true;
+        BinarySearchTree view = new BinarySearchTree(root, depthCounts);
+        view.metrics = metrics;
+        view.tombstones = tombstones;
+        return view;
+    }
+    
+    /**
+     * Check if this tree is a read-only snapshot
+     * @return true if mutations are rejected
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    /**
+     * Record insert, search and delete metrics for this tree and for
+     * snapshots taken from now on
+     * @param metrics the recorder, or null to stop recording
+     * @throws IllegalStateException if the JVM was not started with
+     *         -Dbst.instrumentation=true
+     */
+    public void setMetrics(BinarySearchTreeMetrics metrics) {
+        if (!INSTRUMENTED) {
+            throw new IllegalStateException("Instrumentation is disabled; start the JVM with -Dbst.instrumentation=true");
+        }
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Report a finished operation to the metrics recorder
+     * Callers check {@code INSTRUMENTED && metrics != null} first
+     */
+    private void recordOperation(BinarySearchTreeMetrics.Operation operation, int value, long startTime,
+                                 int nodesVisited, int comparisons, int depth) {
+        metrics.record(operation, value, System.nanoTime() - startTime, nodesVisited, comparisons,
+                       Math.max(depth, 0), this);
+    }
+    
+    /**
+     * Turn splay-on-access on or off
+     * In adaptive mode every search rotates the node it ends on - the match,
+     * or the last node visited on a miss - up to the root. Frequently searched
+     * keys then stay near the top, so under skewed traffic the average search
+     * path is far shorter than the tree's typical depth. Searches change the
+     * tree in this mode, so the tree must not be searched concurrently.
+     * @param adaptive true to splay on every search
+     * @throws UnsupportedOperationException on a snapshot
+     */
+    public void setAdaptive(boolean adaptive) {
+        ensureWritable();
+        this.adaptive = adaptive;
+    }
+    
+    /**
+     * Check if searches splay the accessed node to the root
+     * @return true in adaptive mode
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+    
+    /**
+     * Turn lazy deletion on or off
+     * In lazy mode delete only marks the node as a tombstone, in O(height),
+     * with no restructuring; searches, traversals and every other query skip
+     * tombstones. Once tombstones exceed the compaction threshold, the tree
+     * is rebuilt balanced without them: small trees inline, large ones on a
+     * background thread from a snapshot, installed by a later insert or
+     * delete. Turning the mode off compacts the tree at once.
+     * @param lazy true to delete lazily
+     * @throws UnsupportedOperationException on a snapshot
+     */
+    public void setLazyDeletion(boolean lazy) {
+        ensureWritable();
+        if (!lazy) {
+            compact();
+        }
+        this.lazyDeletion = lazy;
+    }
+    
+    /**
+     * Check if delete leaves tombstones
+     * @return true in lazy deletion mode
+     */
+    public boolean isLazyDeletion() {
+        return lazyDeletion;
+    }
+    
+    /**
+     * Set how many tombstones trigger a compaction in lazy deletion mode
+     * @param deadFraction fraction of all nodes, in (0, 1]; default 0.25
+     * @throws IllegalArgumentException if deadFraction is out of range
+     */
+    public void setCompactionThreshold(double deadFraction) {
+        if (!(deadFraction > 0 && deadFraction <= 1)) {
+            throw new IllegalArgumentException("Compaction threshold must be in (0, 1]: " + deadFraction);
+        }
+        this.compactionThreshold = deadFraction;
+    }
+    
+    /**
+     * Get the number of deleted values still present as nodes
+     * @return tombstones awaiting compaction
+     */
+    public int tombstones() {
+        return tombstones;
+    }
+    
+    /**
+     * Reject mutations on snapshots
+     */
+    private void ensureWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+    }
+    
+    /**
+     * Create a node owned by this tree
+     * @param value the value to store
+     * @return the new leaf node
+     */
+    private TreeNode newNode(int value) {
+        TreeNode node = new TreeNode(value);
+        node.owner = owner;
+        return node;
+    }
+    
+    /**
+     * Return a version of node that may be changed in place
+     * @param node a node reachable from root
+     * @return node itself if this tree owns it, otherwise an owned copy
+     */
+    private TreeNode owned(TreeNode node) {
+        if (node.owner == owner) {
+            return node;
+        }
+        TreeNode copy = newNode(node.value);
+        copy.left = node.left;
+        copy.right = node.right;
+        copy.size = node.size;
+        copy.height = node.height;
+        copy.unbalanced = node.unbalanced;
+        return copy;
+    }
+    
+    /**
+     * Make the root changeable in place, copying it if it is shared
+     * @return the owned root (root must not be null)
+     */
+    private TreeNode ownedRoot() {
+        root = owned(root);
+        return root;
+    }
+    
+    /**
+     * Make the left child of an owned node changeable in place
+     * @param parent an owned node
+     * @return the owned left child, or null if there is none
+     */
+    private TreeNode ownedLeft(TreeNode parent) {
+        if (parent.left != null) {
+            parent.left = owned(parent.left);
+        }
+        return parent.left;
+    }
+    
+    /**
+     * Make the right child of an owned node changeable in place
+     * @param parent an owned node
+     * @return the owned right child, or null if there is none
+     */
+    private TreeNode ownedRight(TreeNode parent) {
+        if (parent.right != null) {
+            parent.right = owned(parent.right);
+        }
+        return parent.right;
     }
     
     /**
      * Insert a new value into the BST
+     * Iterative, so degenerate trees cannot overflow the call stack
      * @param value the value to insert
      */
-    public void insert(int value) {
-        root = insertNode(root, value);
+    public void insert(int value) {
+        ensureWritable();
+        if (compaction != null) {
+            trackCompaction(Compaction.INSERT, value);
+        }
+        long startTime = INSTRUMENTED && metrics != null ? System.nanoTime() : 0L;
+        if (root == null) {
+            modifications++;
+            root = newNode(value);
+            countDepth(0, 1);
+            if (INSTRUMENTED && metrics != null) {
+                recordOperation(BinarySearchTreeMetrics.Operation.INSERT, value, startTime, 0, 0, 0);
+            }
+            return;
+        }
+        
+        // Find the insertion point first, remembering the path: a duplicate
+        // changes nothing, so it must not copy shared nodes or stale cursors
+        TreeNode node = root;
+        int depth = 0;
+        while (true) {
+            pushPath(depth++, node);
+            TreeNode next = value < node.value ? node.left : node.right;
+            if (value == node.value || next == null) {
+                break;
+            }
+            node = next;
+        }
+        boolean found = value == node.value;
+        if (found && (tombstones == 0 || isLive(node))) {
+            Arrays.fill(path, 0, depth, null);
+            if (INSTRUMENTED && metrics != null) {
+                recordOperation(BinarySearchTreeMetrics.Operation.INSERT, value, startTime, depth, depth, depth - 1);
+            }
+            return;
+        }
+        
+        // Count the new value in every subtree on the path
+        modifications++;
+        adjustPath(depth, 1);
+        if (found) {
+            // A tombstone: the added counts revive it
+            tombstones--;
+            updatePath(depth, false);
+            if (INSTRUMENTED && metrics != null) {
+                recordOperation(BinarySearchTreeMetrics.Operation.INSERT, value, startTime, depth, depth, depth - 1);
+            }
+            return;
+        }
+        TreeNode parent = path[depth - 1];
+        if (value < parent.value) {
+            parent.left = newNode(value);
+        } else {
+            parent.right = newNode(value);
+        }
+        countDepth(depth, 1);
+        updatePath(depth, true);
+        if (INSTRUMENTED && metrics != null) {
+            recordOperation(BinarySearchTreeMetrics.Operation.INSERT, value, startTime, depth, depth, depth);
+        }
+    }
+    
+    /**
+     * Remember a node on the current update path
+     * @param index depth of the node
+     * @param node an owned node
+     */
+    private void pushPath(int index, TreeNode node) {
+        if (index == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[index] = node;
+    }
+    
+    /**
+     * Recompute height and balance bottom-up along the recorded path
+     * Stops recomputing at the first node whose metadata did not change,
+     * since nothing above it can change either
+     * @param length number of nodes on the path
+     * @param changed false if the structure did not change at all
+     */
+    private void updatePath(int length, boolean changed) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (changed) {
+                changed = updateMetadata(path[i]);
+            }
+            path[i] = null;
+        }
+    }
+    
+    /**
+     * Recompute a node's height and unbalanced count from its children
+     * @param node the node to update
+     * @return true if either value changed
+     */
+    private static boolean updateMetadata(TreeNode node) {
+        int leftHeight = node.left == null ? -1 : node.left.height;
+        int rightHeight = node.right == null ? -1 : node.right.height;
+        int height = 1 + Math.max(leftHeight, rightHeight);
+        int unbalanced = (node.left == null ? 0 : node.left.unbalanced)
+                       + (node.right == null ? 0 : node.right.unbalanced)
+                       + (Math.abs(leftHeight - rightHeight) > 1 ? 1 : 0);
+        boolean changed = height != node.height || unbalanced != node.unbalanced;
+        node.height = height;
+        node.unbalanced = unbalanced;
+        return changed;
+    }
+    
+    /**
+     * Adjust the depth histogram, if it is currently being maintained
+     * @param depth depth of the added or removed node
+     * @param delta +1 for an added node, -1 for a removed one
+     */
+    private void countDepth(int depth, int delta) {
+        if (depthCounts == null) {
+            return;
+        }
+        if (depthCountsShared || depth >= depthCounts.length) {
+            depthCounts = Arrays.copyOf(depthCounts, Math.max(depthCounts.length, 2 * (depth + 1)));
+            depthCountsShared = false;
+        }
+        depthCounts[depth] += delta;
+    }
+    
+    /**
+     * Move a subtree one level up in the depth histogram
+     * Walks the subtree breadth-first, so the cost is its size; a subtree
+     * larger than LIFT_WALK_LIMIT drops the histogram instead, to be
+     * recounted on the next depthHistogram() call
+     * @param subtree root of the lifted subtree
+     * @param depth depth of subtree after the lift
+     */
+    private void liftDepths(TreeNode subtree, int depth) {
+        if (depthCounts == null) {
+            return;
+        }
+        if (lifted == null) {
+            lifted = new TreeNode[LIFT_WALK_LIMIT];
+        }
+        TreeNode[] queue = lifted;
+        queue[0] = subtree;
+        int head = 0;
+        int tail = 1;
+        for (int level = depth + 1; head < tail; level++) {
+            // Every node of this level moves to the one above
+            int levelEnd = tail;
+            countDepth(level, head - levelEnd);
+            countDepth(level - 1, levelEnd - head);
+            while (head < levelEnd) {
+                TreeNode node = queue[head++];
+                int children = (node.left == null ? 0 : 1) + (node.right == null ? 0 : 1);
+                if (tail + children > queue.length) {
+                    Arrays.fill(queue, 0, tail, null);
+                    depthCounts = null;
+                    return;
+                }
+                if (node.left != null) {
+                    queue[tail++] = node.left;
+                }
+                if (node.right != null) {
+                    queue[tail++] = node.right;
+                }
+            }
+        }
+        Arrays.fill(queue, 0, tail, null);
+    }
+    
+    /**
+     * Add delta to the subtree size of every node on the recorded path
+     * Shared nodes are copied on the way, and the path is left holding the
+     * owned nodes
+     * @param length number of nodes on the path, which starts at the root
+     * @param delta amount to add to each size
+     */
+    private void adjustPath(int length, int delta) {
+        TreeNode node = ownedRoot();
+        for (int i = 0; ; i++) {
+            node.size += delta;
+            path[i] = node;
+            if (i + 1 == length) {
+                return;
+            }
+            // An owned copy still links to the original child
+            node = node.left == path[i + 1] ? ownedLeft(node) : ownedRight(node);
+        }
+    }
+    
+    /**
+     * Search for a value in the BST
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        if (adaptive && root != null) {
+            return searchAndSplay(value);
+        }
+        long startTime = INSTRUMENTED && metrics != null ? System.nanoTime() : 0L;
+        TreeNode node = root;
+        int depth = 0;
+        while (node != null) {
+            if (value == node.value) {
+                if (INSTRUMENTED && metrics != null) {
+                    recordOperation(BinarySearchTreeMetrics.Operation.SEARCH, value, startTime,
+                                    depth + 1, depth + 1, depth);
+                }
+                return tombstones == 0 || isLive(node);
+            }
+            node = value < node.value ? node.left : node.right;
+            depth++;
+        }
+        if (INSTRUMENTED && metrics != null) {
+            recordOperation(BinarySearchTreeMetrics.Operation.SEARCH, value, startTime, depth, depth, depth - 1);
+        }
+        return false;
+    }
+    
+    /**
+     * Search in adaptive mode: walk down recording the path, then splay the
+     * node the walk ended on
+     * @param value the value to search for (root must not be null)
+     * @return true if found, false otherwise
+     */
+    private boolean searchAndSplay(int value) {
+        long startTime = INSTRUMENTED && metrics != null ? System.nanoTime() : 0L;
+        TreeNode node = ownedRoot();
+        int length = 0;
+        while (true) {
+            pushPath(length++, node);
+            if (value == node.value) {
+                break;
+            }
+            TreeNode next = value < node.value ? node.left : node.right;
+            if (next == null) {
+                break;
+            }
+            node = value < node.value ? ownedLeft(node) : ownedRight(node);
+        }
+        boolean found = value == node.value && (tombstones == 0 || isLive(node));
+        if (INSTRUMENTED && metrics != null) {
+            recordOperation(BinarySearchTreeMetrics.Operation.SEARCH, value, startTime, length, length, length - 1);
+        }
+        splay(length);
+        return found;
+    }
+    
+    /**
+     * Rotate the last node of the recorded path up to the root
+     * Bottom-up splaying: a node in line with its parent and grandparent
+     * (zig-zig) rotates the parent first, one that is not (zig-zag) rotates
+     * twice itself. Zig-zig roughly halves the depth of every node on the
+     * path, which is what keeps splaying O(log n) amortized.
+     * @param length number of nodes on the path, all owned by this tree
+     */
+    private void splay(int length) {
+        int i = length - 1;
+        TreeNode node = path[i];
+        while (i > 0) {
+            TreeNode parent = path[i - 1];
+            if (i == 1) {
+                // Zig: parent is the root
+                rotateUp(node, parent);
+                updateMetadata(parent);
+                i = 0;
+            } else {
+                TreeNode grandparent = path[i - 2];
+                if ((grandparent.left == parent) == (parent.left == node)) {
+                    rotateUp(parent, grandparent);
+                    rotateUp(node, parent);
+                    updateMetadata(grandparent);
+                    updateMetadata(parent);
+                } else {
+                    rotateUp(node, parent);
+                    if (grandparent.left == parent) {
+                        grandparent.left = node;
+                    } else {
+                        grandparent.right = node;
+                    }
+                    rotateUp(node, grandparent);
+                    updateMetadata(parent);
+                    updateMetadata(grandparent);
+                }
+                replaceChild(i >= 3 ? path[i - 3] : null, grandparent, node);
+                i -= 2;
+            }
+            updateMetadata(node);
+        }
+        root = node;
+        
+        // Splaying moves whole subtrees between levels
+        if (length > 1) {
+            depthCounts = null;
+            modifications++;
+        }
+        Arrays.fill(path, 0, length, null);
+    }
+    
+    /**
+     * Make child the parent of its parent, keeping the key order and the
+     * subtree counts; height and balance are left for the caller
+     * The link into parent from above is left for the caller to fix
+     * @param child a child of parent
+     * @param parent the node to rotate down
+     */
+    private static void rotateUp(TreeNode child, TreeNode parent) {
+        TreeNode moved;
+        if (parent.left == child) {
+            moved = child.right;
+            parent.left = moved;
+            child.right = parent;
+        } else {
+            moved = child.left;
+            parent.right = moved;
+            child.left = parent;
+        }
+        // Adjusted rather than recounted, so tombstones stay uncounted
+        int parentSize = parent.size;
+        parent.size = parentSize - child.size + sizeOf(moved);
+        child.size = parentSize;
+    }
+    
+    /**
+     * Search for many values at once
+     * The batch is sorted and pushed through the tree level by level: every
+     * node is visited at most once, however many keys pass through it, and
+     * the nodes on one level are independent loads, so their cache misses
+     * overlap instead of queueing up one descent after another.
+     * @param values the values to search for, in any order
+     * @return found[i] is true if values[i] is in the tree
+     */
+    public boolean[] searchAll(int[] values) {
+        boolean[] found = new boolean[values.length];
+        if (root == null || values.length == 0) {
+            return found;
+        }
+        
+        // Value in the high half, position in the low half: sorting the
+        // longs sorts by value and keeps the way back to found[]
+        long[] sorted = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            sorted[i] = (long) values[i] << 32 | i;
+        }
+        Arrays.sort(sorted);
+        
+        // Frontier of the current level: a node and the slice of sorted
+        // values still searching below it; every slice holds at least one.
+        // Tombstones are nodes too, so they count towards the bound
+        int capacity = Math.min(values.length, size() + tombstones);
+        TreeNode[] nodes = new TreeNode[capacity];
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        TreeNode[] nextNodes = new TreeNode[capacity];
+        int[] nextFrom = new int[capacity];
+        int[] nextTo = new int[capacity];
+        nodes[0] = root;
+        from[0] = 0;
+        to[0] = values.length;
+        int count = 1;
+        while (count > 0) {
+            int next = 0;
+            for (int e = 0; e < count; e++) {
+                TreeNode node = nodes[e];
+                int lo = from[e];
+                int hi = to[e];
+                int split = lowerBound(sorted, lo, hi, node.value);
+                int end = split;
+                boolean live = tombstones == 0 || isLive(node);
+                while (end < hi && (int) (sorted[end] >> 32) == node.value) {
+                    found[(int) sorted[end++]] = live;
+                }
+                if (split > lo && node.left != null) {
+                    nextNodes[next] = node.left;
+                    nextFrom[next] = lo;
+                    nextTo[next++] = split;
+                }
+                if (end < hi && node.right != null) {
+                    nextNodes[next] = node.right;
+                    nextFrom[next] = end;
+                    nextTo[next++] = hi;
+                }
+            }
+            
+            TreeNode[] swapNodes = nodes;
+            nodes = nextNodes;
+            nextNodes = swapNodes;
+            int[] swap = from;
+            from = nextFrom;
+            nextFrom = swap;
+            swap = to;
+            to = nextTo;
+            nextTo = swap;
+            count = next;
+        }
+        return found;
+    }
+    
+    /**
+     * Find the first packed entry whose value is at least the given one
+     * @param sorted entries from searchAll, value in the high 32 bits
+     * @param from start of the slice (inclusive)
+     * @param to end of the slice (exclusive)
+     * @param value the value to compare with
+     * @return index in [from, to]
+     */
+    private static int lowerBound(long[] sorted, int from, int to, int value) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if ((int) (sorted[mid] >> 32) < value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+    
+    /**
+     * Create a cursor for lookups that arrive in nearly sorted order
+     * @return a cursor positioned at the root
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+    
+    /**
+     * A finger into the tree: remembers the path to the last node it searched
+     * Each search climbs from that node only until the target lies inside the
+     * current subtree's key range, then descends from there. A search for a
+     * key d positions away typically touches O(log d) nodes on a balanced
+     * tree, so a sorted scan costs O(1) amortized per lookup. A lookup that
+     * crosses a high ancestor's key still climbs to that ancestor.
+     * Cursors never splay, even in adaptive mode. Any change to the tree
+     * sends the next search back to the root.
+     */
+    public final class Cursor {
+        private TreeNode[] nodes = new TreeNode[32];
+        // Open key range of each remembered node's subtree
+        private long[] lower = new long[32];
+        private long[] upper = new long[32];
+        private int depth;
+        private int version;
+        
+        private Cursor() {
+        }
+        
+        /**
+         * Search for a value starting from the finger, and move the finger to
+         * the node the search ends on
+         * @param value the value to search for
+         * @return true if found, false otherwise
+         */
+        public boolean search(int value) {
+            if (version != modifications || depth == 0) {
+                version = modifications;
+                depth = 0;
+                if (root == null) {
+                    return false;
+                }
+                push(root, Integer.MIN_VALUE - 1L, Integer.MAX_VALUE + 1L);
+            }
+            
+            // The root's range holds every key, so the climb always stops
+            while (value <= lower[depth - 1] || value >= upper[depth - 1]) {
+                nodes[--depth] = null;
+            }
+            
+            TreeNode node = nodes[depth - 1];
+            while (value != node.value) {
+                long low = lower[depth - 1];
+                long high = upper[depth - 1];
+                TreeNode child = value < node.value ? node.left : node.right;
+                if (child == null) {
+                    return false;
+                }
+                if (value < node.value) {
+                    push(child, low, node.value);
+                } else {
+                    push(child, node.value, high);
+                }
+                node = child;
+            }
+            return tombstones == 0 || isLive(node);
+        }
+        
+        private void push(TreeNode node, long low, long high) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                lower = Arrays.copyOf(lower, depth * 2);
+                upper = Arrays.copyOf(upper, depth * 2);
+            }
+            nodes[depth] = node;
+            lower[depth] = low;
+            upper[depth] = high;
+            depth++;
+        }
+    }
+    
+    /**
+     * Delete a value from the BST
+     * @param value the value to delete
+     */
+    public void delete(int value) {
+        ensureWritable();
+        if (compaction != null) {
+            trackCompaction(Compaction.DELETE, value);
+        }
+        long startTime = INSTRUMENTED && metrics != null ? System.nanoTime() : 0L;
+        if (root == null) {
+            if (INSTRUMENTED && metrics != null) {
+                recordOperation(BinarySearchTreeMetrics.Operation.DELETE, value, startTime, 0, 0, 0);
+            }
+            return;
+        }
+        if (lazyDeletion) {
+            markDeleted(value, startTime);
+            return;
+        }
+        
+        // Locate the node, remembering the path to it: a miss changes
+        // nothing, so it must not copy shared nodes or stale cursors
+        TreeNode node = root;
+        int depth = 0;
+        while (node != null && value != node.value) {
+            pushPath(depth++, node);
+            node = value < node.value ? node.left : node.right;
+        }
+        if (node == null) {
+            Arrays.fill(path, 0, depth, null);
+            if (INSTRUMENTED && metrics != null) {
+                recordOperation(BinarySearchTreeMetrics.Operation.DELETE, value, startTime, depth, depth, depth - 1);
+            }
+            return;
+        }
+        int foundDepth = depth;
+        
+        // Uncount the removed value from every subtree down to the node
+        modifications++;
+        pushPath(depth, node);
+        adjustPath(depth + 1, -1);
+        node = path[depth];
+        TreeNode parent = depth == 0 ? null : path[depth - 1];
+        
+        // Node has two children: copy the inorder successor up, then remove
+        // the successor instead (it has no left child). The node stays on
+        // the path, since its subtree loses the successor
+        if (node.left != null && node.right != null) {
+            depth++;
+            TreeNode successorParent = node;
+            TreeNode successor = ownedRight(node);
+            while (successor.left != null) {
+                successor.size--;
+                pushPath(depth++, successor);
+                successorParent = successor;
+                successor = ownedLeft(successor);
+            }
+            node.value = successor.value;
+            parent = successorParent;
+            node = successor;
+        } else {
+            // The node itself is spliced out
+            path[depth] = null;
+        }
+        
+        // Node has at most one child: splice it out
+        TreeNode child = node.left != null ? node.left : node.right;
+        replaceChild(parent, node, child);
+        
+        // A removed leaf leaves every other depth unchanged; a spliced child
+        // moves its whole subtree up one level
+        countDepth(depth, -1);
+        if (child != null) {
+            liftDepths(child, depth);
+        }
+        updatePath(depth, true);
+        if (INSTRUMENTED && metrics != null) {
+            // Past the found node, the walk to the successor needs no comparisons
+            recordOperation(BinarySearchTreeMetrics.Operation.DELETE, value, startTime,
+                            depth + 1, foundDepth + 1, foundDepth);
+        }
+    }
+    
+    /**
+     * Delete in lazy mode: turn the node into a tombstone
+     * Only the subtree counts on the path change, so there is no successor
+     * walk and no restructuring; the shape, height and depth histogram stay
+     * as they are until the next compaction.
+     * @param value the value to delete (root must not be null)
+     * @param startTime start of the operation, for metrics
+     */
+    private void markDeleted(int value, long startTime) {
+        // Find the node first: a miss or a repeated delete changes nothing
+        TreeNode node = root;
+        int depth = 0;
+        while (node != null && value != node.value) {
+            node = value < node.value ? node.left : node.right;
+            depth++;
+        }
+        boolean live = node != null && isLive(node);
+        if (live) {
+            // The path may be copied, which leaves cursors holding the old nodes
+            modifications++;
+            TreeNode current = ownedRoot();
+            while (true) {
+                current.size--;
+                if (value == current.value) {
+                    break;
+                }
+                current = value < current.value ? ownedLeft(current) : ownedRight(current);
+            }
+            tombstones++;
+        }
+        if (INSTRUMENTED && metrics != null) {
+            int visited = node == null ? depth : depth + 1;
+            recordOperation(BinarySearchTreeMetrics.Operation.DELETE, value, startTime,
+                            live ? 2 * visited : visited, visited, visited - 1);
+        }
+        if (live && compaction == null && tombstones > compactionThreshold * (size() + tombstones)) {
+            if (size() + tombstones < BACKGROUND_COMPACTION_GRAIN) {
+                compact();
+            } else {
+                startCompaction();
+            }
+        }
+    }
+    
+    /**
+     * Check whether a node holds a value of the tree or is a tombstone
+     * @param node a node of the tree
+     * @return false for a tombstone
+     */
+    private static boolean isLive(TreeNode node) {
+        return node.size != sizeOf(node.left) + sizeOf(node.right);
+    }
+    
+    /**
+     * Number of values a node itself contributes to its subtree count
+     * @param node a node of the tree
+     * @return 1, or 0 for a tombstone
+     */
+    private static int ownCount(TreeNode node) {
+        return node.size - sizeOf(node.left) - sizeOf(node.right);
+    }
+    
+    /**
+     * Point the link that referenced {@code node} at {@code replacement}
+     * @param parent parent of node, or null if node is the root
+     * @param node the child being replaced
+     * @param replacement the new child (may be null)
+     */
+    private void replaceChild(TreeNode parent, TreeNode node, TreeNode replacement) {
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == node) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+    }
+    
+    /**
+     * Find the smallest value in the tree
+     * @return the minimum, or empty if the tree is empty
+     */
+    public OptionalInt min() {
+        if (tombstones > 0) {
+            // Tombstones are skipped by going through the live counts
+            return isEmpty() ? OptionalInt.empty() : OptionalInt.of(select(0));
+        }
+        if (root == null) {
+            return OptionalInt.empty();
+        }
+        TreeNode node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return OptionalInt.of(node.value);
+    }
+    
+    /**
+     * Find the largest value in the tree
+     * @return the maximum, or empty if the tree is empty
+     */
+    public OptionalInt max() {
+        if (tombstones > 0) {
+            return isEmpty() ? OptionalInt.empty() : OptionalInt.of(select(size() - 1));
+        }
+        if (root == null) {
+            return OptionalInt.empty();
+        }
+        TreeNode node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return OptionalInt.of(node.value);
+    }
+    
+    /**
+     * Find the greatest value less than or equal to the given value
+     * Time Complexity: O(height)
+     * @param value the bound
+     * @return the floor, or empty if every value is greater
+     */
+    public OptionalInt floor(int value) {
+        if (tombstones > 0) {
+            int count = countAtMost(value);
+            return count == 0 ? OptionalInt.empty() : OptionalInt.of(select(count - 1));
+        }
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return OptionalInt.of(value);
+            }
+            if (value < node.value) {
+                node = node.left;
+            } else {
+                best = node;
+                node = node.right;
+            }
+        }
+        return best == null ? OptionalInt.empty() : OptionalInt.of(best.value);
+    }
+    
+    /**
+     * Find the least value greater than or equal to the given value
+     * Time Complexity: O(height)
+     * @param value the bound
+     * @return the ceiling, or empty if every value is smaller
+     */
+    public OptionalInt ceiling(int value) {
+        if (tombstones > 0) {
+            int count = rank(value);
+            return count == size() ? OptionalInt.empty() : OptionalInt.of(select(count));
+        }
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return OptionalInt.of(value);
+            }
+            if (value > node.value) {
+                node = node.right;
+            } else {
+                best = node;
+                node = node.left;
+            }
+        }
+        return best == null ? OptionalInt.empty() : OptionalInt.of(best.value);
+    }
+    
+    /**
+     * Find the greatest value strictly less than the given value
+     * Time Complexity: O(height)
+     * @param value the bound
+     * @return the predecessor, or empty if there is none
+     */
+    public OptionalInt lower(int value) {
+        if (tombstones > 0) {
+            int count = rank(value);
+            return count == 0 ? OptionalInt.empty() : OptionalInt.of(select(count - 1));
+        }
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (node.value < value) {
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best == null ? OptionalInt.empty() : OptionalInt.of(best.value);
+    }
+    
+    /**
+     * Find the least value strictly greater than the given value
+     * Time Complexity: O(height)
+     * @param value the bound
+     * @return the successor, or empty if there is none
+     */
+    public OptionalInt higher(int value) {
+        if (tombstones > 0) {
+            int count = countAtMost(value);
+            return count == size() ? OptionalInt.empty() : OptionalInt.of(select(count));
+        }
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (node.value > value) {
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best == null ? OptionalInt.empty() : OptionalInt.of(best.value);
+    }
+    
+    /**
+     * Visit the values in the closed range [lo, hi] in ascending order
+     * Subtrees entirely outside the range are never entered, so this costs
+     * O(height + k) for k values in range
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (inclusive)
+     * @param visitor receives each value in range
+     */
+    public void range(int lo, int hi, IntConsumer visitor) {
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode node = root;
+        
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                if (node.value < lo) {
+                    // Node and its left subtree are below the range
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+            
+            if (stack.isEmpty()) {
+                return;
+            }
+            node = stack.pop();
+            if (node.value > hi) {
+                return;
+            }
+            if (tombstones == 0 || isLive(node)) {
+                visitor.accept(node.value);
+            }
+            node = node.right;
+        }
+    }
+    
+    /**
+     * Collect the values in the closed range [lo, hi]
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (inclusive)
+     * @return values in range, ascending
+     */
+    public int[] range(int lo, int hi) {
+        IntArrayCollector collector = new IntArrayCollector(countInRange(lo, hi));
+        range(lo, hi, collector);
+        return collector.values;
+    }
+    
+    /**
+     * Build a perfectly balanced tree from sorted values in O(n)
+     * Each value is placed directly, without a descent per key, so this is
+     * the fastest way to load a tree from a sorted dump
+     * @param sortedValues values in ascending order; duplicates are skipped
+     * @return a new tree of height floor(log2(distinct values))
+     * @throws IllegalArgumentException if the values are not sorted
+     */
+    public static BinarySearchTree fromSorted(int[] sortedValues) {
+        for (int i = 1; i < sortedValues.length; i++) {
+            if (sortedValues[i] < sortedValues[i - 1]) {
+                throw new IllegalArgumentException("Values are not sorted at index " + i);
+            }
+        }
+        
+        int[] distinct = distinctSorted(sortedValues, sortedValues.length);
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.root = tree.buildBalanced(distinct, 0, distinct.length);
+        tree.depthCounts = balancedDepthCounts(distinct.length);
+        return tree;
+    }
+    
+    /**
+     * Insert a batch of values
+     * The batch is sorted first. Small batches are inserted one by one in
+     * sorted order, which keeps successive descents on nearby paths. Large
+     * batches are merged with the existing values in one O(n + m) pass and
+     * the tree is rebuilt balanced, which is cheaper than m descents.
+     * @param values values to insert, in any order; duplicates are ignored
+     */
+    public void insertAll(int[] values) {
+        ensureWritable();
+        cancelCompaction();
+        int[] batch = values.clone();
+        Arrays.sort(batch);
+        batch = distinctSorted(batch, batch.length);
+        
+        // m descents cost at least m * log2(n + m); a rebuild costs n + m
+        int existing = size();
+        int total = existing + batch.length;
+        if (batch.length * (Math.log(total) / Math.log(2)) < total) {
+            for (int value : batch) {
+                insert(value);
+            }
+            return;
+        }
+        
+        // Merge the sorted batch with the current inorder sequence
+        int[] current = inorderArray();
+        
+        int[] merged = new int[existing + batch.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < existing && j < batch.length) {
+            if (current[i] < batch[j]) {
+                merged[k++] = current[i++];
+            } else if (current[i] > batch[j]) {
+                merged[k++] = batch[j++];
+            } else {
+                merged[k++] = current[i++];
+                j++;
+            }
+        }
+        while (i < existing) {
+            merged[k++] = current[i++];
+        }
+        while (j < batch.length) {
+            merged[k++] = batch[j++];
+        }
+        
+        root = buildBalanced(merged, 0, k);
+        modifications++;
+        tombstones = 0;
+        depthCounts = balancedDepthCounts(k);
+        depthCountsShared = false;
+    }
+    
+    /**
+     * Rebuild the tree balanced without its tombstones, in O(n)
+     * Cancels a background compaction, if one is running
+     */
+    public void compact() {
+        ensureWritable();
+        cancelCompaction();
+        if (tombstones == 0) {
+            return;
+        }
+        root = buildBalanced(inorderArray(), 0, size());
+        tombstones = 0;
+        depthCounts = balancedDepthCounts(size());
+        depthCountsShared = false;
+        modifications++;
+    }
+    
+    /**
+     * Wait for a background compaction to finish and install it
+     * Returns at once if none is running
+     */
+    public void awaitCompaction() {
+        if (compaction != null) {
+            installCompaction();
+        }
+    }
+    
+    /**
+     * Start rebuilding the tree's live values on another thread
+     * The rebuild reads an O(1) snapshot into a private tree, so this tree
+     * stays fully usable; inserts and deletes made meanwhile are logged and
+     * replayed onto the private tree before it is installed.
+     */
+    private void startCompaction() {
+        BinarySearchTree view = snapshot();
+        BinarySearchTree rebuilt = new BinarySearchTree();
+        // Replayed deletes leave tombstones but never compact the private tree
+        rebuilt.lazyDeletion = true;
+        rebuilt.compactionThreshold = 1;
+        CompletableFuture<Void> result = CompletableFuture.runAsync(() -> {
+            int[] values = view.inorderArray();
+            rebuilt.root = rebuilt.buildBalanced(values, 0, values.length);
+            rebuilt.depthCounts = balancedDepthCounts(values.length);
+        });
+        compaction = new Compaction(rebuilt, result);
+    }
+    
+    /**
+     * Log an update for a running compaction, and install it once it is done
+     * A long backlog is replayed on the background thread as well, so the
+     * install itself only ever replays a short tail.
+     * @param operation Compaction.INSERT or Compaction.DELETE
+     * @param value the value being inserted or deleted
+     */
+    private void trackCompaction(byte operation, int value) {
+        Compaction running = compaction;
+        if (running.result.isDone()) {
+            if (running.logLength <= INLINE_REPLAY_LIMIT || running.rounds == MAX_REPLAY_ROUNDS
+                    || running.result.isCompletedExceptionally()) {
+                installCompaction();
+                return;
+            }
+            long[] backlog = running.log;
+            int length = running.logLength;
+            running.log = new long[64];
+            running.logLength = 0;
+            running.rounds++;
+            running.result = running.result.thenRunAsync(() -> replay(running.rebuilt, backlog, length));
+        }
+        running.log(operation, value);
+    }
+    
+    /**
+     * Swap in the rebuilt tree and replay the updates it has not seen
+     * Waits for the rebuild if it is still running. A failed or cancelled
+     * rebuild is dropped: the current tree is still correct, and the next
+     * delete past the threshold starts another one.
+     */
+    private void installCompaction() {
+        Compaction finished = compaction;
+        compaction = null;
+        try {
+            finished.result.join();
+        } catch (CompletionException | CancellationException e) {
+            return;
+        }
+        // Nodes of the rebuilt tree belong to this tree alone
+        root = finished.rebuilt.root;
+        owner = finished.rebuilt.owner;
+        tombstones = finished.rebuilt.tombstones;
+        depthCounts = finished.rebuilt.depthCounts;
+        depthCountsShared = false;
+        modifications++;
+        replay(this, finished.log, finished.logLength);
+    }
+    
+    /**
+     * Apply logged updates to a tree, in order
+     */
+    private static void replay(BinarySearchTree tree, long[] log, int length) {
+        for (int i = 0; i < length; i++) {
+            int value = (int) log[i];
+            if (log[i] >>> 32 == Compaction.INSERT) {
+                tree.insert(value);
+            } else {
+                tree.delete(value);
+            }
+        }
+    }
+    
+    private void cancelCompaction() {
+        if (compaction != null) {
+            compaction.result.cancel(false);
+            compaction = null;
+        }
+    }
+    
+    /**
+     * A background rebuild and the updates to replay onto it
+     */
+    private static final class Compaction {
+        static final byte INSERT = 1;
+        static final byte DELETE = 2;
+        
+        final BinarySearchTree rebuilt; // touched only by the current stage of result
+        CompletableFuture<Void> result;
+        // Operation in the high half, value in the low half
+        long[] log = new long[64];
+        int logLength;
+        int rounds; // backlogs handed to the background so far
+        
+        Compaction(BinarySearchTree rebuilt, CompletableFuture<Void> result) {
+            this.rebuilt = rebuilt;
+            this.result = result;
+        }
+        
+        void log(byte operation, int value) {
+            if (logLength == log.length) {
+                log = Arrays.copyOf(log, logLength * 2);
+            }
+            log[logLength++] = (long) operation << 32 | (value & 0xffffffffL);
+        }
+    }
+    
+    /**
+     * Save the tree as a compact snapshot file
+     * The file can be reopened instantly with {@link MappedBinarySearchTree#open}
+     * or loaded back into a heap tree with {@link #readSnapshot}
+     * @param file destination path, replaced atomically if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        MappedBinarySearchTree.write(this, file);
+    }
+    
+    /**
+     * Load a snapshot file into a new balanced tree
+     * Bulk-copies the mapped values and builds the tree in O(n), with no
+     * per-key descents
+     * @param file a file written by {@link #writeSnapshot}
+     * @return a new writable tree
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BinarySearchTree readSnapshot(Path file) throws IOException {
+        try (MappedBinarySearchTree mapped = MappedBinarySearchTree.open(file)) {
+            return mapped.toBinarySearchTree();
+        }
+    }
+    
+    /**
+     * Stream the values in the compact wire format
+     * Values are sent in ascending order as gaps, each a varint: on a dense
+     * key set most gaps fit in one byte, a quarter of a fixed-width int.
+     * A first pass over the tree sizes the body so readers can fetch it in
+     * bulk; nothing proportional to the tree is buffered.
+     *
+     * Format (varints are 7 bits per byte, low group first):
+     *   int    magic   'BSTV', little-endian
+     *   int    version 1, little-endian
+     *   varint count   number of values
+     *   varint length  bytes in the body
+     *   body:  zigzag varint of the smallest value, then for each further
+     *          value the varint of (value - previous - 1)
+     * @param out destination; not closed
+     * @throws IOException if out throws
+     */
+    public void writeCompact(OutputStream out) throws IOException {
+        long length = 0;
+        long previous = 0;
+        boolean first = true;
+        PrimitiveIterator.OfInt values = iterator();
+        while (values.hasNext()) {
+            int value = values.nextInt();
+            length += varintLength(first ? zigzag(value) : value - previous - 1);
+            previous = value;
+            first = false;
+        }
+        
+        byte[] buffer = new byte[1 << 16];
+        int position = putIntLE(buffer, 0, COMPACT_MAGIC);
+        position = putIntLE(buffer, position, COMPACT_VERSION);
+        position = putVarint(buffer, position, size());
+        position = putVarint(buffer, position, length);
+        first = true;
+        values = iterator();
+        while (values.hasNext()) {
+            if (position > buffer.length - 10) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            int value = values.nextInt();
+            position = putVarint(buffer, position, first ? zigzag(value) : value - previous - 1);
+            previous = value;
+            first = false;
+        }
+        out.write(buffer, 0, position);
+    }
+    
+    /**
+     * Read a tree written by writeCompact
+     * The values are decoded as the tree is built, straight into a perfectly
+     * balanced shape in O(n): there is no per-key descent and no array of
+     * all values. Reads exactly the payload, so the stream can carry more
+     * data after it.
+     * @param in source; not closed
+     * @return a new writable tree
+     * @throws IOException if in throws, ends early or does not hold a valid payload
+     */
+    public static BinarySearchTree readCompact(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(8);
+        if (header.length < 8) {
+            throw new EOFException("Truncated compact BST header");
+        }
+        if (getIntLE(header, 0) != COMPACT_MAGIC) {
+            throw new IOException("Not a compact BST payload (bad magic)");
+        }
+        if (getIntLE(header, 4) != COMPACT_VERSION) {
+            throw new IOException("Unsupported compact BST version " + getIntLE(header, 4));
+        }
+        long count = readVarint(in);
+        long length = readVarint(in);
+        // Every value takes one to five bytes
+        if (count > Integer.MAX_VALUE || length < count || length > 5 * count) {
+            throw new IOException("Corrupt compact BST payload (" + count + " values in " + length + " bytes)");
+        }
+        
+        CompactDecoder decoder = new CompactDecoder(in, length);
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.root = tree.readBalanced(decoder, (int) count);
+        tree.depthCounts = balancedDepthCounts((int) count);
+        if (!decoder.finished()) {
+            throw new IOException("Corrupt compact BST payload (body longer than its values)");
+        }
+        return tree;
+    }
+    
+    private static final int COMPACT_MAGIC = 0x42535456; // "BSTV"
+    private static final int COMPACT_VERSION = 1;
+    
+    /**
+     * Build a balanced subtree of count values taken in order from decoder
+     * Same shape as buildBalanced; the left subtree is built before its
+     * root's value is read. Recursion depth is O(log n).
+     */
+    private TreeNode readBalanced(CompactDecoder decoder, int count) throws IOException {
+        if (count == 0) {
+            return null;
+        }
+        int leftCount = count / 2;
+        TreeNode left = readBalanced(decoder, leftCount);
+        TreeNode node = newNode(decoder.nextValue());
+        node.left = left;
+        node.right = readBalanced(decoder, count - leftCount - 1);
+        node.size = count;
+        updateMetadata(node);
+        return node;
+    }
+    
+    /**
+     * Pulls a compact body from a stream in bulk chunks and decodes its gaps
+     */
+    private static final class CompactDecoder {
+        private final InputStream in;
+        private final byte[] buffer;
+        private long unread; // body bytes not fetched yet
+        private int position;
+        private int limit;
+        private long previous;
+        private boolean first = true;
+        
+        CompactDecoder(InputStream in, long length) {
+            this.in = in;
+            this.buffer = new byte[(int) Math.min(length, 1 << 16)];
+            this.unread = length;
+        }
+        
+        int nextValue() throws IOException {
+            long raw = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 28) {
+                    throw new IOException("Corrupt compact BST payload (varint too long)");
+                }
+                int b = nextByte();
+                raw |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (raw > 0xffffffffL) {
+                throw new IOException("Corrupt compact BST payload (value out of range)");
+            }
+            long value;
+            if (first) {
+                value = (int) (raw >>> 1) ^ -(int) (raw & 1);
+                first = false;
+            } else {
+                value = previous + raw + 1;
+                if (value > Integer.MAX_VALUE) {
+                    throw new IOException("Corrupt compact BST payload (value out of range)");
+                }
+            }
+            previous = value;
+            return (int) value;
+        }
+        
+        private byte nextByte() throws IOException {
+            if (position == limit) {
+                if (unread == 0) {
+                    throw new IOException("Corrupt compact BST payload (body shorter than its values)");
+                }
+                int chunk = (int) Math.min(unread, buffer.length);
+                if (in.readNBytes(buffer, 0, chunk) < chunk) {
+                    throw new EOFException("Truncated compact BST payload");
+                }
+                unread -= chunk;
+                position = 0;
+                limit = chunk;
+            }
+            return buffer[position++];
+        }
+        
+        boolean finished() {
+            return position == limit && unread == 0;
+        }
+    }
+    
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xffffffffL;
+    }
+    
+    private static int varintLength(long value) {
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+    
+    private static int putVarint(byte[] buffer, int position, long value) {
+        while (value >= 0x80) {
+            buffer[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+    
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated compact BST header");
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt compact BST header (varint too long)");
+    }
+    
+    private static int putIntLE(byte[] buffer, int position, int value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+        return position;
+    }
+    
+    private static int getIntLE(byte[] buffer, int position) {
+        return (buffer[position] & 0xff) | (buffer[position + 1] & 0xff) << 8
+             | (buffer[position + 2] & 0xff) << 16 | (buffer[position + 3] & 0xff) << 24;
+    }
+    
+    /**
+     * Build an immutable, cache-friendly search index of the current values
+     * Later changes to this tree are not reflected in the index
+     * @return a frozen copy in Eytzinger layout
+     */
+    public FrozenBinarySearchTree freeze() {
+        return FrozenBinarySearchTree.fromSorted(inorderArray());
+    }
+    
+    /**
+     * Drop repeated values from a sorted prefix of an array
+     * @param sorted ascending values
+     * @param length number of leading entries to consider
+     * @return an array holding each distinct value once, in order
+     */
+    private static int[] distinctSorted(int[] sorted, int length) {
+        int count = 0;
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) {
+            if (count == 0 || sorted[i] != result[count - 1]) {
+                result[count++] = sorted[i];
+            }
+        }
+        return count == length ? result : Arrays.copyOf(result, count);
+    }
+    
+    /**
+     * Build a balanced subtree from a range of strictly increasing values
+     * Recursion depth is O(log n), so this is stack-safe for any size
+     * @param values strictly increasing values
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return root of the subtree, or null for an empty range
+     */
+    private TreeNode buildBalanced(int[] values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        TreeNode node = newNode(values[mid]);
+        node.left = buildBalanced(values, from, mid);
+        node.right = buildBalanced(values, mid + 1, to);
+        node.size = to - from;
+        updateMetadata(node);
+        return node;
+    }
+    
+    /**
+     * Depth histogram of a tree built by buildBalanced or readBalanced
+     * Halving every range fills each level but the last, so the histogram
+     * follows from the count alone, in O(log n)
+     * @param count number of nodes
+     * @return counts indexed by depth
+     */
+    private static int[] balancedDepthCounts(int count) {
+        int[] counts = new int[Math.max(16, 33 - Integer.numberOfLeadingZeros(count))];
+        int remaining = count;
+        for (int depth = 0; remaining > 0; depth++) {
+            counts[depth] = Math.min(1 << depth, remaining);
+            remaining -= counts[depth];
+        }
+        return counts;
+    }
+    
+    /**
+     * Combined size at or above which set operations recurse in parallel
+     */
+    private static final int SET_OPERATION_GRAIN = 1 << 13;
+    
+    /**
+     * Weight-balance parameter for join: each side of a node should carry at
+     * least 29% of its weight (size + 1)
+     */
+    private static final int BALANCE_PERCENT = 29;
+    
+    /**
+     * Compute the union of this tree and another as a new tree
+     * Built from split and join on a ForkJoinPool, so the work is
+     * O(m log(n/m + 1)) for balanced inputs of sizes m <= n, and the two
+     * halves of every split are merged in parallel. Neither input changes;
+     * the result shares untouched subtrees with them.
+     * @param other the tree to merge with
+     * @return a new tree holding every value in either tree
+     */
+    public BinarySearchTree union(BinarySearchTree other) {
+        return setOperation(other, BinarySearchTree::union);
+    }
+    
+    /**
+     * Compute the intersection of this tree and another as a new tree
+     * Same cost and sharing as {@link #union}
+     * @param other the tree to intersect with
+     * @return a new tree holding the values present in both trees
+     */
+    public BinarySearchTree intersect(BinarySearchTree other) {
+        return setOperation(other, BinarySearchTree::intersect);
+    }
+    
+    /**
+     * Compute the values of this tree that are not in another as a new tree
+     * Same cost and sharing as {@link #union}
+     * @param other the tree whose values to remove
+     * @return a new tree holding this tree's values minus the other's
+     */
+    public BinarySearchTree difference(BinarySearchTree other) {
+        return setOperation(other, BinarySearchTree::difference);
+    }
+    
+    /**
+     * Run a set operation over consistent views of both trees
+     * @param other the second operand
+     * @param operation the node-level operation
+     * @return a new writable tree holding the result
+     */
+    private BinarySearchTree setOperation(BinarySearchTree other, SetOperation operation) {
+        TreeNode a = balancedOperand();
+        TreeNode b = other.balancedOperand();
+        BinarySearchTree result = new BinarySearchTree();
+        result.root = ForkJoinPool.commonPool().invoke(new SetOperationTask(operation, a, b, result.owner));
+        result.depthCounts = null;
+        return result;
+    }
+    
+    /**
+     * Root of an immutable view of this tree that split and join can recurse
+     * over; a degenerate tree is rebuilt balanced so the recursion stays
+     * O(log n) deep
+     * @return root of the view, never changed in place again
+     */
+    private TreeNode balancedOperand() {
+        BinarySearchTree view = snapshot();
+        int log2 = 32 - Integer.numberOfLeadingZeros(view.size());
+        if (view.tombstones == 0 && view.height() <= 3 * log2) {
+            return view.root;
+        }
+        return fromSorted(view.inorderArray()).root;
+    }
+    
+    /**
+     * A set operation over two immutable subtrees
+     */
+    @FunctionalInterface
+    private interface SetOperation {
+        TreeNode apply(TreeNode a, TreeNode b, Object owner);
+    }
+    
+    /**
+     * Runs one side of a split as a ForkJoin task
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks are never serialized
+    private static final class SetOperationTask extends RecursiveTask<TreeNode> {
+        private final SetOperation operation;
+        private final TreeNode a;
+        private final TreeNode b;
+        private final Object owner;
+        
+        SetOperationTask(SetOperation operation, TreeNode a, TreeNode b, Object owner) {
+            this.operation = operation;
+            this.a = a;
+            this.b = b;
+            this.owner = owner;
+        }
+        
+        @Override
+        protected TreeNode compute() {
+            return operation.apply(a, b, owner);
+        }
+    }
+    
+    /**
+     * Apply an operation to the left and right halves of a split, forking
+     * the left half when the inputs are large enough to be worth it
+     * @return the two results, left then right
+     */
+    private static TreeNode[] applyToHalves(SetOperation operation, TreeNode aLeft, TreeNode bLeft,
+                                            TreeNode aRight, TreeNode bRight, Object owner) {
+        if (sizeOf(aLeft) + sizeOf(bLeft) + sizeOf(aRight) + sizeOf(bRight) < SET_OPERATION_GRAIN) {
+            return new TreeNode[]{operation.apply(aLeft, bLeft, owner), operation.apply(aRight, bRight, owner)};
+        }
+        SetOperationTask left = new SetOperationTask(operation, aLeft, bLeft, owner);
+        left.fork();
+        TreeNode right = operation.apply(aRight, bRight, owner);
+        return new TreeNode[]{left.join(), right};
+    }
+    
+    private static TreeNode union(TreeNode a, TreeNode b, Object owner) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        Split split = split(b, a.value, owner);
+        TreeNode[] halves = applyToHalves(BinarySearchTree::union, a.left, split.left, a.right, split.right, owner);
+        return join(halves[0], a.value, halves[1], owner);
+    }
+    
+    private static TreeNode intersect(TreeNode a, TreeNode b, Object owner) {
+        if (a == null || b == null) {
+            return null;
+        }
+        Split split = split(b, a.value, owner);
+        TreeNode[] halves = applyToHalves(BinarySearchTree::intersect, a.left, split.left, a.right, split.right, owner);
+        return split.found ? join(halves[0], a.value, halves[1], owner) : join2(halves[0], halves[1], owner);
+    }
+    
+    private static TreeNode difference(TreeNode a, TreeNode b, Object owner) {
+        if (a == null) {
+            return null;
+        }
+        if (b == null) {
+            return a;
+        }
+        Split split = split(a, b.value, owner);
+        TreeNode[] halves = applyToHalves(BinarySearchTree::difference, split.left, b.left, split.right, b.right, owner);
+        return join2(halves[0], halves[1], owner);
+    }
+    
+    /**
+     * Result of splitting a tree around a key
+     */
+    private static final class Split {
+        final TreeNode left;   // values below the key
+        final boolean found;   // whether the key itself was present
+        final TreeNode right;  // values above the key
+        
+        Split(TreeNode left, boolean found, TreeNode right) {
+            this.left = left;
+            this.found = found;
+            this.right = right;
+        }
     }
     
     /**
-     * Helper method for insertion
-     * @param node current node
-     * @param value value to insert
-     * @return the updated node
+     * Split a tree into the values below and above a key, without changing it
+     * O(height): only the nodes on the search path are rebuilt
+     * @param node root of the tree to split
+     * @param key the split key
+     * @param owner owner token for new nodes
+     * @return the two sides and whether key was present
      */
-    private TreeNode insertNode(TreeNode node, int value) {
-        // Base case: create new node
+    private static Split split(TreeNode node, int key, Object owner) {
         if (node == null) {
-            return new TreeNode(value);
+            return new Split(null, false, null);
         }
-        
-        // Recursive case: traverse to appropriate position
-        if (value < node.value) {
-            node.left = insertNode(node.left, value);
-        } else if (value > node.value) {
-            node.right = insertNode(node.right, value);
+        if (key == node.value) {
+            return new Split(node.left, true, node.right);
         }
-        // If value == node.value, do nothing (no duplicates)
-        
-        return node;
+        if (key < node.value) {
+            Split split = split(node.left, key, owner);
+            return new Split(split.left, split.found, join(split.right, node.value, node.right, owner));
+        }
+        Split split = split(node.right, key, owner);
+        return new Split(join(node.left, node.value, split.left, owner), split.found, split.right);
     }
     
     /**
-     * Search for a value in the BST
-     * @param value the value to search for
-     * @return true if found, false otherwise
+     * Join two trees whose values are all below and all above a key
+     * Descends the heavier tree's inner spine to a subtree of comparable
+     * weight, links there and rotates back into weight balance on the way up
+     * @param left values below key
+     * @param key the middle value
+     * @param right values above key
+     * @param owner owner token for new nodes
+     * @return root of the joined tree
      */
-    public boolean search(int value) {
-        return searchNode(root, value);
+    private static TreeNode join(TreeNode left, int key, TreeNode right, Object owner) {
+        if (heavier(left, right)) {
+            return joinRight(left, key, right, owner);
+        }
+        if (heavier(right, left)) {
+            return joinLeft(left, key, right, owner);
+        }
+        return node(left, key, right, owner);
     }
     
-    /**
-     * Helper method for search
-     * @param node current node
-     * @param value value to search for
-     * @return true if found, false otherwise
-     */
-    private boolean searchNode(TreeNode node, int value) {
-        // Base case: value not found
-        if (node == null) {
-            return false;
+    private static TreeNode joinRight(TreeNode left, int key, TreeNode right, Object owner) {
+        if (!heavier(left, right)) {
+            return node(left, key, right, owner);
         }
-        
-        // Base case: value found
-        if (value == node.value) {
-            return true;
+        TreeNode joined = joinRight(left.right, key, right, owner);
+        if (balanced(left.left, joined)) {
+            return node(left.left, left.value, joined, owner);
         }
-        
-        // Recursive case: traverse based on comparison
-        if (value < node.value) {
-            return searchNode(node.left, value);
+        if (joined.left == null || balanced(left.left, joined.left) && balancedWeights(weight(left.left) + weight(joined.left),
+                                                              weight(joined.right))) {
+            // Single rotation to the left
+            return node(node(left.left, left.value, joined.left, owner), joined.value, joined.right, owner);
         }
-        return searchNode(node.right, value);
+        // Double rotation: right at joined, then left
+        TreeNode pivot = joined.left;
+        return node(node(left.left, left.value, pivot.left, owner), pivot.value,
+                    node(pivot.right, joined.value, joined.right, owner), owner);
     }
     
-    /**
-     * Delete a value from the BST
-     * @param value the value to delete
-     */
-    public void delete(int value) {
-        root = deleteNode(root, value);
+    private static TreeNode joinLeft(TreeNode left, int key, TreeNode right, Object owner) {
+        if (!heavier(right, left)) {
+            return node(left, key, right, owner);
+        }
+        TreeNode joined = joinLeft(left, key, right.left, owner);
+        if (balanced(joined, right.right)) {
+            return node(joined, right.value, right.right, owner);
+        }
+        if (joined.right == null || balanced(joined.right, right.right) && balancedWeights(weight(joined.right) + weight(right.right),
+                                                                  weight(joined.left))) {
+            // Single rotation to the right
+            return node(joined.left, joined.value, node(joined.right, right.value, right.right, owner), owner);
+        }
+        // Double rotation: left at joined, then right
+        TreeNode pivot = joined.right;
+        return node(node(joined.left, joined.value, pivot.left, owner), pivot.value,
+                    node(pivot.right, right.value, right.right, owner), owner);
     }
     
     /**
-     * Helper method for deletion
-     * @param node current node
-     * @param value value to delete
-     * @return the updated node
+     * Join two trees whose values are all below and all above each other
+     * @param left values below every value of right
+     * @param right values above every value of left
+     * @param owner owner token for new nodes
+     * @return root of the joined tree
      */
-    private TreeNode deleteNode(TreeNode node, int value) {
-        // Base case: value not found
-        if (node == null) {
-            return null;
+    private static TreeNode join2(TreeNode left, TreeNode right, Object owner) {
+        if (left == null) {
+            return right;
         }
-        
-        // Recursive case: traverse to find the node
-        if (value < node.value) {
-            node.left = deleteNode(node.left, value);
-        } else if (value > node.value) {
-            node.right = deleteNode(node.right, value);
-        } else {
-            // Node found, handle deletion based on children
-            if (node.left == null) {
-                return node.right;
-            } else if (node.right == null) {
-                return node.left;
-            }
-            
-            // Node has two children: find inorder successor
-            TreeNode minNode = findMin(node.right);
-            node.value = minNode.value;
-            node.right = deleteNode(node.right, minNode.value);
+        if (right == null) {
+            return left;
         }
-        
-        return node;
+        // Use the largest value of left as the middle key
+        TreeNode[] rest = new TreeNode[1];
+        int last = splitLast(left, rest, owner);
+        return join(rest[0], last, right, owner);
     }
     
     /**
-     * Find the minimum value node in a subtree
-     * @param node the root of the subtree
-     * @return the minimum value node
+     * Remove the largest value of a non-empty tree, without changing it
+     * @param node root of the tree
+     * @param rest receives the remaining tree
+     * @param owner owner token for new nodes
+     * @return the largest value
      */
-    private TreeNode findMin(TreeNode node) {
-        while (node.left != null) {
-            node = node.left;
+    private static int splitLast(TreeNode node, TreeNode[] rest, Object owner) {
+        if (node.right == null) {
+            rest[0] = node.left;
+            return node.value;
         }
+        int last = splitLast(node.right, rest, owner);
+        rest[0] = join(node.left, node.value, rest[0], owner);
+        return last;
+    }
+    
+    /**
+     * Create a node owned by the result of a set operation
+     */
+    private static TreeNode node(TreeNode left, int value, TreeNode right, Object owner) {
+        TreeNode node = new TreeNode(value);
+        node.owner = owner;
+        node.left = left;
+        node.right = right;
+        node.size = sizeOf(left) + sizeOf(right) + 1;
+        updateMetadata(node);
         return node;
     }
     
+    private static long weight(TreeNode node) {
+        return sizeOf(node) + 1L;
+    }
+    
+    private static boolean balancedWeights(long a, long b) {
+        long percent = BALANCE_PERCENT * (a + b);
+        return 100 * a >= percent && 100 * b >= percent;
+    }
+    
+    private static boolean balanced(TreeNode a, TreeNode b) {
+        return balancedWeights(weight(a), weight(b));
+    }
+    
+    /**
+     * Check whether a is too heavy to sit beside b under one node
+     */
+    private static boolean heavier(TreeNode a, TreeNode b) {
+        return 100 * weight(b) < BALANCE_PERCENT * (weight(a) + weight(b));
+    }
+    
     /**
      * Perform inorder traversal (left, root, right)
      * @return list of values in inorder
      */
     public List<Integer> inorderTraversal() {
-        List<Integer> result = new ArrayList<>();
-        inorderHelper(root, result);
+        List<Integer> result = new ArrayList<>(size());
+        inorderTraversal(result::add);
         return result;
     }
     
     /**
-     * Helper method for inorder traversal
-     * @param node current node
-     * @param result list to store results
+     * Perform inorder traversal without boxing
+     * @return array of values in inorder
+     */
+    public int[] inorderArray() {
+        IntArrayCollector collector = new IntArrayCollector(size());
+        inorderTraversal(collector);
+        return collector.values;
+    }
+    
+    /**
+     * Visit every value in inorder (left, root, right) without boxing
+     * @param visitor receives each value in ascending order
      */
-    private void inorderHelper(TreeNode node, List<Integer> result) {
-        if (node != null) {
-            inorderHelper(node.left, result);
-            result.add(node.value);
-            inorderHelper(node.right, result);
+    public void inorderTraversal(IntConsumer visitor) {
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode node = root;
+        
+        while (node != null || !stack.isEmpty()) {
+            // Walk down the left spine, remembering the way back
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            if (tombstones == 0 || isLive(node)) {
+                visitor.accept(node.value);
+            }
+            node = node.right;
         }
     }
     
+    /**
+     * Iterate over the values in ascending order without boxing
+     * Holds only the current root-to-node path. The tree must not be modified
+     * while iterating; iterate over a {@link #snapshot()} to read concurrently
+     * with writes.
+     * @return a primitive in-order iterator
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new InorderIterator(root, tombstones > 0);
+    }
+    
+    /**
+     * Stream the values in ascending order
+     * Backed by {@link #spliterator()}, so {@code intStream().parallel()}
+     * splits the work across cores without first copying the tree. The tree
+     * must not be modified while the stream runs; stream a
+     * {@link #snapshot()} to read concurrently with writes.
+     * @return a sequential IntStream of the values
+     */
+    public IntStream intStream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+    
+    /**
+     * Create a spliterator over the values in ascending order
+     * Splits by rank using the subtree sizes, so every split is O(1) and
+     * exactly halves the remaining values whatever the tree's shape. Each
+     * piece descends to its first value in O(height) when traversal starts.
+     * @return a sized, sorted, splittable spliterator
+     */
+    public Spliterator.OfInt spliterator() {
+        return new RankSpliterator(root, 0, size(), tombstones > 0);
+    }
+    
     /**
      * Perform preorder traversal (root, left, right)
      * @return list of values in preorder
      */
     public List<Integer> preorderTraversal() {
-        List<Integer> result = new ArrayList<>();
-        preorderHelper(root, result);
+        List<Integer> result = new ArrayList<>(size());
+        preorderTraversal(result::add);
         return result;
     }
     
     /**
-     * Helper method for preorder traversal
-     * @param node current node
-     * @param result list to store results
+     * Perform preorder traversal without boxing
+     * @return array of values in preorder
      */
-    private void preorderHelper(TreeNode node, List<Integer> result) {
-        if (node != null) {
-            result.add(node.value);
-            preorderHelper(node.left, result);
-            preorderHelper(node.right, result);
+    public int[] preorderArray() {
+        IntArrayCollector collector = new IntArrayCollector(size());
+        preorderTraversal(collector);
+        return collector.values;
+    }
+    
+    /**
+     * Visit every value in preorder (root, left, right) without boxing
+     * @param visitor receives each value
+     */
+    public void preorderTraversal(IntConsumer visitor) {
+        if (root == null) {
+            return;
+        }
+        
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            if (tombstones == 0 || isLive(node)) {
+                visitor.accept(node.value);
+            }
+            
+            // Push right first so the left subtree is visited first
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
         }
     }
     
@@ -204,21 +2203,46 @@ public class BinarySearchTree {
      * @return list of values in postorder
      */
     public List<Integer> postorderTraversal() {
-        List<Integer> result = new ArrayList<>();
-        postorderHelper(root, result);
+        List<Integer> result = new ArrayList<>(size());
+        postorderTraversal(result::add);
         return result;
     }
     
     /**
-     * Helper method for postorder traversal
-     * @param node current node
-     * @param result list to store results
+     * Perform postorder traversal without boxing
+     * @return array of values in postorder
+     */
+    public int[] postorderArray() {
+        IntArrayCollector collector = new IntArrayCollector(size());
+        postorderTraversal(collector);
+        return collector.values;
+    }
+    
+    /**
+     * Visit every value in postorder (left, right, root) without boxing
+     * @param visitor receives each value
      */
-    private void postorderHelper(TreeNode node, List<Integer> result) {
-        if (node != null) {
-            postorderHelper(node.left, result);
-            postorderHelper(node.right, result);
-            result.add(node.value);
+    public void postorderTraversal(IntConsumer visitor) {
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode lastVisited = null;
+        TreeNode node = root;
+        
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            
+            TreeNode top = stack.peek();
+            if (top.right != null && top.right != lastVisited) {
+                // Right subtree not done yet
+                node = top.right;
+            } else {
+                if (tombstones == 0 || isLive(top)) {
+                    visitor.accept(top.value);
+                }
+                lastVisited = stack.pop();
+            }
         }
     }
     
@@ -227,17 +2251,38 @@ public class BinarySearchTree {
      * @return list of values in level-order
      */
     public List<Integer> levelOrderTraversal() {
-        List<Integer> result = new ArrayList<>();
+        List<Integer> result = new ArrayList<>(size());
+        levelOrderTraversal(result::add);
+        return result;
+    }
+    
+    /**
+     * Perform level-order traversal without boxing
+     * @return array of values in level-order
+     */
+    public int[] levelOrderArray() {
+        IntArrayCollector collector = new IntArrayCollector(size());
+        levelOrderTraversal(collector);
+        return collector.values;
+    }
+    
+    /**
+     * Visit every value in level-order (breadth-first) without boxing
+     * @param visitor receives each value
+     */
+    public void levelOrderTraversal(IntConsumer visitor) {
         if (root == null) {
-            return result;
+            return;
         }
         
-        Queue<TreeNode> queue = new LinkedList<>();
+        Queue<TreeNode> queue = new ArrayDeque<>();
         queue.offer(root);
         
         while (!queue.isEmpty()) {
             TreeNode node = queue.poll();
-            result.add(node.value);
+            if (tombstones == 0 || isLive(node)) {
+                visitor.accept(node.value);
+            }
             
             if (node.left != null) {
                 queue.offer(node.left);
@@ -246,83 +2291,352 @@ public class BinarySearchTree {
                 queue.offer(node.right);
             }
         }
+    }
+    
+    /**
+     * Fills a presized int array from a traversal
+     */
+    private static class IntArrayCollector implements IntConsumer {
+        final int[] values;
+        int count;
         
-        return result;
+        IntArrayCollector(int size) {
+            this.values = new int[size];
+        }
+        
+        @Override
+        public void accept(int value) {
+            values[count++] = value;
+        }
     }
     
     /**
-     * Get the height of the tree
-     * @return the height of the tree
+     * In-order iterator over primitive values
+     * Keeps the pending left spine in a growable array instead of recursing
      */
-    public int height() {
-        return heightHelper(root);
+    private static class InorderIterator implements PrimitiveIterator.OfInt {
+        private TreeNode[] stack = new TreeNode[16];
+        private int depth;
+        private final boolean skipTombstones;
+        
+        InorderIterator(TreeNode root, boolean skipTombstones) {
+            this.skipTombstones = skipTombstones;
+            pushLeftSpine(root);
+            skipTombstones();
+        }
+        
+        /**
+         * Create an iterator whose first value is the one with the given rank
+         * @param root root of the tree
+         * @param rank number of values to skip, in [0, size)
+         * @param skipTombstones true if the tree has tombstones
+         */
+        InorderIterator(TreeNode root, int rank, boolean skipTombstones) {
+            this.skipTombstones = skipTombstones;
+            // Keep exactly the ancestors we descend left from: they are the
+            // values still to come, just like after pushing a left spine
+            TreeNode node = root;
+            while (node != null) {
+                int leftSize = sizeOf(node.left);
+                int own = skipTombstones ? ownCount(node) : 1;
+                if (rank < leftSize) {
+                    push(node);
+                    node = node.left;
+                } else if (rank < leftSize + own) {
+                    push(node);
+                    return;
+                } else {
+                    rank -= leftSize + own;
+                    node = node.right;
+                }
+            }
+        }
+        
+        /**
+         * Replace tombstones at the top of the stack by what follows them
+         */
+        private void skipTombstones() {
+            while (skipTombstones && depth > 0 && !isLive(stack[depth - 1])) {
+                TreeNode tombstone = stack[--depth];
+                stack[depth] = null;
+                pushLeftSpine(tombstone.right);
+            }
+        }
+        
+        private void push(TreeNode node) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = node;
+        }
+        
+        private void pushLeftSpine(TreeNode node) {
+            while (node != null) {
+                push(node);
+                node = node.left;
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+        
+        @Override
+        public int nextInt() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            TreeNode node = stack[--depth];
+            stack[depth] = null;
+            pushLeftSpine(node.right);
+            skipTombstones();
+            return node.value;
+        }
     }
     
     /**
-     * Helper method for calculating height
-     * @param node current node
-     * @return height of the subtree
+     * Spliterator over the in-order ranks [from, to) of a tree
      */
-    private int heightHelper(TreeNode node) {
-        if (node == null) {
-            return -1;
+    private static class RankSpliterator implements Spliterator.OfInt {
+        /** Below this many values a split costs more than it saves */
+        private static final int MIN_SPLIT = 1 << 10;
+        
+        private final TreeNode root;
+        private int from;
+        private final int to;
+        private final boolean skipTombstones;
+        private InorderIterator iterator; // created on first traversal
+        
+        RankSpliterator(TreeNode root, int from, int to, boolean skipTombstones) {
+            this.root = root;
+            this.from = from;
+            this.to = to;
+            this.skipTombstones = skipTombstones;
+        }
+        
+        @Override
+        public OfInt trySplit() {
+            int mid = (from + to) >>> 1;
+            if (iterator != null || mid - from < MIN_SPLIT) {
+                return null;
+            }
+            // Hand the lower half to the caller, keep the upper half
+            RankSpliterator prefix = new RankSpliterator(root, from, mid, skipTombstones);
+            from = mid;
+            return prefix;
+        }
+        
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from >= to) {
+                return false;
+            }
+            if (iterator == null) {
+                iterator = new InorderIterator(root, from, skipTombstones);
+            }
+            from++;
+            action.accept(iterator.nextInt());
+            return true;
+        }
+        
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (from >= to) {
+                return;
+            }
+            if (iterator == null) {
+                iterator = new InorderIterator(root, from, skipTombstones);
+            }
+            for (; from < to; from++) {
+                action.accept(iterator.nextInt());
+            }
+        }
+        
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+        
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL;
+        }
+        
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            // Natural order
+            return null;
         }
-        return 1 + Math.max(heightHelper(node.left), heightHelper(node.right));
+    }
+    
+    /**
+     * Get the height of the tree
+     * Kept up to date by every insert and delete, so this is O(1)
+     * @return the height of the tree
+     */
+    public int height() {
+        return root == null ? -1 : root.height;
     }
     
     /**
      * Check if the tree is balanced
+     * Every node tracks how many nodes below it have child heights that
+     * differ by more than one, so this is O(1)
      * @return true if balanced, false otherwise
      */
     public boolean isBalanced() {
-        return isBalancedHelper(root) != -1;
+        return root == null || root.unbalanced == 0;
     }
     
     /**
-     * Helper method for checking balance
-     * @param node current node
-     * @return -1 if unbalanced, otherwise returns height
+     * Get the number of nodes at each depth
+     * Inserts and leaf deletes keep the histogram current in O(1), a delete
+     * that lifts a subtree of up to 64 nodes re-levels it in O(subtree), and
+     * balanced rebuilds (fromSorted, readCompact, insertAll, compaction)
+     * compute it in O(log n). After a splay, a set operation or a delete
+     * lifting a larger subtree, the first call recounts it breadth-first in
+     * O(n) time and O(width) space; later calls are O(height) again.
+     * @return counts indexed by depth, from the root (depth 0) to height()
      */
-    private int isBalancedHelper(TreeNode node) {
-        if (node == null) {
-            return 0;
-        }
-        
-        int leftHeight = isBalancedHelper(node.left);
-        if (leftHeight == -1) {
-            return -1;
+    public int[] depthHistogram() {
+        int[] counts = depthCounts;
+        if (counts == null) {
+            counts = countDepths();
+            if (!readOnly) {
+                depthCounts = counts;
+                depthCountsShared = false;
+            }
         }
-        
-        int rightHeight = isBalancedHelper(node.right);
-        if (rightHeight == -1) {
-            return -1;
+        return Arrays.copyOf(counts, height() + 1);
+    }
+    
+    /**
+     * Count the nodes on each level breadth-first
+     * @return counts indexed by depth
+     */
+    private int[] countDepths() {
+        int[] counts = new int[Math.max(16, height() + 1)];
+        if (root == null) {
+            return counts;
         }
         
-        if (Math.abs(leftHeight - rightHeight) > 1) {
-            return -1;
+        Queue<TreeNode> queue = new ArrayDeque<>();
+        queue.offer(root);
+        int depth = 0;
+        while (!queue.isEmpty()) {
+            // Drain exactly one level per iteration
+            counts[depth] = queue.size();
+            for (int levelSize = queue.size(); levelSize > 0; levelSize--) {
+                TreeNode node = queue.poll();
+                if (node.left != null) {
+                    queue.offer(node.left);
+                }
+                if (node.right != null) {
+                    queue.offer(node.right);
+                }
+            }
+            depth++;
         }
-        
-        return 1 + Math.max(leftHeight, rightHeight);
+        return counts;
     }
     
     /**
      * Get the number of nodes in the tree
+     * Read from the root's subtree count, so this is O(1)
      * @return the size of the tree
      */
     public int size() {
-        return sizeHelper(root);
+        return sizeOf(root);
     }
     
     /**
-     * Helper method for calculating size
-     * @param node current node
-     * @return size of the subtree
+     * Size of a possibly empty subtree
+     * @param node the root of the subtree
+     * @return 0 for an empty subtree, otherwise the stored count
      */
-    private int sizeHelper(TreeNode node) {
-        if (node == null) {
+    private static int sizeOf(TreeNode node) {
+        return node == null ? 0 : node.size;
+    }
+    
+    /**
+     * Count the values strictly less than the given value
+     * Time Complexity: O(height)
+     * @param value the value to rank (need not be in the tree)
+     * @return number of values smaller than value
+     */
+    public int rank(int value) {
+        int rank = 0;
+        TreeNode node = root;
+        while (node != null) {
+            if (value <= node.value) {
+                node = node.left;
+            } else {
+                rank += sizeOf(node.left) + (tombstones == 0 ? 1 : ownCount(node));
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+    
+    /**
+     * Count the values less than or equal to the given value
+     * @param value the upper bound (inclusive)
+     * @return number of values not greater than value
+     */
+    private int countAtMost(int value) {
+        int count = 0;
+        TreeNode node = root;
+        while (node != null) {
+            if (value < node.value) {
+                node = node.left;
+            } else {
+                count += sizeOf(node.left) + (tombstones == 0 ? 1 : ownCount(node));
+                node = node.right;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Find the k-th smallest value (0-based), the inverse of rank
+     * Time Complexity: O(height)
+     * @param k index into the sorted order
+     * @return the value with exactly k smaller values in the tree
+     * @throws IndexOutOfBoundsException if k is not in [0, size())
+     */
+    public int select(int k) {
+        if (k < 0 || k >= size()) {
+            throw new IndexOutOfBoundsException("k=" + k + ", size=" + size());
+        }
+        
+        TreeNode node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            int own = tombstones == 0 ? 1 : ownCount(node);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k < leftSize + own) {
+                return node.value;
+            } else {
+                k -= leftSize + own;
+                node = node.right;
+            }
+        }
+    }
+    
+    /**
+     * Count the values in the closed range [lo, hi]
+     * Time Complexity: O(height)
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (inclusive)
+     * @return number of values v with lo <= v <= hi, 0 if lo > hi
+     */
+    public int countInRange(int lo, int hi) {
+        if (lo > hi) {
             return 0;
         }
-        return 1 + sizeHelper(node.left) + sizeHelper(node.right);
+        return countAtMost(hi) - rank(lo);
     }
     
     /**
@@ -330,53 +2644,153 @@ public class BinarySearchTree {
      * @return true if empty, false otherwise
      */
     public boolean isEmpty() {
-        return root == null;
+        return size() == 0;
     }
     
     /**
      * Clear all nodes from the tree
      */
     public void clear() {
+        ensureWritable();
+        cancelCompaction();
+        modifications++;
         root = null;
+        tombstones = 0;
+        depthCounts = new int[16];
+        depthCountsShared = false;
     }
     
     /**
      * Get a string representation of the tree
+     * Preorder with two spaces of indentation per level, see writeTo
      * @return string representation
      */
     @Override
     public String toString() {
-        if (root == null) {
-            return "Empty BST";
+        StringBuilder result = new StringBuilder();
+        try {
+            writeTo(result, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw", e);
         }
-        return stringHelper(root, 0);
+        return result.toString();
     }
     
     /**
-     * Helper method for creating string representation
-     * @param node current node
-     * @param depth current depth
-     * @return string representation of the subtree
+     * Stream the tree as indented preorder text, one node per line
+     * Nothing is buffered: memory stays bounded by the traversal stack,
+     * O(min(height, maxDepth)), however many nodes are written. A node whose
+     * children lie below maxDepth is marked with "...", and after maxNodes
+     * lines a final "..." line marks the cut. Tombstones left by lazy
+     * deletion are marked "(deleted)". Wrap an unbuffered Writer in a
+     * BufferedWriter.
+     * @param out destination
+     * @param maxDepth deepest level to write (the root is level 0)
+     * @param maxNodes most nodes to write
+     * @throws IOException if out throws
      */
-    private String stringHelper(TreeNode node, int depth) {
-        if (node == null) {
-            return "";
+    public void writeTo(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        if (root == null) {
+            out.append("Empty BST");
+            return;
         }
-        
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < depth; i++) {
-            result.append("  ");
+        render(out, maxDepth, maxNodes, false);
+    }
+    
+    /**
+     * Stream the tree as a Graphviz DOT digraph
+     * Edges leave the south-west corner of a node for a left child and the
+     * south-east corner for a right child. Nodes whose children lie below
+     * maxDepth are drawn dashed, tombstones in gray; a comment marks a cut at
+     * maxNodes. Memory is bounded as in writeTo.
+     * @param out destination
+     * @param maxDepth deepest level to write (the root is level 0)
+     * @param maxNodes most nodes to write
+     * @throws IOException if out throws
+     */
+    public void writeDot(Appendable out, int maxDepth, int maxNodes) throws IOException {
+        out.append("digraph BST {\n");
+        out.append("  node [shape=circle];\n");
+        if (root != null) {
+            render(out, maxDepth, maxNodes, true);
         }
-        result.append(node.value).append("\n");
+        out.append("}\n");
+    }
+    
+    /**
+     * Preorder walk shared by writeTo and writeDot
+     * The stack holds each pending node with its depth and its parent's
+     * value, which DOT edges need
+     */
+    private void render(Appendable out, int maxDepth, int maxNodes, boolean dot) throws IOException {
+        TreeNode[] nodes = new TreeNode[16];
+        int[] depths = new int[16];
+        int[] parents = new int[16];
+        nodes[0] = root;
+        int pending = 1;
+        int written = 0;
         
-        if (node.left != null) {
-            result.append(stringHelper(node.left, depth + 1));
-        }
-        if (node.right != null) {
-            result.append(stringHelper(node.right, depth + 1));
+        while (pending > 0) {
+            if (written == maxNodes) {
+                out.append(dot ? "  // ... more nodes not shown\n" : "...\n");
+                return;
+            }
+            pending--;
+            TreeNode node = nodes[pending];
+            int depth = depths[pending];
+            int parent = parents[pending];
+            nodes[pending] = null;
+            written++;
+            
+            boolean hasChildren = node.left != null || node.right != null;
+            boolean cut = hasChildren && depth >= maxDepth;
+            boolean deleted = tombstones > 0 && !isLive(node);
+            if (dot) {
+                out.append("  \"").append(String.valueOf(node.value)).append('"');
+                if (cut && deleted) {
+                    out.append(" [style=dashed, fontcolor=gray]");
+                } else if (cut) {
+                    out.append(" [style=dashed]");
+                } else if (deleted) {
+                    out.append(" [fontcolor=gray]");
+                }
+                out.append(";\n");
+                if (depth > 0) {
+                    out.append("  \"").append(String.valueOf(parent)).append("\" -> \"")
+                       .append(String.valueOf(node.value)).append('"')
+                       .append(node.value < parent ? " [tailport=sw]" : " [tailport=se]").append(";\n");
+                }
+            } else {
+                for (int i = 0; i < depth; i++) {
+                    out.append("  ");
+                }
+                out.append(String.valueOf(node.value));
+                if (deleted) {
+                    out.append(" (deleted)");
+                }
+                out.append(cut ? " ...\n" : "\n");
+            }
+            if (cut) {
+                continue;
+            }
+            
+            if (pending + 2 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                depths = Arrays.copyOf(depths, depths.length * 2);
+                parents = Arrays.copyOf(parents, parents.length * 2);
+            }
+            // Right first, so the left subtree is written first
+            if (node.right != null) {
+                nodes[pending] = node.right;
+                depths[pending] = depth + 1;
+                parents[pending++] = node.value;
+            }
+            if (node.left != null) {
+                nodes[pending] = node.left;
+                depths[pending] = depth + 1;
+                parents[pending++] = node.value;
+            }
         }
-        
-        return result.toString();
     }
     
     /**
@@ -397,6 +2811,14 @@ public class BinarySearchTree {
         System.out.println("\nTree structure:");
         System.out.print(bst.toString());
         
+        // Streaming DOT export, cut off below the second level
+        System.out.println("\nDOT export, two levels:");
+        try {
+            bst.writeDot(System.out, 1, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
         // Perform traversals
         System.out.println("Inorder traversal: " + bst.inorderTraversal());
         System.out.println("Preorder traversal: " + bst.preorderTraversal());
@@ -413,12 +2835,72 @@ public class BinarySearchTree {
         System.out.println("Height: " + bst.height());
         System.out.println("Size: " + bst.size());
         System.out.println("Is balanced: " + bst.isBalanced());
+        System.out.println("Depth histogram: " + Arrays.toString(bst.depthHistogram()));
         System.out.println("Is empty: " + bst.isEmpty());
         
+        // Order statistics
+        System.out.println("\nOrder statistics:");
+        System.out.println("Rank of 40: " + bst.rank(40));
+        System.out.println("Median: " + bst.select(bst.size() / 2));
+        System.out.println("Values in [25, 45]: " + bst.countInRange(25, 45));
+        
+        // Snapshots keep a consistent view while the tree keeps changing
+        BinarySearchTree snapshot = bst.snapshot();
+        
         // Delete operations
         System.out.println("\nDeleting 30:");
         bst.delete(30);
         System.out.println("Inorder after deletion: " + bst.inorderTraversal());
         System.out.println("Size after deletion: " + bst.size());
+        System.out.println("Snapshot taken before deletion: " + snapshot.inorderTraversal());
+        
+        // Adaptive mode splays each searched key to the root
+        System.out.println("\nOther lookups:");
+        bst.setAdaptive(true);
+        bst.search(45);
+        System.out.println("Root after an adaptive search for 45: " + bst.root.value);
+        bst.setAdaptive(false);
+        
+        // One pass answers a whole batch of lookups
+        System.out.println("searchAll [10, 30, 45, 90]: "
+                           + Arrays.toString(bst.searchAll(new int[]{10, 30, 45, 90})));
+        
+        // Compact wire format: gaps between sorted values as varints
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try {
+            bst.writeCompact(wire);
+            BinarySearchTree decoded = readCompact(new ByteArrayInputStream(wire.toByteArray()));
+            System.out.println("Compact encoding: " + wire.size() + " bytes for " + bst.size()
+                               + " values, decoded " + decoded.inorderTraversal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        // A cursor resumes each lookup from the previous one
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        int found = 0;
+        for (int key = 0; key <= 80; key += 5) {
+            found += cursor.search(key) ? 1 : 0;
+        }
+        System.out.println("Cursor scan of 0, 5, ..., 80: " + found + " found");
+        
+        // Lazy deletion leaves tombstones until the tree is compacted
+        bst.setLazyDeletion(true);
+        bst.delete(50);
+        bst.delete(20);
+        System.out.println("\nLazily deleted 50 and 20: " + bst.inorderTraversal()
+                           + ", tombstones: " + bst.tombstones());
+        System.out.print(bst.toString());
+        bst.compact();
+        System.out.println("After compaction, tombstones: " + bst.tombstones());
+        
+        // Set operations build new trees and leave both operands unchanged
+        BinarySearchTree other = fromSorted(new int[]{5, 10, 25, 55, 80});
+        System.out.println("\nUnion with [5, 10, 25, 55, 80]: " + bst.union(other).inorderTraversal());
+        System.out.println("Intersection: " + bst.intersect(other).inorderTraversal());
+        System.out.println("Difference: " + bst.difference(other).inorderTraversal());
+        
+        // Streams split the tree by rank, so they run in parallel
+        System.out.println("Parallel sum: " + bst.intStream().parallel().asLongStream().sum());
     }
 }
@@ -0,0 +1,309 @@
+import java.util.Random;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Per-operation metrics for {@link BinarySearchTree}
+ * Records, for every insert, search and delete, the latency, the number of
+ * nodes visited, the number of key comparisons and the depth the operation
+ * reached, each into a lock-free log2 histogram. Operations slower than a
+ * threshold are also emitted as {@code bst.SlowOperation} JFR events, so a
+ * flight recording shows which values and tree shapes caused them.
+ *
+ * Instrumentation is available only when the JVM is started with
+ * {@code -Dbst.instrumentation=true}. Otherwise the tree's hooks sit behind a
+ * static final flag that the JIT folds away, so an uninstrumented tree pays
+ * nothing once compiled.
+ *
+ * Thread safe: one metrics object may be shared by several trees.
+ */
+public class BinarySearchTreeMetrics {
+
+    /**
+     * True when the JVM was started with -Dbst.instrumentation=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("bst.instrumentation");
+
+    /**
+     * Instrumented tree operations
+     */
+    public enum Operation {
+        INSERT, SEARCH, DELETE
+    }
+
+    /**
+     * Lock-free histogram with power-of-two buckets
+     * Bucket 0 counts zeros and bucket i counts values in [2^(i-1), 2^i)
+     */
+    public static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Get the number of recorded values
+         * @return the count
+         */
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * Get the mean of the recorded values
+         * @return the mean, or 0 if nothing was recorded
+         */
+        public double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * Get the largest recorded value
+         * @return the maximum, or 0 if nothing was recorded
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Estimate a percentile from the buckets
+         * @param percentile between 0 and 100
+         * @return upper bound of the bucket holding the percentile, capped at max()
+         */
+        public long percentile(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * n);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return i == 0 ? 0 : Math.min(max(), (1L << i) - 1);
+                }
+            }
+            return max();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, max=%d",
+                                 count(), mean(), percentile(50), percentile(99), max());
+        }
+    }
+
+    /**
+     * Histograms for one kind of operation
+     */
+    public static class OperationStats {
+        public final Histogram latencyNanos = new Histogram();
+        public final Histogram nodesVisited = new Histogram();
+        public final Histogram comparisons = new Histogram();
+        public final Histogram depth = new Histogram();
+
+        void reset() {
+            latencyNanos.reset();
+            nodesVisited.reset();
+            comparisons.reset();
+            depth.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("  latency ns:    %s%n  nodes visited: %s%n  comparisons:   %s%n  depth:         %s%n",
+                                 latencyNanos, nodesVisited, comparisons, depth);
+        }
+    }
+
+    /**
+     * JFR event for an operation slower than the configured threshold
+     */
+    @Name("bst.SlowOperation")
+    @Label("Slow BST Operation")
+    @Category({"Data Structures", "Binary Search Tree"})
+    @Description("An insert, search or delete that exceeded the slow-operation threshold")
+    @StackTrace(true)
+    static final class SlowOperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Value")
+        int value;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Nodes Visited")
+        int nodesVisited;
+
+        @Label("Comparisons")
+        int comparisons;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Tree Size")
+        int treeSize;
+
+        @Label("Tree Height")
+        int treeHeight;
+    }
+
+    private final OperationStats[] stats = new OperationStats[Operation.values().length];
+    private final long slowThresholdNanos;
+    private final LongAdder slowOperations = new LongAdder();
+
+    /**
+     * Constructor - emits JFR events for operations slower than 1 ms
+     */
+    public BinarySearchTreeMetrics() {
+        this(1_000_000);
+    }
+
+    /**
+     * Constructor
+     * @param slowThresholdNanos operations at least this slow emit a JFR event
+     */
+    public BinarySearchTreeMetrics(long slowThresholdNanos) {
+        this.slowThresholdNanos = slowThresholdNanos;
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new OperationStats();
+        }
+    }
+
+    /**
+     * Record one finished operation; called by the tree
+     * @param operation the kind of operation
+     * @param value the value operated on
+     * @param latencyNanos elapsed time
+     * @param nodesVisited nodes read or written
+     * @param comparisons key comparisons made
+     * @param depth depth of the node found, added or removed, or of the
+     *        last node on the path if the value was absent
+     * @param tree the tree, for size and height in slow-operation events
+     */
+    void record(Operation operation, int value, long latencyNanos, int nodesVisited, int comparisons,
+                int depth, BinarySearchTree tree) {
+        OperationStats operationStats = stats[operation.ordinal()];
+        operationStats.latencyNanos.record(latencyNanos);
+        operationStats.nodesVisited.record(nodesVisited);
+        operationStats.comparisons.record(comparisons);
+        operationStats.depth.record(depth);
+
+        if (latencyNanos >= slowThresholdNanos) {
+            slowOperations.increment();
+            SlowOperationEvent event = new SlowOperationEvent();
+            if (event.isEnabled()) {
+                event.operation = operation.name();
+                event.value = value;
+                event.latency = latencyNanos;
+                event.nodesVisited = nodesVisited;
+                event.comparisons = comparisons;
+                event.depth = depth;
+                event.treeSize = tree.size();
+                event.treeHeight = tree.height();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Get the histograms of one kind of operation
+     * @param operation the kind of operation
+     * @return live histograms, updated as operations run
+     */
+    public OperationStats get(Operation operation) {
+        return stats[operation.ordinal()];
+    }
+
+    /**
+     * Get the number of operations at or above the slow threshold
+     * @return the count, whether or not JFR was recording
+     */
+    public long slowOperations() {
+        return slowOperations.sum();
+    }
+
+    /**
+     * Clear every histogram
+     */
+    public void reset() {
+        for (OperationStats operationStats : stats) {
+            operationStats.reset();
+        }
+        slowOperations.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            result.append(operation).append(":\n").append(get(operation));
+        }
+        return result.append("slow operations: ").append(slowOperations()).append("\n").toString();
+    }
+
+    /**
+     * Main method for demonstration
+     * Run with -Dbst.instrumentation=true, and optionally
+     * -XX:StartFlightRecording=filename=bst.jfr to capture slow operations
+     */
+    public static void main(String[] args) {
+        if (!ENABLED) {
+            System.out.println("Instrumentation is off; run with -Dbst.instrumentation=true");
+            return;
+        }
+        BinarySearchTreeMetrics metrics = new BinarySearchTreeMetrics(100_000);
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.setMetrics(metrics);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            tree.insert(random.nextInt(1_000_000));
+        }
+        // A sorted run grows a long spine, which shows up in the depth histograms
+        for (int i = 0; i < 2_000; i++) {
+            tree.insert(2_000_000 + i);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            tree.search(random.nextInt(1_000_000));
+            tree.search(2_000_000 + random.nextInt(2_000));
+        }
+        for (int i = 0; i < 50_000; i++) {
+            tree.delete(random.nextInt(1_000_000));
+        }
+        System.out.print(metrics);
+    }
+}
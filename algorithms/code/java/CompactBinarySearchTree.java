@@ -0,0 +1,491 @@
+import java.util.*;
+
+/**
+ * Compact Binary Search Tree implementation in Java
+ * Same operations as BinarySearchTree, but nodes live in parallel int arrays
+ * (value, left, right) addressed by int index instead of as TreeNode objects.
+ * A node costs 12 bytes instead of a ~32 byte object, and the garbage
+ * collector traces a handful of array pages instead of one object per key.
+ */
+public class CompactBinarySearchTree {
+
+    /** Index used as the null link */
+    private static final int NIL = -1;
+
+    /** Nodes per page; storage grows one page at a time, never by copying */
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private int[][] values = new int[0][];
+    private int[][] lefts = new int[0][];
+    private int[][] rights = new int[0][];
+
+    private int root = NIL;
+    private int size;
+    private int allocated; // slots handed out so far, including freed ones
+    private int freeList = NIL; // freed slots, chained through the left array
+
+    /**
+     * Constructor - creates an empty tree
+     */
+    public CompactBinarySearchTree() {
+    }
+
+    private int value(int node) {
+        return values[node >>> PAGE_SHIFT][node & PAGE_MASK];
+    }
+
+    private int left(int node) {
+        return lefts[node >>> PAGE_SHIFT][node & PAGE_MASK];
+    }
+
+    private int right(int node) {
+        return rights[node >>> PAGE_SHIFT][node & PAGE_MASK];
+    }
+
+    private void setValue(int node, int value) {
+        values[node >>> PAGE_SHIFT][node & PAGE_MASK] = value;
+    }
+
+    private void setLeft(int node, int child) {
+        lefts[node >>> PAGE_SHIFT][node & PAGE_MASK] = child;
+    }
+
+    private void setRight(int node, int child) {
+        rights[node >>> PAGE_SHIFT][node & PAGE_MASK] = child;
+    }
+
+    /**
+     * Allocate a leaf node, reusing a freed slot when one is available
+     * @param value the value to store
+     * @return index of the new node
+     */
+    private int newNode(int value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            node = allocated++;
+            if ((node >>> PAGE_SHIFT) == values.length) {
+                addPage();
+            }
+        }
+        setValue(node, value);
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        return node;
+    }
+
+    /**
+     * Grow storage by one page of each array
+     */
+    private void addPage() {
+        int pages = values.length + 1;
+        values = Arrays.copyOf(values, pages);
+        lefts = Arrays.copyOf(lefts, pages);
+        rights = Arrays.copyOf(rights, pages);
+        values[pages - 1] = new int[PAGE_SIZE];
+        lefts[pages - 1] = new int[PAGE_SIZE];
+        rights[pages - 1] = new int[PAGE_SIZE];
+    }
+
+    /**
+     * Return a slot to the free list
+     * @param node index of the unlinked node
+     */
+    private void freeNode(int node) {
+        setLeft(node, freeList);
+        freeList = node;
+    }
+
+    /**
+     * Insert a new value into the tree
+     * @param value the value to insert
+     */
+    public void insert(int value) {
+        if (root == NIL) {
+            root = newNode(value);
+            size++;
+            return;
+        }
+
+        int node = root;
+        while (true) {
+            int nodeValue = value(node);
+            if (value < nodeValue) {
+                int child = left(node);
+                if (child == NIL) {
+                    setLeft(node, newNode(value));
+                    size++;
+                    return;
+                }
+                node = child;
+            } else if (value > nodeValue) {
+                int child = right(node);
+                if (child == NIL) {
+                    setRight(node, newNode(value));
+                    size++;
+                    return;
+                }
+                node = child;
+            } else {
+                // If value == node.value, do nothing (no duplicates)
+                return;
+            }
+        }
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        int node = root;
+        while (node != NIL) {
+            int nodeValue = value(node);
+            if (value == nodeValue) {
+                return true;
+            }
+            node = value < nodeValue ? left(node) : right(node);
+        }
+        return false;
+    }
+
+    /**
+     * Delete a value from the tree
+     * @param value the value to delete
+     */
+    public void delete(int value) {
+        int parent = NIL;
+        int node = root;
+        while (node != NIL && value != value(node)) {
+            parent = node;
+            node = value < value(node) ? left(node) : right(node);
+        }
+
+        // Value not found
+        if (node == NIL) {
+            return;
+        }
+
+        // Node has two children: copy the inorder successor up, then remove
+        // the successor instead (it has no left child)
+        if (left(node) != NIL && right(node) != NIL) {
+            int successorParent = node;
+            int successor = right(node);
+            while (left(successor) != NIL) {
+                successorParent = successor;
+                successor = left(successor);
+            }
+            setValue(node, value(successor));
+            parent = successorParent;
+            node = successor;
+        }
+
+        int child = left(node) != NIL ? left(node) : right(node);
+        if (parent == NIL) {
+            root = child;
+        } else if (left(parent) == node) {
+            setLeft(parent, child);
+        } else {
+            setRight(parent, child);
+        }
+        freeNode(node);
+        size--;
+    }
+
+    /**
+     * Perform inorder traversal (left, root, right)
+     * @return list of values in inorder
+     */
+    public List<Integer> inorderTraversal() {
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+            node = stack.pop();
+            result.add(value(node));
+            node = right(node);
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform preorder traversal (root, left, right)
+     * @return list of values in preorder
+     */
+    public List<Integer> preorderTraversal() {
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        if (root != NIL) {
+            stack.push(root);
+        }
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            result.add(value(node));
+            if (right(node) != NIL) {
+                stack.push(right(node));
+            }
+            if (left(node) != NIL) {
+                stack.push(left(node));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform postorder traversal (left, right, root)
+     * @return list of values in postorder
+     */
+    public List<Integer> postorderTraversal() {
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        int lastVisited = NIL;
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+
+            int top = stack.peek();
+            if (right(top) != NIL && right(top) != lastVisited) {
+                node = right(top);
+            } else {
+                result.add(value(top));
+                lastVisited = stack.pop();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform level-order traversal (breadth-first)
+     * @return list of values in level-order
+     */
+    public List<Integer> levelOrderTraversal() {
+        List<Integer> result = new ArrayList<>(size);
+        if (root == NIL) {
+            return result;
+        }
+
+        // Every node is enqueued exactly once, so a flat array is the queue
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+
+        while (head < tail) {
+            int node = queue[head++];
+            result.add(value(node));
+            if (left(node) != NIL) {
+                queue[tail++] = left(node);
+            }
+            if (right(node) != NIL) {
+                queue[tail++] = right(node);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the height of the tree
+     * @return the height of the tree, -1 for an empty tree
+     */
+    public int height() {
+        if (root == NIL) {
+            return -1;
+        }
+
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        int height = -1;
+
+        while (head < tail) {
+            // Drain exactly one level per iteration
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int node = queue[head++];
+                if (left(node) != NIL) {
+                    queue[tail++] = left(node);
+                }
+                if (right(node) != NIL) {
+                    queue[tail++] = right(node);
+                }
+            }
+            height++;
+        }
+
+        return height;
+    }
+
+    /**
+     * Check if the tree is balanced
+     * @return true if balanced, false otherwise
+     */
+    public boolean isBalanced() {
+        IntStack stack = new IntStack();
+        IntStack heights = new IntStack();
+        int lastVisited = NIL;
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+
+            int top = stack.peek();
+            if (right(top) != NIL && right(top) != lastVisited) {
+                node = right(top);
+                continue;
+            }
+
+            int rightHeight = right(top) != NIL ? heights.pop() : 0;
+            int leftHeight = left(top) != NIL ? heights.pop() : 0;
+            if (Math.abs(leftHeight - rightHeight) > 1) {
+                return false;
+            }
+            heights.push(1 + Math.max(leftHeight, rightHeight));
+            lastVisited = stack.pop();
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of nodes in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * Get the number of storage pages allocated so far
+     * @return page count
+     */
+    int storagePages() {
+        return values.length;
+    }
+
+    /**
+     * Clear all nodes from the tree and release the storage pages
+     */
+    public void clear() {
+        values = new int[0][];
+        lefts = new int[0][];
+        rights = new int[0][];
+        root = NIL;
+        size = 0;
+        allocated = 0;
+        freeList = NIL;
+    }
+
+    /**
+     * Get a string representation of the tree
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        if (root == NIL) {
+            return "Empty BST";
+        }
+
+        StringBuilder result = new StringBuilder();
+        IntStack stack = new IntStack();
+        IntStack depths = new IntStack();
+        stack.push(root);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            int depth = depths.pop();
+            for (int i = 0; i < depth; i++) {
+                result.append("  ");
+            }
+            result.append(value(node)).append("\n");
+
+            if (right(node) != NIL) {
+                stack.push(right(node));
+                depths.push(depth + 1);
+            }
+            if (left(node) != NIL) {
+                stack.push(left(node));
+                depths.push(depth + 1);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Growable stack of primitive ints used by the iterative traversals
+     */
+    private static class IntStack {
+        private int[] items = new int[16];
+        private int count;
+
+        void push(int item) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = item;
+        }
+
+        int pop() {
+            return items[--count];
+        }
+
+        int peek() {
+            return items[count - 1];
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        CompactBinarySearchTree tree = new CompactBinarySearchTree();
+
+        int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+        System.out.println("Inserting values: " + Arrays.toString(values));
+        for (int value : values) {
+            tree.insert(value);
+        }
+
+        System.out.println("\nTree structure:");
+        System.out.print(tree.toString());
+        System.out.println("Inorder traversal: " + tree.inorderTraversal());
+        System.out.println("Height: " + tree.height());
+        System.out.println("Size: " + tree.size());
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent Binary Search Tree implementation in Java
+ * An external (leaf-oriented) BST: values live only in leaves and internal
+ * nodes just route searches. This keeps every update local to a node and its
+ * parent, which allows:
+ *
+ * - search: wait-free, takes no locks and never retries
+ * - insert: locks only the parent of the leaf it replaces
+ * - delete: locks only the grandparent and parent of the leaf it removes
+ *
+ * Writers validate the links they read after locking and retry if a
+ * concurrent writer changed them, so updates in different subtrees proceed in
+ * parallel. Locks are always taken top-down, and nodes never change their
+ * ancestor order, so writers cannot deadlock. All operations are linearizable.
+ */
+public class ConcurrentBinarySearchTree {
+
+    /** Routing keys of the two sentinels, larger than any int value */
+    private static final long INF1 = Long.MAX_VALUE - 1;
+    private static final long INF2 = Long.MAX_VALUE;
+
+    /**
+     * Node is a leaf when both children are null, otherwise an internal
+     * routing node with exactly two children. Searches go left when the
+     * searched value is smaller than the key and right otherwise.
+     */
+    static final class Node {
+        final long key;
+        volatile Node left;
+        volatile Node right;
+        boolean removed; // guarded by this node's monitor
+
+        Node(long key) {
+            this.key = key;
+        }
+
+        Node(long key, Node left, Node right) {
+            this.key = key;
+            this.left = left;
+            this.right = right;
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+    }
+
+    /**
+     * The root and its two sentinel leaves are never removed, so every real
+     * leaf has both a parent and a grandparent
+     */
+    private final Node root = new Node(INF2, new Node(INF1), new Node(INF2));
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Constructor - creates an empty tree
+     */
+    public ConcurrentBinarySearchTree() {
+    }
+
+    /**
+     * Search for a value in the tree without locking
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            node = value < node.key ? node.left : node.right;
+        }
+        return node.key == value;
+    }
+
+    /**
+     * Insert a value into the tree
+     * @param value the value to insert
+     * @return true if the value was added, false if it was already present
+     */
+    public boolean insert(int value) {
+        while (true) {
+            Node parent = root;
+            Node leaf = root.left;
+            while (!leaf.isLeaf()) {
+                parent = leaf;
+                leaf = value < leaf.key ? leaf.left : leaf.right;
+            }
+            if (leaf.key == value) {
+                return false;
+            }
+
+            // Replace the leaf with a router over the old and new leaves
+            Node newLeaf = new Node(value);
+            Node router = value < leaf.key
+                ? new Node(leaf.key, newLeaf, leaf)
+                : new Node(value, leaf, newLeaf);
+
+            synchronized (parent) {
+                if (!parent.removed && replaceChild(parent, leaf, router)) {
+                    size.increment();
+                    return true;
+                }
+            }
+            // A concurrent writer changed the parent - search again
+        }
+    }
+
+    /**
+     * Delete a value from the tree
+     * @param value the value to delete
+     * @return true if the value was removed, false if it was not present
+     */
+    public boolean delete(int value) {
+        while (true) {
+            Node grandparent = null;
+            Node parent = root;
+            Node leaf = root.left;
+            while (!leaf.isLeaf()) {
+                grandparent = parent;
+                parent = leaf;
+                leaf = value < leaf.key ? leaf.left : leaf.right;
+            }
+            if (leaf.key != value) {
+                return false;
+            }
+
+            // Splice the parent out, lifting the leaf's sibling into its place
+            synchronized (grandparent) {
+                synchronized (parent) {
+                    if (!grandparent.removed && !parent.removed) {
+                        Node sibling = parent.left == leaf ? parent.right
+                                     : parent.right == leaf ? parent.left
+                                     : null;
+                        if (sibling != null && replaceChild(grandparent, parent, sibling)) {
+                            parent.removed = true;
+                            size.decrement();
+                            return true;
+                        }
+                    }
+                }
+            }
+            // A concurrent writer changed the path - search again
+        }
+    }
+
+    /**
+     * Swap one child link of a locked node
+     * @param parent the locked node
+     * @param expected the child that must still be linked
+     * @param replacement the new child
+     * @return false if expected is no longer a child of parent
+     */
+    private static boolean replaceChild(Node parent, Node expected, Node replacement) {
+        if (parent.left == expected) {
+            parent.left = replacement;
+            return true;
+        }
+        if (parent.right == expected) {
+            parent.right = replacement;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of values in the tree
+     * Exact when no writers are active, otherwise an estimate
+     * @return the size of the tree
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return root.left.isLeaf();
+    }
+
+    /**
+     * Perform inorder traversal (left, root, right)
+     * Weakly consistent: reflects every update completed before the call and
+     * may or may not reflect updates that race with it
+     * @return list of values in inorder
+     */
+    public List<Integer> inorderTraversal() {
+        List<Integer> result = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root.left);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.isLeaf()) {
+                if (node.key != INF1) {
+                    result.add((int) node.key);
+                }
+            } else {
+                // Read each link once; a racing update is either seen whole or not at all
+                Node left = node.left;
+                Node right = node.right;
+                stack.push(right);
+                stack.push(left);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree();
+
+        int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+        System.out.println("Inserting values: " + Arrays.toString(values));
+        for (int value : values) {
+            tree.insert(value);
+        }
+        System.out.println("Inorder traversal: " + tree.inorderTraversal());
+        System.out.println("Search 40: " + tree.search(40));
+        System.out.println("Delete 30: " + tree.delete(30));
+        System.out.println("Inorder after deletion: " + tree.inorderTraversal());
+    }
+}
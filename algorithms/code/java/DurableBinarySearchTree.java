@@ -0,0 +1,583 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable Binary Search Tree backed by a write-ahead log
+ * Every insert and delete that changes the tree is appended to a log segment
+ * in the tree's directory. Records are committed in groups: a batch of
+ * records is written as one checksummed frame followed by a single fsync,
+ * so the fsync cost is shared by the whole batch instead of paid per write.
+ *
+ * A checkpoint takes an O(1) {@link BinarySearchTree#snapshot()}, switches to
+ * a new log segment, writes the snapshot file and then deletes the segments
+ * it covers. Recovery loads the latest checkpoint and replays the remaining
+ * segments, so recovery time is bounded by the checkpoint interval. Replaying
+ * a log over a newer checkpoint is harmless because the last logged operation
+ * on each value decides its final membership.
+ *
+ * Durability: a mutation is on disk once {@link #sync()} returns, or after
+ * the batch or flush interval that contains it commits. A crash loses at
+ * most the mutations in the last uncommitted group; a torn final frame is
+ * detected by its checksum and discarded on recovery. The directory itself
+ * is fsynced after a segment is created and after the checkpoint file is
+ * renamed into place: a synced record cannot lose its segment's directory
+ * entry, and covered segments are deleted only once the checkpoint that
+ * replaces them is durable.
+ *
+ * All methods are thread safe.
+ */
+public class DurableBinarySearchTree implements AutoCloseable {
+
+    /**
+     * Options controls how often the log is committed and checkpointed
+     */
+    public static class Options {
+        public int batchSize;               // records per group commit
+        public long flushIntervalMillis;    // background commit interval, 0 disables
+        public long checkpointEveryRecords; // automatic checkpoint threshold, 0 disables
+
+        public Options() {
+            this.batchSize = 1024;
+            this.flushIntervalMillis = 10;
+            this.checkpointEveryRecords = 1_000_000;
+        }
+    }
+
+    private static final String CHECKPOINT_FILE = "tree.snapshot";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** Frame header: payload length, then CRC32 of the payload */
+    private static final int FRAME_HEADER_BYTES = 8;
+    /** Record: one operation byte, then the value */
+    private static final int RECORD_BYTES = 5;
+    private static final byte OP_INSERT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private final Path directory;
+    private final Options options;
+    private final BinarySearchTree tree;
+
+    // Guarded by this: the tree, the pending batch and the current segment
+    private ByteBuffer pending;
+    private int pendingRecords;
+    private FileChannel segment;
+    private long segmentSequence;
+    private long recordsSinceCheckpoint;
+    private boolean closed;
+
+    /** Serializes writing and fsyncing frames; always taken before this */
+    private final Object flushLock = new Object();
+    /** Serializes checkpoints; always taken before flushLock */
+    private final Object checkpointLock = new Object();
+
+    private final ScheduledExecutorService background;
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean(false);
+    private volatile IOException backgroundFailure;
+
+    /** Told of every segment creation and deletion, directory sync and checkpoint, in order */
+    private final Consumer<String> fileEvents;
+
+    private DurableBinarySearchTree(Path directory, Options options, BinarySearchTree tree,
+                                    long segmentSequence, Consumer<String> fileEvents) throws IOException {
+        this.directory = directory;
+        this.options = options;
+        this.tree = tree;
+        this.fileEvents = fileEvents;
+        this.pending = newBatchBuffer();
+        this.segmentSequence = segmentSequence;
+        this.segment = openSegment(segmentSequence);
+
+        if (options.flushIntervalMillis > 0 || options.checkpointEveryRecords > 0) {
+            this.background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "bst-wal-" + directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (options.flushIntervalMillis > 0) {
+                background.scheduleWithFixedDelay(this::backgroundSync, options.flushIntervalMillis,
+                                                  options.flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            this.background = null;
+        }
+    }
+
+    /**
+     * Open or create a durable tree with default options
+     * @param directory directory holding the checkpoint and log segments
+     * @return the recovered tree
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static DurableBinarySearchTree open(Path directory) throws IOException {
+        return open(directory, new Options());
+    }
+
+    /**
+     * Open or create a durable tree, recovering any existing state
+     * @param directory directory holding the checkpoint and log segments
+     * @param options commit and checkpoint settings
+     * @return the recovered tree
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static DurableBinarySearchTree open(Path directory, Options options) throws IOException {
+        return open(directory, options, event -> { });
+    }
+
+    /**
+     * Open or create a durable tree, reporting its file system operations
+     * @param directory directory holding the checkpoint and log segments
+     * @param options commit and checkpoint settings
+     * @param fileEvents receives "create", "delete" (with the segment name),
+     *        "sync directory" and "checkpoint" in the order they happen
+     * @return the recovered tree
+     * @throws IOException if the directory cannot be read or written
+     */
+    static DurableBinarySearchTree open(Path directory, Options options, Consumer<String> fileEvents)
+            throws IOException {
+        if (options.batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + options.batchSize);
+        }
+        Files.createDirectories(directory);
+
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        BinarySearchTree tree = Files.exists(checkpoint)
+            ? BinarySearchTree.readSnapshot(checkpoint)
+            : new BinarySearchTree();
+
+        long lastSequence = 0;
+        for (long sequence : listSegments(directory)) {
+            replay(directory.resolve(segmentName(sequence)), tree);
+            lastSequence = sequence;
+        }
+
+        // Never append after a possibly torn tail: start a fresh segment
+        return new DurableBinarySearchTree(directory, options, tree, lastSequence + 1, fileEvents);
+    }
+
+    /**
+     * Sequence numbers of the log segments in a directory, oldest first
+     * @param directory the tree's directory
+     * @return sorted segment sequence numbers
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Long> listSegments(Path directory) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                 .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                 .forEach(name -> sequences.add(Long.parseLong(
+                     name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Apply every intact frame of a segment to the tree
+     * Stops at the first incomplete or corrupt frame and truncates it away
+     * @param file the segment to replay
+     * @param tree the tree to apply records to
+     * @throws IOException if the segment cannot be read
+     */
+    private static void replay(Path file, BinarySearchTree tree) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long validEnd = 0;
+            long fileSize = channel.size();
+
+            while (validEnd + FRAME_HEADER_BYTES <= fileSize) {
+                header.clear();
+                readFully(channel, header, validEnd);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length % RECORD_BYTES != 0
+                        || validEnd + FRAME_HEADER_BYTES + length > fileSize) {
+                    break;
+                }
+
+                ByteBuffer payload = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, payload, validEnd + FRAME_HEADER_BYTES);
+                CRC32 crc = new CRC32();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                payload.flip();
+                while (payload.hasRemaining()) {
+                    byte op = payload.get();
+                    int value = payload.getInt();
+                    if (op == OP_INSERT) {
+                        tree.insert(value);
+                    } else {
+                        tree.delete(value);
+                    }
+                }
+                validEnd += FRAME_HEADER_BYTES + length;
+            }
+
+            if (validEnd < fileSize) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of log segment");
+            }
+        }
+    }
+
+    /**
+     * Create a log segment and make its directory entry durable
+     * Without the directory sync, fsyncing the segment's data would not
+     * keep the file itself across a power loss
+     */
+    private FileChannel openSegment(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(segmentName(sequence)),
+                                               StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.APPEND);
+        fileEvents.accept("create " + segmentName(sequence));
+        try {
+            syncDirectory();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Fsync the directory, making created, renamed and deleted entries durable
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        fileEvents.accept("sync directory");
+    }
+
+    private ByteBuffer newBatchBuffer() {
+        return ByteBuffer.allocate(FRAME_HEADER_BYTES + options.batchSize * RECORD_BYTES)
+                         .order(ByteOrder.LITTLE_ENDIAN)
+                         .position(FRAME_HEADER_BYTES);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Tree has been closed");
+        }
+    }
+
+    /**
+     * Insert a value and log it
+     * @param value the value to insert
+     * @throws UncheckedIOException if a group commit triggered by this call fails
+     */
+    public void insert(int value) {
+        boolean batchFull;
+        synchronized (this) {
+            ensureOpen();
+            int before = tree.size();
+            tree.insert(value);
+            if (tree.size() == before) {
+                return; // duplicate: nothing to log
+            }
+            batchFull = append(OP_INSERT, value);
+        }
+        afterAppend(batchFull);
+    }
+
+    /**
+     * Delete a value and log it
+     * @param value the value to delete
+     * @throws UncheckedIOException if a group commit triggered by this call fails
+     */
+    public void delete(int value) {
+        boolean batchFull;
+        synchronized (this) {
+            ensureOpen();
+            int before = tree.size();
+            tree.delete(value);
+            if (tree.size() == before) {
+                return; // absent: nothing to log
+            }
+            batchFull = append(OP_DELETE, value);
+        }
+        afterAppend(batchFull);
+    }
+
+    /**
+     * Add a record to the pending batch (caller holds this)
+     * @return true if the batch is now full
+     */
+    private boolean append(byte op, int value) {
+        if (pending.remaining() < RECORD_BYTES) {
+            // Other writers filled the batch before its commit started: extend the frame
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.put(op).putInt(value);
+        pendingRecords++;
+        recordsSinceCheckpoint++;
+        return pendingRecords >= options.batchSize;
+    }
+
+    /**
+     * Commit a full batch and start an automatic checkpoint when due
+     * Called without holding this, so the fsync never blocks other writers
+     */
+    private void afterAppend(boolean batchFull) {
+        if (batchFull) {
+            try {
+                sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (background != null && options.checkpointEveryRecords > 0
+                && loggedSinceCheckpoint() >= options.checkpointEveryRecords
+                && checkpointScheduled.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    backgroundFailure = e;
+                } catch (IllegalStateException e) {
+                    // Closed while the checkpoint was queued
+                } finally {
+                    checkpointScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    private synchronized long loggedSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    /**
+     * Make every mutation so far durable
+     * Writes the pending batch as one checksummed frame and fsyncs the log
+     * @throws IOException if writing or syncing fails, including a failure
+     *         of an earlier background commit
+     */
+    public void sync() throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer frame;
+            FileChannel channel;
+            synchronized (this) {
+                ensureOpen();
+                frame = takePendingFrame();
+                channel = segment;
+            }
+            if (frame != null) {
+                while (frame.hasRemaining()) {
+                    channel.write(frame);
+                }
+                channel.force(false);
+            }
+        }
+        IOException failure = backgroundFailure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Seal the pending batch into a frame ready to write (caller holds this)
+     * @return the frame, or null if nothing is pending
+     */
+    private ByteBuffer takePendingFrame() {
+        if (pendingRecords == 0) {
+            return null;
+        }
+        ByteBuffer frame = pending;
+        int length = frame.position() - FRAME_HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, length);
+        frame.putInt(0, length).putInt(4, (int) crc.getValue());
+        frame.flip();
+
+        pending = newBatchBuffer();
+        pendingRecords = 0;
+        return frame;
+    }
+
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            backgroundFailure = e;
+        } catch (IllegalStateException e) {
+            // Closed between scheduling and running
+        }
+    }
+
+    /**
+     * Write a checkpoint and drop the log segments it covers
+     * Only the O(1) snapshot and the segment switch happen under the tree's
+     * lock; the snapshot file is written while writers carry on
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            BinarySearchTree view;
+            long coveredSequence;
+            synchronized (flushLock) {
+                synchronized (this) {
+                    ensureOpen();
+                    ByteBuffer frame = takePendingFrame();
+                    if (frame != null) {
+                        while (frame.hasRemaining()) {
+                            segment.write(frame);
+                        }
+                    }
+                    segment.force(false);
+                    segment.close();
+
+                    view = tree.snapshot();
+                    coveredSequence = segmentSequence;
+                    segmentSequence++;
+                    segment = openSegment(segmentSequence);
+                    recordsSinceCheckpoint = 0;
+                }
+            }
+
+            view.writeSnapshot(directory.resolve(CHECKPOINT_FILE));
+            fileEvents.accept("checkpoint");
+            // The rename must be durable before the segments it replaces go
+            syncDirectory();
+            for (long sequence : listSegments(directory)) {
+                if (sequence <= coveredSequence) {
+                    Files.deleteIfExists(directory.resolve(segmentName(sequence)));
+                    fileEvents.accept("delete " + segmentName(sequence));
+                }
+            }
+        }
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public synchronized boolean search(int value) {
+        ensureOpen();
+        return tree.search(value);
+    }
+
+    /**
+     * Get the number of values in the tree
+     * @return the size of the tree
+     */
+    public synchronized int size() {
+        ensureOpen();
+        return tree.size();
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public synchronized boolean isEmpty() {
+        ensureOpen();
+        return tree.isEmpty();
+    }
+
+    /**
+     * Take a consistent read-only view for lock-free scans
+     * @return a snapshot of the current contents
+     */
+    public synchronized BinarySearchTree snapshot() {
+        ensureOpen();
+        return tree.snapshot();
+    }
+
+    /**
+     * Commit everything pending, stop background work and close the log
+     * @throws IOException if the final commit fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (background != null) {
+            background.shutdown();
+            try {
+                background.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (checkpointLock) {
+            synchronized (flushLock) {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        ByteBuffer frame = takePendingFrame();
+                        if (frame != null) {
+                            while (frame.hasRemaining()) {
+                                segment.write(frame);
+                            }
+                        }
+                        segment.force(false);
+                    } finally {
+                        closed = true;
+                        segment.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("durable-bst");
+        try {
+            int[] values = {50, 30, 70, 20, 40, 60, 80};
+            try (DurableBinarySearchTree tree = open(directory)) {
+                System.out.println("Inserting values: " + Arrays.toString(values));
+                for (int value : values) {
+                    tree.insert(value);
+                }
+                tree.checkpoint();
+                tree.delete(30);
+                tree.insert(90);
+                tree.sync();
+            }
+
+            // Recovery loads the checkpoint and replays the delete and insert logged after it
+            try (DurableBinarySearchTree tree = open(directory)) {
+                System.out.println("Recovered: " + tree.snapshot().inorderTraversal());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
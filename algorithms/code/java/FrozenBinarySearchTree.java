@@ -0,0 +1,273 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable Binary Search Tree in Eytzinger (BFS) layout
+ * The values of a balanced BST are stored in one int[] in level order: the
+ * root at index 1 and the children of node k at 2k and 2k + 1. A search is
+ * then pure index arithmetic over one array with no node objects to chase.
+ *
+ * - The top levels of the tree share a few cache lines and stay hot
+ * - Each step is k = 2k + (value > key), which the JIT compiles without a
+ *   data-dependent branch, so mispredictions do not stall the descent
+ * - The next node's address depends only on the comparison, so the CPU can
+ *   start loading it early; there is no pointer to wait for
+ *
+ * Built with {@link BinarySearchTree#freeze()} or {@link #fromSorted(int[])}.
+ */
+public class FrozenBinarySearchTree {
+
+    /** Values in Eytzinger order; index 0 is unused */
+    private final int[] keys;
+    private final int size;
+
+    private FrozenBinarySearchTree(int[] keys, int size) {
+        this.keys = keys;
+        this.size = size;
+    }
+
+    /**
+     * Build a frozen tree from values in strictly ascending order
+     * @param sortedValues ascending, distinct values
+     * @return the frozen tree
+     * @throws IllegalArgumentException if the values are not strictly ascending
+     */
+    public static FrozenBinarySearchTree fromSorted(int[] sortedValues) {
+        for (int i = 1; i < sortedValues.length; i++) {
+            if (sortedValues[i - 1] >= sortedValues[i]) {
+                throw new IllegalArgumentException("Values must be strictly ascending at index " + i);
+            }
+        }
+        int[] keys = new int[sortedValues.length + 1];
+        fill(sortedValues, keys);
+        return new FrozenBinarySearchTree(keys, sortedValues.length);
+    }
+
+    /**
+     * Place sorted values into Eytzinger order with an in-order walk of the
+     * implicit tree; iterative, O(n)
+     * @param sortedValues ascending values
+     * @param keys destination, one longer than sortedValues
+     */
+    private static void fill(int[] sortedValues, int[] keys) {
+        int n = sortedValues.length;
+        int next = 0;
+        int k = first(n);
+        while (k != 0) {
+            keys[k] = sortedValues[next++];
+            k = successor(k, n);
+        }
+    }
+
+    /**
+     * Index of the leftmost (smallest) node
+     * @param n number of nodes
+     * @return the index, or 0 if empty
+     */
+    private static int first(int n) {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k <= n) {
+            k = 2 * k;
+        }
+        return k;
+    }
+
+    /**
+     * Index of the rightmost (largest) node
+     * @param n number of nodes
+     * @return the index, or 0 if empty
+     */
+    private static int last(int n) {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return k;
+    }
+
+    /**
+     * In-order successor: leftmost node of the right subtree, or else the
+     * first ancestor reached from a left child
+     * @param k current index
+     * @param n number of nodes
+     * @return the successor's index, or 0 after the last node
+     */
+    private static int successor(int k, int n) {
+        if (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+            while (2 * k <= n) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        // Climb past every right-child link (the trailing 1 bits), then one more
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * In-order predecessor, the mirror image of {@link #successor}
+     * @param k current index
+     * @param n number of nodes
+     * @return the predecessor's index, or 0 before the first node
+     */
+    private static int predecessor(int k, int n) {
+        if (2 * k <= n) {
+            k = 2 * k;
+            while (2 * k + 1 <= n) {
+                k = 2 * k + 1;
+            }
+            return k;
+        }
+        return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+    }
+
+    /**
+     * Branch-free descent to the smallest key not below value
+     * @param value the bound
+     * @return index of the ceiling, or 0 if every key is smaller
+     */
+    private int lowerBound(int value) {
+        int[] keys = this.keys;
+        int n = size;
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (keys[k] < value ? 1 : 0);
+        }
+        // The path ends below the answer: undo the right turns taken after it
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        int k = lowerBound(value);
+        return k != 0 && keys[k] == value;
+    }
+
+    /**
+     * Find the greatest value less than or equal to the given value
+     * @param value the bound
+     * @return the floor, or empty if every value is greater
+     */
+    public OptionalInt floor(int value) {
+        int k = lowerBound(value);
+        if (k != 0 && keys[k] == value) {
+            return OptionalInt.of(value);
+        }
+        int floor = k == 0 ? last(size) : predecessor(k, size);
+        return floor == 0 ? OptionalInt.empty() : OptionalInt.of(keys[floor]);
+    }
+
+    /**
+     * Find the least value greater than or equal to the given value
+     * @param value the bound
+     * @return the ceiling, or empty if every value is smaller
+     */
+    public OptionalInt ceiling(int value) {
+        int k = lowerBound(value);
+        return k == 0 ? OptionalInt.empty() : OptionalInt.of(keys[k]);
+    }
+
+    /**
+     * Get the smallest value
+     * @return the minimum, or empty if the tree is empty
+     */
+    public OptionalInt min() {
+        return size == 0 ? OptionalInt.empty() : OptionalInt.of(keys[first(size)]);
+    }
+
+    /**
+     * Get the largest value
+     * @return the maximum, or empty if the tree is empty
+     */
+    public OptionalInt max() {
+        return size == 0 ? OptionalInt.empty() : OptionalInt.of(keys[last(size)]);
+    }
+
+    /**
+     * Visit every value in ascending order
+     * @param visitor receives each value
+     */
+    public void inorderTraversal(IntConsumer visitor) {
+        for (int k = first(size); k != 0; k = successor(k, size)) {
+            visitor.accept(keys[k]);
+        }
+    }
+
+    /**
+     * Copy the values in ascending order
+     * @return sorted array of values
+     */
+    public int[] inorderArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int k = first(size); k != 0; k = successor(k, size)) {
+            result[i++] = keys[k];
+        }
+        return result;
+    }
+
+    /**
+     * Iterate the values in ascending order without boxing
+     * @return an iterator over the values
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int k = first(size);
+
+            @Override
+            public boolean hasNext() {
+                return k != 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (k == 0) {
+                    throw new NoSuchElementException();
+                }
+                int value = keys[k];
+                k = successor(k, size);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Get the number of values in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        BinarySearchTree small = new BinarySearchTree();
+        for (int value : new int[]{50, 30, 70, 20, 40, 60, 80}) {
+            small.insert(value);
+        }
+        FrozenBinarySearchTree frozen = small.freeze();
+        System.out.println("Eytzinger layout: " + Arrays.toString(Arrays.copyOfRange(frozen.keys, 1, frozen.size + 1)));
+        System.out.println("Floor of 55: " + frozen.floor(55).getAsInt());
+        System.out.println("Ceiling of 55: " + frozen.ceiling(55).getAsInt());
+    }
+}
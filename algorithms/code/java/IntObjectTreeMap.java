@@ -0,0 +1,459 @@
+import java.util.*;
+
+/**
+ * Sorted map from primitive int keys to values, backed by a Binary Search Tree
+ * Keys are stored unboxed in the nodes next to their values, so a key and
+ * its payload live in one object instead of a tree entry plus a separate
+ * HashMap entry. get, containsKey, floorKeyOrDefault, ceilingKeyOrDefault
+ * and put on an existing key never allocate, and put of a new key allocates
+ * only the new node; floorKey and ceilingKey allocate their Optional. The
+ * tree is kept AVL-balanced like {@link AVLTree}, so keys inserted in
+ * ascending order still give O(log n) lookups.
+ * @param <V> the type of mapped values
+ */
+public class IntObjectTreeMap<V> {
+
+    /**
+     * Receives map entries without boxing the key
+     * @param <V> the type of mapped values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * TreeNode holds one key and its value
+     */
+    static class TreeNode<V> {
+        int key;
+        V value;
+        TreeNode<V> left;
+        TreeNode<V> right;
+        int height;
+
+        TreeNode(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    TreeNode<V> root;
+    private int size;
+
+    /**
+     * Constructor - creates an empty map
+     */
+    public IntObjectTreeMap() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /**
+     * Associate a value with a key, replacing any previous value
+     * A replacement changes no links, so only a new key descends again to
+     * insert and rebalance
+     * @param key the key
+     * @param value the value to store (may be null)
+     * @return the previous value, or null if the key was absent
+     */
+    public V put(int key, V value) {
+        TreeNode<V> node = find(key);
+        if (node != null) {
+            V previous = node.value;
+            node.value = value;
+            return previous;
+        }
+        root = insertNode(root, key, value);
+        size++;
+        return null;
+    }
+
+    /**
+     * Helper method for insertion of an absent key; recursion depth is the
+     * AVL height
+     * @param node current node
+     * @param key key to insert
+     * @param value value to store
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> insertNode(TreeNode<V> node, int key, V value) {
+        if (node == null) {
+            return new TreeNode<>(key, value);
+        }
+        if (key < node.key) {
+            node.left = insertNode(node.left, key, value);
+        } else {
+            node.right = insertNode(node.right, key, value);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Find the node holding a key
+     * @param key the key
+     * @return the node, or null if absent
+     */
+    private TreeNode<V> find(int key) {
+        TreeNode<V> node = root;
+        while (node != null) {
+            if (key == node.key) {
+                return node;
+            }
+            node = key < node.key ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Look up the value of a key
+     * @param key the key
+     * @return the value, or null if the key is absent
+     */
+    public V get(int key) {
+        TreeNode<V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Look up the value of a key with a fallback
+     * @param key the key
+     * @param defaultValue returned when the key is absent
+     * @return the value, or defaultValue if the key is absent
+     */
+    public V getOrDefault(int key, V defaultValue) {
+        TreeNode<V> node = find(key);
+        return node == null ? defaultValue : node.value;
+    }
+
+    /**
+     * Check whether a key is present
+     * @param key the key
+     * @return true if the key is mapped
+     */
+    public boolean containsKey(int key) {
+        return find(key) != null;
+    }
+
+    /**
+     * Remove a key and its value
+     * @param key the key
+     * @return the removed value, or null if the key was absent
+     */
+    public V remove(int key) {
+        TreeNode<V> node = find(key);
+        if (node == null) {
+            return null;
+        }
+        V removed = node.value;
+        root = deleteNode(root, key);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Helper method for deletion of a present key
+     * @param node current node
+     * @param key key to delete
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> deleteNode(TreeNode<V> node, int key) {
+        if (key < node.key) {
+            node.left = deleteNode(node.left, key);
+        } else if (key > node.key) {
+            node.right = deleteNode(node.right, key);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            } else if (node.right == null) {
+                return node.left;
+            }
+
+            // Node has two children: move the inorder successor's entry up,
+            // then unlink the successor (it has no left child)
+            TreeNode<V> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.key = successor.key;
+            node.value = successor.value;
+            node.right = deleteMin(node.right);
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * Unlink the smallest node of a subtree
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> deleteMin(TreeNode<V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    /**
+     * Height of a possibly empty subtree
+     * @param node the root of the subtree
+     * @return -1 for an empty subtree, otherwise the stored height
+     */
+    private static int heightOf(TreeNode<?> node) {
+        return node == null ? -1 : node.height;
+    }
+
+    /**
+     * Recompute the stored height of a node from its children
+     * @param node the node to update
+     */
+    private static void updateHeight(TreeNode<?> node) {
+        node.height = 1 + Math.max(heightOf(node.left), heightOf(node.right));
+    }
+
+    /**
+     * Balance factor of a node (left height minus right height)
+     * @param node the node to inspect
+     * @return the balance factor
+     */
+    private static int balanceFactor(TreeNode<?> node) {
+        return heightOf(node.left) - heightOf(node.right);
+    }
+
+    /**
+     * Rotate a subtree to the right
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> rotateRight(TreeNode<V> node) {
+        TreeNode<V> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotate a subtree to the left
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> rotateLeft(TreeNode<V> node) {
+        TreeNode<V> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Restore the AVL invariant at a node whose children are already balanced
+     * @param node the node to rebalance
+     * @return the new root of the subtree
+     */
+    private static <V> TreeNode<V> rebalance(TreeNode<V> node) {
+        updateHeight(node);
+        int balance = balanceFactor(node);
+
+        if (balance > 1) {
+            // Left-right case: straighten the left child first
+            if (balanceFactor(node.left) < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            // Right-left case: straighten the right child first
+            if (balanceFactor(node.right) > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * Find the greatest key less than or equal to the given key
+     * @param key the bound
+     * @return the floor key, or empty if every key is greater
+     */
+    public OptionalInt floorKey(int key) {
+        TreeNode<V> node = floorNode(key);
+        return node == null ? OptionalInt.empty() : OptionalInt.of(node.key);
+    }
+
+    /**
+     * Find the greatest key less than or equal to the given key without
+     * allocating
+     * @param key the bound
+     * @param defaultKey returned when every key is greater
+     * @return the floor key, or defaultKey if there is none
+     */
+    public int floorKeyOrDefault(int key, int defaultKey) {
+        TreeNode<V> node = floorNode(key);
+        return node == null ? defaultKey : node.key;
+    }
+
+    /**
+     * Find the least key greater than or equal to the given key
+     * @param key the bound
+     * @return the ceiling key, or empty if every key is smaller
+     */
+    public OptionalInt ceilingKey(int key) {
+        TreeNode<V> node = ceilingNode(key);
+        return node == null ? OptionalInt.empty() : OptionalInt.of(node.key);
+    }
+
+    /**
+     * Find the least key greater than or equal to the given key without
+     * allocating
+     * @param key the bound
+     * @param defaultKey returned when every key is smaller
+     * @return the ceiling key, or defaultKey if there is none
+     */
+    public int ceilingKeyOrDefault(int key, int defaultKey) {
+        TreeNode<V> node = ceilingNode(key);
+        return node == null ? defaultKey : node.key;
+    }
+
+    /**
+     * Find the node holding the floor of a key
+     * @param key the bound
+     * @return the node, or null if every key is greater
+     */
+    private TreeNode<V> floorNode(int key) {
+        TreeNode<V> best = null;
+        TreeNode<V> node = root;
+        while (node != null) {
+            if (key == node.key) {
+                return node;
+            }
+            if (key < node.key) {
+                node = node.left;
+            } else {
+                best = node;
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the node holding the ceiling of a key
+     * @param key the bound
+     * @return the node, or null if every key is smaller
+     */
+    private TreeNode<V> ceilingNode(int key) {
+        TreeNode<V> best = null;
+        TreeNode<V> node = root;
+        while (node != null) {
+            if (key == node.key) {
+                return node;
+            }
+            if (key > node.key) {
+                node = node.right;
+            } else {
+                best = node;
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Visit every entry in ascending key order without boxing
+     * @param visitor receives each key and value
+     */
+    public void forEach(EntryConsumer<? super V> visitor) {
+        Deque<TreeNode<V>> stack = new ArrayDeque<>();
+        TreeNode<V> node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            visitor.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Copy the keys in ascending order
+     * @return sorted array of keys
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int[] index = {0};
+        forEach((key, value) -> result[index[0]++] = key);
+        return result;
+    }
+
+    /**
+     * Get the height of the backing tree
+     * Stored in every node for balancing, so this is O(1)
+     * @return height of the tree (-1 for an empty map)
+     */
+    public int height() {
+        return heightOf(root);
+    }
+
+    /**
+     * Get the number of entries in the map
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the map is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Get a string representation of the map
+     * @return entries in ascending key order, formatted like {@link AbstractMap#toString()}
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (result.length() > 1) {
+                result.append(", ");
+            }
+            result.append(key).append('=').append(value);
+        });
+        return result.append('}').toString();
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        IntObjectTreeMap<String> map = new IntObjectTreeMap<>();
+        map.put(30, "thirty");
+        map.put(10, "ten");
+        map.put(20, "twenty");
+        System.out.println("Map: " + map);
+        System.out.println("Get 20: " + map.get(20));
+        System.out.println("Replace 10: " + map.put(10, "TEN"));
+        System.out.println("Floor key of 25: " + map.floorKey(25).getAsInt());
+        System.out.println("Remove 30: " + map.remove(30));
+        System.out.println("Map after removal: " + map);
+    }
+}
@@ -0,0 +1,501 @@
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Binary Search Tree of primitive long values
+ * The long-keyed counterpart of {@link BinarySearchTree} for 64-bit IDs.
+ * Values are stored unboxed in the nodes, so search, floorOrDefault and
+ * ceilingOrDefault never allocate and insert allocates only the new node;
+ * the Optional-returning queries allocate their result. The tree is kept
+ * AVL-balanced like {@link AVLTree}, because IDs usually arrive in
+ * ascending order, which would turn a plain BST into a chain.
+ */
+public class LongBinarySearchTree {
+
+    /**
+     * TreeNode represents a node in the binary search tree
+     */
+    public static class TreeNode {
+        public long value;
+        public TreeNode left;
+        public TreeNode right;
+        public int height;
+
+        public TreeNode(long value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    TreeNode root;
+    private int size;
+
+    /**
+     * Constructor - creates an empty BST
+     */
+    public LongBinarySearchTree() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    /**
+     * Insert a new value into the BST, rebalancing on the way back up
+     * @param value the value to insert
+     * @return true if the value was added, false if it was already present
+     */
+    public boolean insert(long value) {
+        int before = size;
+        root = insertNode(root, value);
+        return size != before;
+    }
+
+    /**
+     * Helper method for insertion; recursion depth is the AVL height
+     * @param node current node
+     * @param value value to insert
+     * @return the new root of the subtree
+     */
+    private TreeNode insertNode(TreeNode node, long value) {
+        if (node == null) {
+            size++;
+            return new TreeNode(value);
+        }
+
+        if (value < node.value) {
+            node.left = insertNode(node.left, value);
+        } else if (value > node.value) {
+            node.right = insertNode(node.right, value);
+        } else {
+            return node;
+        }
+
+        return rebalance(node);
+    }
+
+    /**
+     * Search for a value in the BST
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(long value) {
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return true;
+            }
+            node = value < node.value ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Delete a value from the BST, rebalancing on the way back up
+     * @param value the value to delete
+     * @return true if the value was removed, false if it was not present
+     */
+    public boolean delete(long value) {
+        int before = size;
+        root = deleteNode(root, value);
+        return size != before;
+    }
+
+    /**
+     * Helper method for deletion
+     * @param node current node
+     * @param value value to delete
+     * @return the new root of the subtree
+     */
+    private TreeNode deleteNode(TreeNode node, long value) {
+        if (node == null) {
+            return null;
+        }
+
+        if (value < node.value) {
+            node.left = deleteNode(node.left, value);
+        } else if (value > node.value) {
+            node.right = deleteNode(node.right, value);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            } else if (node.right == null) {
+                return node.left;
+            }
+
+            // Node has two children: take over the inorder successor's
+            // value, then unlink the successor (it has no left child)
+            TreeNode successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.value = successor.value;
+            node.right = deleteMin(node.right);
+        }
+
+        return rebalance(node);
+    }
+
+    /**
+     * Unlink the smallest node of a subtree
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static TreeNode deleteMin(TreeNode node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    /**
+     * Height of a possibly empty subtree
+     * @param node the root of the subtree
+     * @return -1 for an empty subtree, otherwise the stored height
+     */
+    private static int heightOf(TreeNode node) {
+        return node == null ? -1 : node.height;
+    }
+
+    /**
+     * Recompute the stored height of a node from its children
+     * @param node the node to update
+     */
+    private static void updateHeight(TreeNode node) {
+        node.height = 1 + Math.max(heightOf(node.left), heightOf(node.right));
+    }
+
+    /**
+     * Balance factor of a node (left height minus right height)
+     * @param node the node to inspect
+     * @return the balance factor
+     */
+    private static int balanceFactor(TreeNode node) {
+        return heightOf(node.left) - heightOf(node.right);
+    }
+
+    /**
+     * Rotate a subtree to the right
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static TreeNode rotateRight(TreeNode node) {
+        TreeNode pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotate a subtree to the left
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private static TreeNode rotateLeft(TreeNode node) {
+        TreeNode pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Restore the AVL invariant at a node whose children are already balanced
+     * @param node the node to rebalance
+     * @return the new root of the subtree
+     */
+    private static TreeNode rebalance(TreeNode node) {
+        updateHeight(node);
+        int balance = balanceFactor(node);
+
+        if (balance > 1) {
+            // Left-right case: straighten the left child first
+            if (balanceFactor(node.left) < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            // Right-left case: straighten the right child first
+            if (balanceFactor(node.right) > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    /**
+     * Find the smallest value in the tree
+     * @return the minimum, or empty if the tree is empty
+     */
+    public OptionalLong min() {
+        if (root == null) {
+            return OptionalLong.empty();
+        }
+        TreeNode node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return OptionalLong.of(node.value);
+    }
+
+    /**
+     * Find the largest value in the tree
+     * @return the maximum, or empty if the tree is empty
+     */
+    public OptionalLong max() {
+        if (root == null) {
+            return OptionalLong.empty();
+        }
+        TreeNode node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return OptionalLong.of(node.value);
+    }
+
+    /**
+     * Find the greatest value less than or equal to the given value
+     * @param value the bound
+     * @return the floor, or empty if every value is greater
+     */
+    public OptionalLong floor(long value) {
+        TreeNode node = floorNode(value);
+        return node == null ? OptionalLong.empty() : OptionalLong.of(node.value);
+    }
+
+    /**
+     * Find the greatest value less than or equal to the given value without
+     * allocating
+     * @param value the bound
+     * @param defaultValue returned when every value is greater
+     * @return the floor, or defaultValue if there is none
+     */
+    public long floorOrDefault(long value, long defaultValue) {
+        TreeNode node = floorNode(value);
+        return node == null ? defaultValue : node.value;
+    }
+
+    /**
+     * Find the least value greater than or equal to the given value
+     * @param value the bound
+     * @return the ceiling, or empty if every value is smaller
+     */
+    public OptionalLong ceiling(long value) {
+        TreeNode node = ceilingNode(value);
+        return node == null ? OptionalLong.empty() : OptionalLong.of(node.value);
+    }
+
+    /**
+     * Find the least value greater than or equal to the given value without
+     * allocating
+     * @param value the bound
+     * @param defaultValue returned when every value is smaller
+     * @return the ceiling, or defaultValue if there is none
+     */
+    public long ceilingOrDefault(long value, long defaultValue) {
+        TreeNode node = ceilingNode(value);
+        return node == null ? defaultValue : node.value;
+    }
+
+    /**
+     * Find the node holding the floor of a value
+     * @param value the bound
+     * @return the node, or null if every value is greater
+     */
+    private TreeNode floorNode(long value) {
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return node;
+            }
+            if (value < node.value) {
+                node = node.left;
+            } else {
+                best = node;
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the node holding the ceiling of a value
+     * @param value the bound
+     * @return the node, or null if every value is smaller
+     */
+    private TreeNode ceilingNode(long value) {
+        TreeNode best = null;
+        TreeNode node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return node;
+            }
+            if (value > node.value) {
+                node = node.right;
+            } else {
+                best = node;
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Visit every value in ascending order without boxing
+     * @param visitor receives each value
+     */
+    public void inorderTraversal(LongConsumer visitor) {
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        TreeNode node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            visitor.accept(node.value);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Copy the values in ascending order
+     * @return sorted array of values
+     */
+    public long[] inorderArray() {
+        long[] result = new long[size];
+        int[] index = {0};
+        inorderTraversal(value -> result[index[0]++] = value);
+        return result;
+    }
+
+    /**
+     * Iterate the values in ascending order without boxing
+     * @return an iterator over the values
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private final Deque<TreeNode> stack = new ArrayDeque<>();
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(TreeNode node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public long nextLong() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                TreeNode node = stack.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    /**
+     * Get the height of the tree
+     * Stored in every node for balancing, so this is O(1)
+     * @return height of the tree (-1 for empty tree)
+     */
+    public int height() {
+        return heightOf(root);
+    }
+
+    /**
+     * Get the number of values in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Clear all nodes from the tree
+     */
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Get a string representation of the tree
+     * Preorder with two spaces of indentation per level, like
+     * {@link BinarySearchTree#toString()}
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        if (root == null) {
+            return "Empty BST";
+        }
+
+        StringBuilder result = new StringBuilder();
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(root);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            int depth = depths.pop();
+            result.append("  ".repeat(depth)).append(node.value).append("\n");
+            if (node.right != null) {
+                stack.push(node.right);
+                depths.push(depth + 1);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+                depths.push(depth + 1);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        LongBinarySearchTree tree = new LongBinarySearchTree();
+        long[] ids = {5_000_000_000L, 3_000_000_000L, 7_000_000_000L, -1L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long id : ids) {
+            tree.insert(id);
+        }
+        System.out.print("Tree structure:\n" + tree);
+        System.out.println("Inorder: " + Arrays.toString(tree.inorderArray()));
+        System.out.println("Search 3000000000: " + tree.search(3_000_000_000L));
+        System.out.println("Floor of 6000000000: " + tree.floor(6_000_000_000L).getAsLong());
+        System.out.println("Delete -1: " + tree.delete(-1L));
+        System.out.println("Inorder after deletion: " + Arrays.toString(tree.inorderArray()));
+    }
+}
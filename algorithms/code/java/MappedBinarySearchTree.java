@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only Binary Search Tree view over a memory-mapped snapshot file
+ * A snapshot stores the tree's values in ascending order, which is the
+ * implicit layout of a perfectly balanced BST: the middle of any range is the
+ * root of that range. Opening a snapshot only maps the file and checks the
+ * header, so the tree is queryable immediately; pages are faulted in by the OS
+ * as searches touch them, and nothing is parsed per node.
+ *
+ * File format (little-endian):
+ *   int  magic   'BSTS'
+ *   int  version 1
+ *   long count   number of values
+ *   int  values[count], strictly ascending
+ *
+ * A single MappedByteBuffer is limited to 2 GB, so the values are mapped as
+ * a table of IntBuffer views of up to 2^28 values each.
+ */
+public class MappedBinarySearchTree implements AutoCloseable {
+
+    private static final int MAGIC = 0x42535453; // "BSTS"
+    private static final int VERSION = 1;
+    private static final long HEADER_BYTES = 16;
+
+    /** Values per mapped chunk; each chunk is one 1 GB mapping */
+    private static final int CHUNK_SHIFT = 28;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private IntBuffer[] chunks;
+    private final int size;
+
+    private MappedBinarySearchTree(IntBuffer[] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Write the values of a tree as a snapshot file
+     * The file is written beside the target and atomically renamed into
+     * place once it is on disk, so readers never see a partial snapshot;
+     * the directory is fsynced after the rename, so a crash cannot undo it
+     * @param tree the tree to save
+     * @param file destination path, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(BinarySearchTree tree, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(tree.size());
+
+                PrimitiveIterator.OfInt iterator = tree.iterator();
+                while (iterator.hasNext()) {
+                    if (buffer.remaining() < Integer.BYTES) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putInt(iterator.nextInt());
+                }
+                drain(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+            syncDirectory(file.toAbsolutePath().getParent());
+        } finally {
+            if (!moved) {
+                // Never leave a half-written sibling behind
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Fsync a directory, making the entries renamed into it durable
+     * @param directory the directory to sync
+     * @throws IOException if the directory cannot be opened or synced
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Write out everything buffered so far
+     * @param channel destination
+     * @param buffer buffer in write mode
+     * @throws IOException if writing fails
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Map a snapshot file as a queryable read-only tree
+     * Only the header and length are checked, so opening stays O(1); the
+     * order of the values is checked by {@link #toBinarySearchTree}
+     * @param file a file produced by {@link #write}
+     * @return the mapped tree; close it to unmap the file
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot
+     */
+    public static MappedBinarySearchTree open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a BST snapshot (too short): " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a BST snapshot (bad magic): " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported BST snapshot version " + header.getInt(4) + ": " + file);
+            }
+            long count = header.getLong(8);
+            if (count < 0 || count > Integer.MAX_VALUE || HEADER_BYTES + count * Integer.BYTES != fileSize) {
+                throw new IOException("Corrupt BST snapshot (count " + count + " does not match file size): " + file);
+            }
+
+            // The mappings stay valid after the channel is closed
+            IntBuffer[] chunks = new IntBuffer[(int) ((count + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i << CHUNK_SHIFT;
+                long length = Math.min(CHUNK_SIZE, count - first);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * Integer.BYTES, length * Integer.BYTES);
+                chunks[i] = mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return new MappedBinarySearchTree(chunks, (int) count);
+        }
+    }
+
+    /**
+     * Value at an in-order position
+     * @param index rank of the value
+     * @return the value
+     */
+    private int valueAt(int index) {
+        return chunks[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    /**
+     * Fail fast once the tree has been closed
+     */
+    private void ensureOpen() {
+        if (chunks == null) {
+            throw new IllegalStateException("Tree has been closed");
+        }
+    }
+
+    /**
+     * Descend the implicit balanced tree to the first value not below value
+     * @param value the bound
+     * @return rank of the ceiling, or size if every value is smaller
+     */
+    private int lowerBound(int value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (valueAt(mid) < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        ensureOpen();
+        int index = lowerBound(value);
+        return index < size && valueAt(index) == value;
+    }
+
+    /**
+     * Find the greatest value less than or equal to the given value
+     * @param value the bound
+     * @return the floor, or empty if every value is greater
+     */
+    public OptionalInt floor(int value) {
+        ensureOpen();
+        int index = lowerBound(value);
+        if (index < size && valueAt(index) == value) {
+            return OptionalInt.of(value);
+        }
+        return index == 0 ? OptionalInt.empty() : OptionalInt.of(valueAt(index - 1));
+    }
+
+    /**
+     * Find the least value greater than or equal to the given value
+     * @param value the bound
+     * @return the ceiling, or empty if every value is smaller
+     */
+    public OptionalInt ceiling(int value) {
+        ensureOpen();
+        int index = lowerBound(value);
+        return index == size ? OptionalInt.empty() : OptionalInt.of(valueAt(index));
+    }
+
+    /**
+     * Count the values strictly less than the given value
+     * @param value the value to rank
+     * @return number of smaller values
+     */
+    public int rank(int value) {
+        ensureOpen();
+        return lowerBound(value);
+    }
+
+    /**
+     * Find the k-th smallest value (0-based)
+     * @param k index into the sorted order
+     * @return the value of rank k
+     * @throws IndexOutOfBoundsException if k is not in [0, size())
+     */
+    public int select(int k) {
+        ensureOpen();
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("k=" + k + ", size=" + size);
+        }
+        return valueAt(k);
+    }
+
+    /**
+     * Visit the values in the closed range [lo, hi] in ascending order
+     * @param lo lower bound (inclusive)
+     * @param hi upper bound (inclusive)
+     * @param visitor receives each value in range
+     */
+    public void range(int lo, int hi, IntConsumer visitor) {
+        ensureOpen();
+        for (int index = lowerBound(lo); index < size; index++) {
+            int value = valueAt(index);
+            if (value > hi) {
+                return;
+            }
+            visitor.accept(value);
+        }
+    }
+
+    /**
+     * Visit every value in ascending order
+     * @param visitor receives each value
+     */
+    public void inorderTraversal(IntConsumer visitor) {
+        ensureOpen();
+        for (int index = 0; index < size; index++) {
+            visitor.accept(valueAt(index));
+        }
+    }
+
+    /**
+     * Copy the values into a mutable heap tree
+     * One bulk copy plus an O(n) balanced build; no per-key descents
+     * @return a new balanced BinarySearchTree
+     * @throws IOException if the values are not strictly ascending
+     */
+    public BinarySearchTree toBinarySearchTree() throws IOException {
+        ensureOpen();
+        int[] sorted = new int[size];
+        for (int i = 0; i < chunks.length; i++) {
+            IntBuffer chunk = chunks[i].duplicate();
+            chunk.get(sorted, i << CHUNK_SHIFT, chunk.remaining());
+        }
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] <= sorted[i - 1]) {
+                throw new IOException("Corrupt BST snapshot (values not ascending at index " + i + ")");
+            }
+        }
+        return BinarySearchTree.fromSorted(sorted);
+    }
+
+    /**
+     * Get the number of values in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Release the mapping; any later query throws IllegalStateException
+     * The JVM unmaps the file once the dropped buffers are collected.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) throws IOException {
+        int[] sorted = new int[1_000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i * 3;
+        }
+        BinarySearchTree tree = BinarySearchTree.fromSorted(sorted);
+
+        Path file = Files.createTempFile("bst", ".snapshot");
+        try {
+            tree.writeSnapshot(file);
+            System.out.printf("Wrote %,d keys (%,d bytes)%n", tree.size(), Files.size(file));
+
+            try (MappedBinarySearchTree mapped = MappedBinarySearchTree.open(file)) {
+                System.out.println("Search 300: " + mapped.search(300));
+                System.out.println("Floor of 100: " + mapped.floor(100).getAsInt());
+                System.out.println("Rank of 300: " + mapped.rank(300));
+            }
+
+            BinarySearchTree reloaded = BinarySearchTree.readSnapshot(file);
+            System.out.println("Reloaded into a heap tree of " + reloaded.size() + " keys");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Off-heap Binary Search Tree implementation in Java
+ * Same operations as BinarySearchTree, but every node lives in direct
+ * {@link ByteBuffer} chunks, so the Java heap holds only a small table of
+ * buffer references no matter how many keys are stored.
+ * {@link #close()} frees the native memory of every chunk at once through
+ * the JDK's buffer cleaner (sun.misc.Unsafe.invokeCleaner in the
+ * jdk.unsupported module), without waiting for a GC. On a runtime without
+ * that module close only drops the chunks, and their memory is freed once
+ * the buffers are collected. Every operation except close and toString
+ * throws IllegalStateException afterwards.
+ */
+public class OffHeapBinarySearchTree implements AutoCloseable {
+
+    /** Index used as the null link */
+    private static final int NIL = -1;
+
+    /** Node layout: value, left index, right index - 12 bytes per node */
+    private static final int NODE_BYTES = 12;
+    private static final int VALUE_OFFSET = 0;
+    private static final int LEFT_OFFSET = 4;
+    private static final int RIGHT_OFFSET = 8;
+
+    /** Nodes per chunk; storage grows one chunk at a time, never by copying */
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** Frees a direct buffer's memory at once, or null if unavailable */
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private boolean closed;
+
+    private int root = NIL;
+    private int size;
+    private int allocated; // slots handed out so far, including freed ones
+    private int freeList = NIL; // freed slots, chained through the left field
+
+    /**
+     * Constructor - creates an empty tree; no native memory is reserved
+     * until the first insert
+     */
+    public OffHeapBinarySearchTree() {
+    }
+
+    /**
+     * Look up Unsafe.invokeCleaner, bound to the Unsafe instance
+     * @return handle taking a ByteBuffer, or null if jdk.unsupported is missing
+     */
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private ByteBuffer chunk(int node) {
+        return chunks[node >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int node) {
+        return (node & CHUNK_MASK) * NODE_BYTES;
+    }
+
+    private int value(int node) {
+        return chunk(node).getInt(offset(node) + VALUE_OFFSET);
+    }
+
+    private int left(int node) {
+        return chunk(node).getInt(offset(node) + LEFT_OFFSET);
+    }
+
+    private int right(int node) {
+        return chunk(node).getInt(offset(node) + RIGHT_OFFSET);
+    }
+
+    private void setValue(int node, int value) {
+        chunk(node).putInt(offset(node) + VALUE_OFFSET, value);
+    }
+
+    private void setLeft(int node, int child) {
+        chunk(node).putInt(offset(node) + LEFT_OFFSET, child);
+    }
+
+    private void setRight(int node, int child) {
+        chunk(node).putInt(offset(node) + RIGHT_OFFSET, child);
+    }
+
+    /**
+     * Fail fast once the native memory has been released
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Tree has been closed");
+        }
+    }
+
+    /**
+     * Allocate a leaf node, reusing a freed slot when one is available
+     * @param value the value to store
+     * @return index of the new node
+     */
+    private int newNode(int value) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left(node);
+        } else {
+            if (allocated == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Tree is full");
+            }
+            node = allocated++;
+            if ((node >>> CHUNK_SHIFT) == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_SIZE * NODE_BYTES)
+                        .order(ByteOrder.nativeOrder());
+            }
+        }
+        setValue(node, value);
+        setLeft(node, NIL);
+        setRight(node, NIL);
+        return node;
+    }
+
+    /**
+     * Return a slot to the free list
+     * @param node index of the unlinked node
+     */
+    private void freeNode(int node) {
+        setLeft(node, freeList);
+        freeList = node;
+    }
+
+    /**
+     * Insert a new value into the tree
+     * @param value the value to insert
+     */
+    public void insert(int value) {
+        ensureOpen();
+        if (root == NIL) {
+            root = newNode(value);
+            size++;
+            return;
+        }
+
+        int node = root;
+        while (true) {
+            int nodeValue = value(node);
+            if (value < nodeValue) {
+                int child = left(node);
+                if (child == NIL) {
+                    setLeft(node, newNode(value));
+                    size++;
+                    return;
+                }
+                node = child;
+            } else if (value > nodeValue) {
+                int child = right(node);
+                if (child == NIL) {
+                    setRight(node, newNode(value));
+                    size++;
+                    return;
+                }
+                node = child;
+            } else {
+                // If value == node.value, do nothing (no duplicates)
+                return;
+            }
+        }
+    }
+
+    /**
+     * Search for a value in the tree
+     * @param value the value to search for
+     * @return true if found, false otherwise
+     */
+    public boolean search(int value) {
+        ensureOpen();
+        int node = root;
+        while (node != NIL) {
+            int nodeValue = value(node);
+            if (value == nodeValue) {
+                return true;
+            }
+            node = value < nodeValue ? left(node) : right(node);
+        }
+        return false;
+    }
+
+    /**
+     * Delete a value from the tree
+     * @param value the value to delete
+     */
+    public void delete(int value) {
+        ensureOpen();
+        int parent = NIL;
+        int node = root;
+        while (node != NIL && value != value(node)) {
+            parent = node;
+            node = value < value(node) ? left(node) : right(node);
+        }
+
+        // Value not found
+        if (node == NIL) {
+            return;
+        }
+
+        // Node has two children: copy the inorder successor up, then remove
+        // the successor instead (it has no left child)
+        if (left(node) != NIL && right(node) != NIL) {
+            int successorParent = node;
+            int successor = right(node);
+            while (left(successor) != NIL) {
+                successorParent = successor;
+                successor = left(successor);
+            }
+            setValue(node, value(successor));
+            parent = successorParent;
+            node = successor;
+        }
+
+        int child = left(node) != NIL ? left(node) : right(node);
+        if (parent == NIL) {
+            root = child;
+        } else if (left(parent) == node) {
+            setLeft(parent, child);
+        } else {
+            setRight(parent, child);
+        }
+        freeNode(node);
+        size--;
+    }
+
+    /**
+     * Perform inorder traversal (left, root, right)
+     * @return list of values in inorder
+     */
+    public List<Integer> inorderTraversal() {
+        ensureOpen();
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+            node = stack.pop();
+            result.add(value(node));
+            node = right(node);
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform preorder traversal (root, left, right)
+     * @return list of values in preorder
+     */
+    public List<Integer> preorderTraversal() {
+        ensureOpen();
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        if (root != NIL) {
+            stack.push(root);
+        }
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            result.add(value(node));
+            if (right(node) != NIL) {
+                stack.push(right(node));
+            }
+            if (left(node) != NIL) {
+                stack.push(left(node));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform postorder traversal (left, right, root)
+     * @return list of values in postorder
+     */
+    public List<Integer> postorderTraversal() {
+        ensureOpen();
+        List<Integer> result = new ArrayList<>(size);
+        IntStack stack = new IntStack();
+        int lastVisited = NIL;
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+
+            int top = stack.peek();
+            if (right(top) != NIL && right(top) != lastVisited) {
+                node = right(top);
+            } else {
+                result.add(value(top));
+                lastVisited = stack.pop();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform level-order traversal (breadth-first)
+     * @return list of values in level-order
+     */
+    public List<Integer> levelOrderTraversal() {
+        ensureOpen();
+        List<Integer> result = new ArrayList<>(size);
+        if (root == NIL) {
+            return result;
+        }
+
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+
+        while (head < tail) {
+            int node = queue[head++];
+            result.add(value(node));
+            if (left(node) != NIL) {
+                queue[tail++] = left(node);
+            }
+            if (right(node) != NIL) {
+                queue[tail++] = right(node);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the height of the tree
+     * Walks depth-first with an explicit stack so the heap cost is O(height)
+     * @return the height of the tree, -1 for an empty tree
+     */
+    public int height() {
+        ensureOpen();
+        IntStack stack = new IntStack();
+        IntStack depths = new IntStack();
+        int height = -1;
+        if (root != NIL) {
+            stack.push(root);
+            depths.push(0);
+        }
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            int depth = depths.pop();
+            height = Math.max(height, depth);
+            if (right(node) != NIL) {
+                stack.push(right(node));
+                depths.push(depth + 1);
+            }
+            if (left(node) != NIL) {
+                stack.push(left(node));
+                depths.push(depth + 1);
+            }
+        }
+
+        return height;
+    }
+
+    /**
+     * Check if the tree is balanced
+     * @return true if balanced, false otherwise
+     */
+    public boolean isBalanced() {
+        ensureOpen();
+        IntStack stack = new IntStack();
+        IntStack heights = new IntStack();
+        int lastVisited = NIL;
+        int node = root;
+
+        while (node != NIL || !stack.isEmpty()) {
+            while (node != NIL) {
+                stack.push(node);
+                node = left(node);
+            }
+
+            int top = stack.peek();
+            if (right(top) != NIL && right(top) != lastVisited) {
+                node = right(top);
+                continue;
+            }
+
+            int rightHeight = right(top) != NIL ? heights.pop() : 0;
+            int leftHeight = left(top) != NIL ? heights.pop() : 0;
+            if (Math.abs(leftHeight - rightHeight) > 1) {
+                return false;
+            }
+            heights.push(1 + Math.max(leftHeight, rightHeight));
+            lastVisited = stack.pop();
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of nodes in the tree
+     * @return the size of the tree
+     */
+    public int size() {
+        ensureOpen();
+        return size;
+    }
+
+    /**
+     * Check if the tree is empty
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        ensureOpen();
+        return root == NIL;
+    }
+
+    /**
+     * Remove all values; the native chunks are kept for reuse until close
+     */
+    public void clear() {
+        ensureOpen();
+        root = NIL;
+        size = 0;
+        allocated = 0;
+        freeList = NIL;
+    }
+
+    /**
+     * Get the amount of native memory reserved by the tree
+     * @return reserved off-heap bytes
+     */
+    public long offHeapBytes() {
+        ensureOpen();
+        return (long) chunks.length * CHUNK_SIZE * NODE_BYTES;
+    }
+
+    /**
+     * Free all native chunks held by the tree
+     * Idempotent; every other operation except toString fails once the tree
+     * is closed, so nothing can read the freed memory
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            ByteBuffer[] released = chunks;
+            chunks = new ByteBuffer[0];
+            root = NIL;
+            size = 0;
+            if (INVOKE_CLEANER != null) {
+                for (ByteBuffer chunk : released) {
+                    free(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Free a chunk's native memory now
+     * @param chunk a buffer from allocateDirect that is never used again
+     */
+    private static void free(ByteBuffer chunk) {
+        try {
+            INVOKE_CLEANER.invokeExact(chunk);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError("invokeCleaner does not throw checked exceptions", e);
+        }
+    }
+
+    /**
+     * Get a string representation of the tree
+     * @return string representation
+     */
+    @Override
+    public String toString() {
+        if (closed) {
+            return "Closed BST";
+        }
+        if (root == NIL) {
+            return "Empty BST";
+        }
+
+        StringBuilder result = new StringBuilder();
+        IntStack stack = new IntStack();
+        IntStack depths = new IntStack();
+        stack.push(root);
+        depths.push(0);
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            int depth = depths.pop();
+            for (int i = 0; i < depth; i++) {
+                result.append("  ");
+            }
+            result.append(value(node)).append("\n");
+
+            if (right(node) != NIL) {
+                stack.push(right(node));
+                depths.push(depth + 1);
+            }
+            if (left(node) != NIL) {
+                stack.push(left(node));
+                depths.push(depth + 1);
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Growable stack of primitive ints used by the iterative traversals
+     */
+    private static class IntStack {
+        private int[] items = new int[16];
+        private int count;
+
+        void push(int item) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = item;
+        }
+
+        int pop() {
+            return items[--count];
+        }
+
+        int peek() {
+            return items[count - 1];
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    /**
+     * Main method for demonstration
+     */
+    public static void main(String[] args) {
+        try (OffHeapBinarySearchTree tree = new OffHeapBinarySearchTree()) {
+            int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+            System.out.println("Inserting values: " + Arrays.toString(values));
+            for (int value : values) {
+                tree.insert(value);
+            }
+
+            System.out.println("\nTree structure:");
+            System.out.print(tree.toString());
+            System.out.println("Inorder traversal: " + tree.inorderTraversal());
+            System.out.println("Search 40: " + tree.search(40));
+            tree.delete(30);
+            System.out.println("Inorder after deleting 30: " + tree.inorderTraversal());
+            System.out.printf("Off-heap reserved: %,d bytes%n", tree.offHeapBytes());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Test suite for the self-balancing AVLTree implementation
+ */
+public class AVLTreeTest {
+
+    private AVLTree avl;
+
+    @BeforeEach
+    void setUp() {
+        avl = new AVLTree();
+    }
+
+    @Test
+    @DisplayName("Test sorted insertion stays logarithmic")
+    void testSortedInsertionStaysLogarithmic() {
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            avl.insert(i);
+        }
+
+        assertEquals(n, avl.size(), "Size should match number of inserted keys");
+        assertTrue(avl.isBalanced(), "Tree should be balanced after sorted insertion");
+        // AVL height bound: h < 1.44 * log2(n + 2)
+        assertTrue(avl.height() < 1.44 * Math.log(n + 2) / Math.log(2),
+                   "Height " + avl.height() + " should be O(log n)");
+    }
+
+    @Test
+    @DisplayName("Test reverse-sorted insertion stays logarithmic")
+    void testReverseSortedInsertionStaysLogarithmic() {
+        int n = 100_000;
+        for (int i = n; i > 0; i--) {
+            avl.insert(i);
+        }
+
+        assertTrue(avl.isBalanced(), "Tree should be balanced after reverse-sorted insertion");
+        assertTrue(avl.height() < 1.44 * Math.log(n + 2) / Math.log(2),
+                   "Height " + avl.height() + " should be O(log n)");
+    }
+
+    @Test
+    @DisplayName("Test rotations on small inputs")
+    void testRotations() {
+        // Right-right case
+        avl.insert(10);
+        avl.insert(20);
+        avl.insert(30);
+        assertEquals(20, avl.root.value, "Left rotation should lift 20 to the root");
+
+        // Left-right case
+        AVLTree leftRight = new AVLTree();
+        leftRight.insert(30);
+        leftRight.insert(10);
+        leftRight.insert(20);
+        assertEquals(20, leftRight.root.value, "Double rotation should lift 20 to the root");
+        assertEquals(Arrays.asList(20, 10, 30), leftRight.preorderTraversal());
+    }
+
+    @Test
+    @DisplayName("Test duplicates are ignored")
+    void testDuplicatesIgnored() {
+        avl.insert(5);
+        avl.insert(5);
+        assertEquals(1, avl.size(), "Duplicate insert should not change size");
+    }
+
+    @Test
+    @DisplayName("Test random operations match a reference set")
+    void testRandomOperationsMatchReference() {
+        Random random = new Random(12345);
+        TreeSet<Integer> reference = new TreeSet<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                avl.delete(value);
+                reference.remove(value);
+            } else {
+                avl.insert(value);
+                reference.add(value);
+            }
+        }
+
+        assertEquals(new ArrayList<>(reference), avl.inorderTraversal(), "Inorder should match reference set");
+        assertEquals(reference.size(), avl.size(), "Size should match reference set");
+        assertTrue(avl.isBalanced(), "Tree should stay balanced under mixed operations");
+        for (int value = 0; value < 2_000; value++) {
+            assertEquals(reference.contains(value), avl.search(value), "Search mismatch for " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("Test empty tree behaviour")
+    void testEmptyTree() {
+        assertTrue(avl.isEmpty(), "New tree should be empty");
+        assertEquals(-1, avl.height(), "Height of empty tree should be -1");
+        assertFalse(avl.search(1), "Search in empty tree should return false");
+        assertDoesNotThrow(() -> avl.delete(1), "Deleting from empty tree should not throw exception");
+        assertEquals("Empty AVL", avl.toString());
+        assertTrue(avl.levelOrderTraversal().isEmpty(), "Level-order traversal of empty tree should be empty");
+    }
+
+    @Test
+    @DisplayName("Test clear operation")
+    void testClearOperation() {
+        for (int i = 0; i < 10; i++) {
+            avl.insert(i);
+        }
+        avl.clear();
+        assertTrue(avl.isEmpty(), "Tree should be empty after clear");
+        assertEquals(0, avl.size(), "Size should be 0 after clear");
+    }
+}
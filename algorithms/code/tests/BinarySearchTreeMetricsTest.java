@@ -0,0 +1,169 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Test suite for BinarySearchTreeMetrics histograms, tree hooks and JFR events
+ */
+public class BinarySearchTreeMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test histogram buckets and percentiles")
+    void testHistogram() {
+        BinarySearchTreeMetrics.Histogram histogram = new BinarySearchTreeMetrics().get(
+            BinarySearchTreeMetrics.Operation.SEARCH).depth;
+        assertEquals(0, histogram.percentile(50), "Empty histogram percentile should be 0");
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(0);
+
+        assertEquals(101, histogram.count(), "Count should include every value");
+        assertEquals(5050 / 101.0, histogram.mean(), 1e-9, "Mean should be exact");
+        assertEquals(100, histogram.max(), "Max should be exact");
+        assertEquals(63, histogram.percentile(50), "Median 50 falls in the [32, 64) bucket");
+        assertEquals(100, histogram.percentile(100), "Top percentile should be capped at max");
+    }
+
+    @Test
+    @DisplayName("Test recorded operations land in their own histograms")
+    void testRecordByOperation() {
+        BinarySearchTreeMetrics metrics = new BinarySearchTreeMetrics(Long.MAX_VALUE);
+        BinarySearchTree tree = new BinarySearchTree();
+        metrics.record(BinarySearchTreeMetrics.Operation.INSERT, 1, 500, 3, 3, 3, tree);
+        metrics.record(BinarySearchTreeMetrics.Operation.SEARCH, 1, 200, 4, 4, 3, tree);
+        metrics.record(BinarySearchTreeMetrics.Operation.SEARCH, 2, 300, 2, 2, 1, tree);
+
+        assertEquals(1, metrics.get(BinarySearchTreeMetrics.Operation.INSERT).latencyNanos.count(),
+                     "One insert should be recorded");
+        assertEquals(2, metrics.get(BinarySearchTreeMetrics.Operation.SEARCH).comparisons.count(),
+                     "Two searches should be recorded");
+        assertEquals(0, metrics.get(BinarySearchTreeMetrics.Operation.DELETE).depth.count(),
+                     "No deletes should be recorded");
+        assertEquals(0, metrics.slowOperations(), "Nothing should count as slow");
+
+        metrics.reset();
+        assertEquals(0, metrics.get(BinarySearchTreeMetrics.Operation.SEARCH).nodesVisited.count(),
+                     "Reset should clear every histogram");
+    }
+
+    @Test
+    @DisplayName("Test slow operations emit JFR events")
+    void testSlowOperationEvent() throws IOException {
+        BinarySearchTreeMetrics metrics = new BinarySearchTreeMetrics(1_000);
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.insert(7);
+        Path file = tempDir.resolve("bst.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("bst.SlowOperation");
+            recording.start();
+            metrics.record(BinarySearchTreeMetrics.Operation.SEARCH, 7, 999, 1, 1, 0, tree);
+            metrics.record(BinarySearchTreeMetrics.Operation.SEARCH, 7, 5_000, 1, 1, 0, tree);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("bst.SlowOperation")) {
+                events.add(event);
+            }
+        }
+        assertEquals(1, events.size(), "Only the operation over the threshold should be emitted");
+        assertEquals("SEARCH", events.get(0).getString("operation"), "Event should name the operation");
+        assertEquals(7, events.get(0).getInt("value"), "Event should carry the value");
+        assertEquals(1, events.get(0).getInt("treeSize"), "Event should carry the tree size");
+        assertEquals(1, metrics.slowOperations(), "Slow count should match");
+    }
+
+    @Test
+    @DisplayName("Test metrics cannot be attached while instrumentation is off")
+    void testDisabledRejectsMetrics() {
+        assumeFalse(BinarySearchTreeMetrics.ENABLED, "Only meaningful without -Dbst.instrumentation=true");
+        assertThrows(IllegalStateException.class, () -> new BinarySearchTree().setMetrics(new BinarySearchTreeMetrics()),
+                     "Attaching metrics should fail when instrumentation is off");
+    }
+
+    @Test
+    @DisplayName("Test instrumented tree reports visits, comparisons and depth")
+    void testInstrumentedTree() throws IOException, InterruptedException, URISyntaxException {
+        if (BinarySearchTreeMetrics.ENABLED) {
+            checkInstrumentedTree();
+            return;
+        }
+        // The switch is static final, so it takes a JVM started with it on.
+        // Launchers such as the console standalone jar load the tests from
+        // their own class loader, so the classpath is rebuilt from where the
+        // test, the tree and JUnit were actually loaded
+        Set<String> classPath = new LinkedHashSet<>();
+        for (Class<?> type : new Class<?>[]{BinarySearchTreeMetricsTest.class, BinarySearchTree.class, Assertions.class}) {
+            CodeSource source = type.getProtectionDomain().getCodeSource();
+            assumeTrue(source != null && source.getLocation() != null, "No code source for " + type.getName());
+            classPath.add(Path.of(source.getLocation().toURI()).toString());
+        }
+        Path log = tempDir.resolve("instrumented.log");
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                                             "-Dbst.instrumentation=true",
+                                             "-cp", String.join(File.pathSeparator, classPath),
+                                             BinarySearchTreeMetricsTest.class.getName())
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            fail("Forked instrumented JVM did not finish");
+        }
+        assertEquals(0, process.exitValue(), "Instrumented checks failed in the forked JVM:\n" + Files.readString(log));
+    }
+
+    /**
+     * Entry point of the JVM forked by testInstrumentedTree; exits non-zero
+     * if a check fails
+     */
+    public static void main(String[] args) {
+        if (!BinarySearchTreeMetrics.ENABLED) {
+            throw new IllegalStateException("Run with -Dbst.instrumentation=true");
+        }
+        checkInstrumentedTree();
+    }
+
+    private static void checkInstrumentedTree() {
+        BinarySearchTreeMetrics metrics = new BinarySearchTreeMetrics(Long.MAX_VALUE);
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.setMetrics(metrics);
+        for (int value : new int[]{50, 30, 70, 20}) {
+            tree.insert(value);
+        }
+        tree.search(20);
+        tree.delete(50);
+
+        BinarySearchTreeMetrics.OperationStats inserts = metrics.get(BinarySearchTreeMetrics.Operation.INSERT);
+        assertEquals(4, inserts.depth.count(), "Every insert should be recorded");
+        assertEquals(2, inserts.depth.max(), "Deepest insert should be at depth 2");
+        BinarySearchTreeMetrics.OperationStats searches = metrics.get(BinarySearchTreeMetrics.Operation.SEARCH);
+        assertEquals(3, searches.comparisons.max(), "Search for 20 should compare three keys");
+        BinarySearchTreeMetrics.OperationStats deletes = metrics.get(BinarySearchTreeMetrics.Operation.DELETE);
+        assertEquals(1, deletes.comparisons.max(), "Deleting the root should compare one key");
+        assertEquals(2, deletes.nodesVisited.max(), "Deleting the root should also visit its successor");
+    }
+}
@@ -3,8 +3,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
 
 /**
  * Comprehensive test suite for BinarySearchTree implementation
@@ -401,4 +411,1240 @@ public class BinarySearchTreeTest {
         assertFalse(inorder.isEmpty(), "Inorder traversal should not be empty");
         assertTrue(inorder.size() == 8, "Inorder traversal should have 8 elements");
     }
+    
+    @Test
+    @DisplayName("Test degenerate tree does not overflow the stack")
+    void testDegenerateTreeIsStackSafe() {
+        // Sorted input produces a right-leaning chain as deep as the tree is large
+        int n = 50_000;
+        for (int i = 0; i < n; i++) {
+            bst.insert(i);
+        }
+        
+        assertEquals(n, bst.size(), "Size should count every node of the chain");
+        assertEquals(n - 1, bst.height(), "Height of a chain should be n - 1");
+        assertFalse(bst.isBalanced(), "Chain should not be balanced");
+        assertTrue(bst.search(n - 1), "Should find the deepest value");
+        assertFalse(bst.search(n), "Should not find value past the end");
+        
+        assertEquals(n, bst.inorderTraversal().size(), "Inorder should visit every node");
+        assertEquals(n, bst.preorderTraversal().size(), "Preorder should visit every node");
+        assertEquals(n, bst.postorderTraversal().size(), "Postorder should visit every node");
+        assertEquals(n - 1, (int) bst.postorderTraversal().get(0), "Postorder should start at the deepest node");
+        
+        bst.delete(n - 1);
+        bst.delete(0);
+        assertEquals(n - 2, bst.size(), "Size should drop after deleting both ends");
+    }
+    
+    @Test
+    @DisplayName("Test string representation layout")
+    void testStringRepresentationLayout() {
+        int[] values = {50, 30, 70, 20, 40, 60};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        
+        String expected = "50\n  30\n    20\n    40\n  70\n    60\n";
+        assertEquals(expected, bst.toString(), "Preorder layout with two-space indentation per level");
+    }
+    
+    @Test
+    @DisplayName("Test streaming text output with depth and node limits")
+    void testWriteToLimits() throws IOException {
+        for (int value : new int[]{50, 30, 70, 20, 40, 60}) {
+            bst.insert(value);
+        }
+        StringBuilder full = new StringBuilder();
+        bst.writeTo(full, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(bst.toString(), full.toString(), "Unlimited output should match toString");
+        
+        StringBuilder shallow = new StringBuilder();
+        bst.writeTo(shallow, 1, Integer.MAX_VALUE);
+        assertEquals("50\n  30 ...\n  70 ...\n", shallow.toString(), "Cut subtrees should be marked");
+        
+        StringBuilder few = new StringBuilder();
+        bst.writeTo(few, Integer.MAX_VALUE, 3);
+        assertEquals("50\n  30\n    20\n...\n", few.toString(), "Output should stop after the node limit");
+        
+        StringBuilder exact = new StringBuilder();
+        bst.writeTo(exact, Integer.MAX_VALUE, 6);
+        assertEquals(full.toString(), exact.toString(), "A limit equal to the size should not cut anything");
+    }
+    
+    @Test
+    @DisplayName("Test DOT export")
+    void testWriteDot() throws IOException {
+        StringBuilder empty = new StringBuilder();
+        bst.writeDot(empty, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals("digraph BST {\n  node [shape=circle];\n}\n", empty.toString(), "Empty tree should give an empty graph");
+        
+        for (int value : new int[]{50, 30, 70, -20}) {
+            bst.insert(value);
+        }
+        StringBuilder dot = new StringBuilder();
+        bst.writeDot(dot, 1, Integer.MAX_VALUE);
+        String expected = "digraph BST {\n"
+                        + "  node [shape=circle];\n"
+                        + "  \"50\";\n"
+                        + "  \"30\" [style=dashed];\n"
+                        + "  \"50\" -> \"30\" [tailport=sw];\n"
+                        + "  \"70\";\n"
+                        + "  \"50\" -> \"70\" [tailport=se];\n"
+                        + "}\n";
+        assertEquals(expected, dot.toString(), "DOT output should declare nodes and side-tagged edges");
+        
+        StringBuilder cut = new StringBuilder();
+        bst.writeDot(cut, Integer.MAX_VALUE, 1);
+        assertTrue(cut.toString().contains("// ... more nodes not shown"), "Node limit should be noted");
+        assertTrue(cut.toString().endsWith("}\n"), "Graph should be closed after a cut");
+    }
+    
+    @Test
+    @DisplayName("Test limited output of a huge degenerate tree stays small")
+    void testWriteToDegenerateTree() throws IOException {
+        // The limits, not the chain, bound the output, so a chain a few
+        // times deeper than them is enough; building it is quadratic
+        for (int i = 0; i < 5_000; i++) {
+            bst.insert(i);
+        }
+        StringBuilder out = new StringBuilder();
+        bst.writeTo(out, 9, Integer.MAX_VALUE);
+        assertEquals(10, out.toString().split("\n").length, "Only levels 0 to 9 should be written");
+        assertTrue(out.toString().endsWith("9 ...\n"), "Deepest written node should be marked as cut");
+        
+        out.setLength(0);
+        bst.writeTo(out, Integer.MAX_VALUE, 1_000);
+        String[] lines = out.toString().split("\n");
+        assertEquals(1_001, lines.length, "Lines should stop at the node limit");
+        assertEquals("...", lines[1_000], "Node limit cut should be marked");
+        
+        StringBuilder dot = new StringBuilder();
+        bst.writeDot(dot, Integer.MAX_VALUE, 1_000);
+        assertEquals(1_000, dot.toString().split("tailport").length, "Edges should stop at the node limit");
+        assertTrue(dot.toString().endsWith("  // ... more nodes not shown\n}\n"), "Node limit cut should be marked");
+    }
+    
+    @Test
+    @DisplayName("Test compact encoding round-trips into a balanced tree")
+    void testCompactRoundTrip() throws IOException {
+        assertEquals(0, roundTrip(bst).size(), "Empty tree should round-trip");
+        
+        int[] values = {Integer.MIN_VALUE, -70_000, -1, 0, 1, 129, 1 << 20, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        BinarySearchTree decoded = roundTrip(bst);
+        assertArrayEquals(values, decoded.inorderArray(), "Extreme values should round-trip");
+        assertTrue(decoded.isBalanced(), "Decoded tree should be balanced");
+        assertMetadataMatchesRecount(decoded, "after decoding");
+        decoded.insert(5);
+        assertEquals(values.length + 1, decoded.size(), "Decoded tree should be writable");
+        
+        Random random = new Random(37);
+        BinarySearchTree sparse = new BinarySearchTree();
+        for (int i = 0; i < 10_000; i++) {
+            sparse.insert(random.nextInt());
+        }
+        assertArrayEquals(sparse.inorderArray(), roundTrip(sparse).inorderArray(), "Random values should round-trip");
+    }
+    
+    @Test
+    @DisplayName("Test compact encoding of dense keys and stream framing")
+    void testCompactSizeAndFraming() throws IOException {
+        int[] dense = new int[100_000];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = 1_000_000 + 2 * i;
+        }
+        BinarySearchTree tree = BinarySearchTree.fromSorted(dense);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.writeCompact(out);
+        assertTrue(out.size() < dense.length + 32, "Dense keys should take about one byte each, took " + out.size());
+        
+        // A second payload and a trailer after the first one stay readable
+        bst.writeCompact(out);
+        out.write(42);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertArrayEquals(dense, BinarySearchTree.readCompact(in).inorderArray(), "First payload should decode");
+        assertTrue(BinarySearchTree.readCompact(in).isEmpty(), "Second payload should decode");
+        assertEquals(42, in.read(), "Reader should stop exactly at the end of the payload");
+    }
+    
+    @Test
+    @DisplayName("Test corrupt compact payloads are rejected")
+    void testCompactCorruption() throws IOException {
+        for (int value : new int[]{10, 20, 30}) {
+            bst.insert(value);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bst.writeCompact(out);
+        byte[] payload = out.toByteArray();
+        
+        byte[] badMagic = payload.clone();
+        badMagic[0] ^= 1;
+        assertThrows(IOException.class, () -> BinarySearchTree.readCompact(new ByteArrayInputStream(badMagic)),
+                     "Bad magic should be rejected");
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 1);
+        assertThrows(EOFException.class, () -> BinarySearchTree.readCompact(new ByteArrayInputStream(truncated)),
+                     "Truncated body should be rejected");
+        byte[] longGap = payload.clone();
+        longGap[longGap.length - 1] |= (byte) 0x80;
+        assertThrows(IOException.class, () -> BinarySearchTree.readCompact(new ByteArrayInputStream(longGap)),
+                     "Varint running past the body should be rejected");
+        
+        BinarySearchTree top = new BinarySearchTree();
+        top.insert(Integer.MAX_VALUE - 1);
+        top.insert(Integer.MAX_VALUE);
+        out.reset();
+        top.writeCompact(out);
+        byte[] overflow = out.toByteArray();
+        overflow[overflow.length - 1] = 1; // gap of 2 past MAX_VALUE - 1
+        assertThrows(IOException.class, () -> BinarySearchTree.readCompact(new ByteArrayInputStream(overflow)),
+                     "Values past the int range should be rejected");
+    }
+    
+    private static BinarySearchTree roundTrip(BinarySearchTree tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.writeCompact(out);
+        return BinarySearchTree.readCompact(new ByteArrayInputStream(out.toByteArray()));
+    }
+    
+    @Test
+    @DisplayName("Test deleting the root repeatedly")
+    void testDeleteRootRepeatedly() {
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        
+        List<Integer> remaining = new ArrayList<>(Arrays.asList(20, 30, 40, 50, 60, 70, 80));
+        while (!bst.isEmpty()) {
+            int rootValue = bst.root.value;
+            bst.delete(rootValue);
+            remaining.remove(Integer.valueOf(rootValue));
+            assertEquals(remaining, bst.inorderTraversal(), "Inorder should stay sorted after deleting root " + rootValue);
+        }
+    }
+    
+    @Test
+    @DisplayName("Test size stays in sync under random operations")
+    void testSizeMatchesReferenceUnderRandomOperations() {
+        Random random = new Random(2024);
+        TreeSet<Integer> reference = new TreeSet<>();
+        
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                bst.insert(value);
+                reference.add(value);
+            } else {
+                bst.delete(value);
+                reference.remove(value);
+            }
+            assertEquals(reference.size(), bst.size(), "Size mismatch after operation " + i);
+        }
+        assertEquals(new ArrayList<>(reference), bst.inorderTraversal(), "Contents should match reference set");
+    }
+    
+    @Test
+    @DisplayName("Test rank, select and countInRange")
+    void testRankSelectAndCountInRange() {
+        int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        List<Integer> sorted = bst.inorderTraversal();
+        
+        for (int k = 0; k < sorted.size(); k++) {
+            assertEquals((int) sorted.get(k), bst.select(k), "select(" + k + ") should be the k-th smallest");
+            assertEquals(k, bst.rank(sorted.get(k)), "rank should invert select");
+        }
+        assertEquals(0, bst.rank(Integer.MIN_VALUE), "Nothing is smaller than MIN_VALUE");
+        assertEquals(3, bst.rank(26), "10, 20, 25 are below 26");
+        assertEquals(11, bst.rank(Integer.MAX_VALUE), "Everything is smaller than MAX_VALUE");
+        
+        assertEquals(5, bst.countInRange(25, 45), "25, 30, 35, 40, 45 are in [25, 45]");
+        assertEquals(0, bst.countInRange(46, 49), "No values in [46, 49]");
+        assertEquals(0, bst.countInRange(60, 50), "Empty range when lo > hi");
+        assertEquals(11, bst.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE), "Full range covers every value");
+        
+        assertThrows(IndexOutOfBoundsException.class, () -> bst.select(11));
+        assertThrows(IndexOutOfBoundsException.class, () -> bst.select(-1));
+    }
+    
+    @Test
+    @DisplayName("Test snapshot is unaffected by later mutations")
+    void testSnapshotIsolation() {
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        
+        BinarySearchTree snapshot = bst.snapshot();
+        List<Integer> frozenInorder = snapshot.inorderTraversal();
+        List<Integer> frozenPreorder = snapshot.preorderTraversal();
+        
+        bst.insert(35);
+        bst.delete(30);
+        bst.delete(50);
+        bst.insert(90);
+        
+        assertEquals(frozenInorder, snapshot.inorderTraversal(), "Snapshot contents should not change");
+        assertEquals(frozenPreorder, snapshot.preorderTraversal(), "Snapshot shape should not change");
+        assertEquals(7, snapshot.size(), "Snapshot size should not change");
+        assertTrue(snapshot.search(30), "Snapshot should still see deleted value");
+        assertFalse(snapshot.search(90), "Snapshot should not see later insert");
+        assertEquals(3, snapshot.rank(50), "Order statistics should work on snapshots");
+        
+        assertEquals(Arrays.asList(20, 35, 40, 60, 70, 80, 90), bst.inorderTraversal(), "Live tree should see all mutations");
+        assertEquals(7, bst.size(), "Live tree size should reflect mutations");
+    }
+    
+    @Test
+    @DisplayName("Test snapshots are read-only")
+    void testSnapshotIsReadOnly() {
+        bst.insert(1);
+        BinarySearchTree snapshot = bst.snapshot();
+        
+        assertTrue(snapshot.isReadOnly(), "Snapshot should be read-only");
+        assertFalse(bst.isReadOnly(), "Source tree should stay writable");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.insert(2));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.delete(1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.clear());
+        assertSame(snapshot, snapshot.snapshot(), "Snapshot of a snapshot is itself");
+    }
+    
+    @Test
+    @DisplayName("Test duplicate inserts and missed deletes leave shared nodes and cursors alone")
+    void testNoOpUpdatesDoNotCopy() {
+        for (int value : new int[]{50, 30, 70, 20, 40}) {
+            bst.insert(value);
+        }
+        bst.snapshot();
+        BinarySearchTree.TreeNode root = bst.root;
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        assertTrue(cursor.search(40), "Cursor should find 40");
+    
+        bst.insert(40);
+        bst.delete(45);
+        assertSame(root, bst.root, "No-op updates should not copy the shared path");
+        assertEquals(5, bst.size(), "No-op updates should keep the size");
+        assertTrue(cursor.search(20), "Cursor should still work after no-op updates");
+        assertMetadataMatchesRecount(bst, "after no-op updates");
+    
+        bst.insert(45);
+        assertNotSame(root, bst.root, "A real insert should copy the shared root");
+        assertTrue(root.size == 5 && bst.root.size == 6, "Only the copy should count the new value");
+        bst.delete(45);
+        assertEquals(List.of(20, 30, 40, 50, 70), bst.inorderTraversal(), "Delete should undo the insert");
+        assertMetadataMatchesRecount(bst, "after a real insert and delete");
+    }
+    
+    @Test
+    @DisplayName("Test many snapshots under random mutations")
+    void testManySnapshotsUnderRandomMutations() {
+        Random random = new Random(77);
+        TreeSet<Integer> reference = new TreeSet<>();
+        List<BinarySearchTree> snapshots = new ArrayList<>();
+        List<List<Integer>> expected = new ArrayList<>();
+        
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                bst.insert(value);
+                reference.add(value);
+            } else {
+                bst.delete(value);
+                reference.remove(value);
+            }
+            if (i % 1_000 == 0) {
+                snapshots.add(bst.snapshot());
+                expected.add(new ArrayList<>(reference));
+            }
+        }
+        
+        assertEquals(new ArrayList<>(reference), bst.inorderTraversal(), "Live tree should match reference set");
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expected.get(i), snapshots.get(i).inorderTraversal(), "Snapshot " + i + " should be unchanged");
+            assertEquals(expected.get(i).size(), snapshots.get(i).size(), "Snapshot " + i + " size should be unchanged");
+        }
+    }
+    
+    @Test
+    @DisplayName("Test building a balanced tree from sorted values")
+    void testFromSorted() {
+        int[] sorted = new int[100_000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i * 2;
+        }
+        
+        BinarySearchTree tree = BinarySearchTree.fromSorted(sorted);
+        assertEquals(sorted.length, tree.size(), "Size should match input length");
+        assertEquals(16, tree.height(), "Height should be floor(log2(n))");
+        assertTrue(tree.isBalanced(), "Tree built from sorted input should be balanced");
+        assertTrue(tree.search(1_000), "Should find loaded value");
+        assertFalse(tree.search(1_001), "Should not find value that was not loaded");
+        assertEquals(500, tree.rank(1_000), "Subtree sizes should be set by the bulk load");
+        
+        BinarySearchTree withDuplicates = BinarySearchTree.fromSorted(new int[]{1, 1, 2, 3, 3, 3});
+        assertEquals(Arrays.asList(1, 2, 3), withDuplicates.inorderTraversal(), "Duplicates should be skipped");
+        assertTrue(BinarySearchTree.fromSorted(new int[0]).isEmpty(), "Empty input gives an empty tree");
+        
+        assertThrows(IllegalArgumentException.class, () -> BinarySearchTree.fromSorted(new int[]{3, 1, 2}));
+    }
+    
+    @Test
+    @DisplayName("Test inserting batches of values")
+    void testInsertAll() {
+        Random random = new Random(8);
+        TreeSet<Integer> reference = new TreeSet<>();
+        
+        // A large batch into an empty tree takes the rebuild path
+        int[] large = random.ints(50_000, 0, 100_000).toArray();
+        bst.insertAll(large);
+        for (int value : large) {
+            reference.add(value);
+        }
+        assertEquals(new ArrayList<>(reference), bst.inorderTraversal(), "Contents should match after large batch");
+        assertTrue(bst.isBalanced(), "Rebuilt tree should be balanced");
+        
+        // A small batch into a large tree takes the per-key path
+        int[] small = {-5, 7, 100_001, 7, 42};
+        bst.insertAll(small);
+        for (int value : small) {
+            reference.add(value);
+        }
+        assertEquals(new ArrayList<>(reference), bst.inorderTraversal(), "Contents should match after small batch");
+        assertEquals(reference.size(), bst.size(), "Size should match after both batches");
+        
+        BinarySearchTree snapshot = bst.snapshot();
+        bst.insertAll(random.ints(50_000, 100_000, 200_000).toArray());
+        assertEquals(reference.size(), snapshot.size(), "Rebuild should not disturb snapshots");
+    }
+    
+    @Test
+    @DisplayName("Test primitive traversals match the list traversals")
+    void testPrimitiveTraversals() {
+        int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        
+        assertEquals(bst.inorderTraversal(), boxed(bst.inorderArray()), "Inorder array should match list");
+        assertEquals(bst.preorderTraversal(), boxed(bst.preorderArray()), "Preorder array should match list");
+        assertEquals(bst.postorderTraversal(), boxed(bst.postorderArray()), "Postorder array should match list");
+        assertEquals(bst.levelOrderTraversal(), boxed(bst.levelOrderArray()), "Level-order array should match list");
+        
+        long[] sum = {0};
+        bst.inorderTraversal(value -> sum[0] += value);
+        assertEquals(465, sum[0], "Visitor should see every value once");
+        
+        List<Integer> iterated = new ArrayList<>();
+        PrimitiveIterator.OfInt iterator = bst.iterator();
+        while (iterator.hasNext()) {
+            iterated.add(iterator.nextInt());
+        }
+        assertEquals(bst.inorderTraversal(), iterated, "Iterator should yield inorder");
+        assertThrows(NoSuchElementException.class, iterator::nextInt);
+        
+        assertEquals(0, new BinarySearchTree().inorderArray().length, "Empty tree gives an empty array");
+        assertFalse(new BinarySearchTree().iterator().hasNext(), "Empty tree iterator has no values");
+    }
+    
+    @Test
+    @DisplayName("Test iterator on a degenerate tree")
+    void testIteratorOnDegenerateTree() {
+        int n = 20_000;
+        for (int i = n; i > 0; i--) {
+            bst.insert(i);
+        }
+        
+        PrimitiveIterator.OfInt iterator = bst.iterator();
+        for (int expected = 1; expected <= n; expected++) {
+            assertEquals(expected, iterator.nextInt(), "Iterator should yield ascending values");
+        }
+        assertFalse(iterator.hasNext(), "Iterator should be exhausted");
+    }
+    
+    @Test
+    @DisplayName("Test navigation queries")
+    void testNavigation() {
+        assertFalse(bst.min().isPresent(), "Empty tree has no minimum");
+        assertFalse(bst.floor(5).isPresent(), "Empty tree has no floor");
+        
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        
+        assertEquals(20, bst.min().getAsInt(), "Minimum should be 20");
+        assertEquals(80, bst.max().getAsInt(), "Maximum should be 80");
+        
+        assertEquals(40, bst.floor(45).getAsInt(), "Floor of 45 is 40");
+        assertEquals(40, bst.floor(40).getAsInt(), "Floor of a present value is itself");
+        assertFalse(bst.floor(19).isPresent(), "Nothing is at or below 19");
+        
+        assertEquals(50, bst.ceiling(45).getAsInt(), "Ceiling of 45 is 50");
+        assertEquals(40, bst.ceiling(40).getAsInt(), "Ceiling of a present value is itself");
+        assertFalse(bst.ceiling(81).isPresent(), "Nothing is at or above 81");
+        
+        assertEquals(30, bst.lower(40).getAsInt(), "Lower of 40 is 30");
+        assertFalse(bst.lower(20).isPresent(), "Nothing is below the minimum");
+        assertEquals(50, bst.higher(40).getAsInt(), "Higher of 40 is 50");
+        assertFalse(bst.higher(80).isPresent(), "Nothing is above the maximum");
+    }
+    
+    @Test
+    @DisplayName("Test range scans match a reference set")
+    void testRangeMatchesReference() {
+        Random random = new Random(10);
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(10_000);
+            bst.insert(value);
+            reference.add(value);
+        }
+        
+        for (int i = 0; i < 200; i++) {
+            int lo = random.nextInt(10_500) - 250;
+            int hi = lo + random.nextInt(800) - 50;
+            List<Integer> expected = lo > hi ? new ArrayList<>() : new ArrayList<>(reference.subSet(lo, true, hi, true));
+            assertEquals(expected, boxed(bst.range(lo, hi)), "Range [" + lo + ", " + hi + "] mismatch");
+            
+            Integer floor = reference.floor(lo);
+            assertEquals(floor != null, bst.floor(lo).isPresent(), "Floor presence mismatch for " + lo);
+            if (floor != null) {
+                assertEquals((int) floor, bst.floor(lo).getAsInt(), "Floor mismatch for " + lo);
+            }
+            Integer higher = reference.higher(hi);
+            assertEquals(higher != null, bst.higher(hi).isPresent(), "Higher presence mismatch for " + hi);
+            if (higher != null) {
+                assertEquals((int) higher, bst.higher(hi).getAsInt(), "Higher mismatch for " + hi);
+            }
+        }
+        
+        assertArrayEquals(bst.inorderArray(), bst.range(Integer.MIN_VALUE, Integer.MAX_VALUE), "Full range is the whole tree");
+    }
+    
+    @Test
+    @DisplayName("Test sequential and parallel streams")
+    void testIntStream() {
+        Random random = new Random(11);
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(1_000_000);
+            bst.insert(value);
+            reference.add(value);
+        }
+        
+        long expectedSum = 0;
+        for (int value : reference) {
+            expectedSum += value;
+        }
+        
+        assertArrayEquals(bst.inorderArray(), bst.intStream().toArray(), "Sequential stream should be inorder");
+        assertArrayEquals(bst.inorderArray(), bst.intStream().parallel().toArray(), "Parallel stream should keep encounter order");
+        assertEquals(expectedSum, bst.intStream().parallel().asLongStream().sum(), "Parallel sum should match");
+        assertEquals(reference.headSet(500_000).size(), bst.intStream().parallel().filter(v -> v < 500_000).count(),
+                     "Parallel filtered count should match");
+        assertEquals(0, new BinarySearchTree().intStream().parallel().count(), "Empty tree streams nothing");
+    }
+    
+    @Test
+    @DisplayName("Test spliterator splits by rank")
+    void testSpliteratorSplitsByRank() {
+        for (int i = 0; i < 10_000; i++) {
+            bst.insert(i); // degenerate chain
+        }
+        
+        Spliterator.OfInt suffix = bst.spliterator();
+        assertEquals(10_000, suffix.getExactSizeIfKnown(), "Spliterator should be sized");
+        assertTrue(suffix.hasCharacteristics(Spliterator.SORTED | Spliterator.SUBSIZED), "Spliterator should be sorted and subsized");
+        
+        Spliterator.OfInt prefix = suffix.trySplit();
+        assertNotNull(prefix, "Large spliterator should split");
+        assertEquals(5_000, prefix.estimateSize(), "Split should halve by rank even on a chain");
+        assertEquals(5_000, suffix.estimateSize(), "Remainder should be the upper half");
+        
+        int[] first = {-1};
+        assertTrue(suffix.tryAdvance((int value) -> first[0] = value));
+        assertEquals(5_000, first[0], "Upper half should start at rank 5000");
+        assertNull(suffix.trySplit(), "Started spliterator should not split");
+    }
+    
+    @Test
+    @DisplayName("Test union, intersect and difference match a reference set")
+    void testSetOperationsMatchReference() {
+        Random random = new Random(21);
+        // Small inputs run sequentially, large ones fork
+        for (int[] sizes : new int[][]{{0, 10}, {10, 0}, {50, 40}, {100, 100_000}, {60_000, 80_000}}) {
+            TreeSet<Integer> left = new TreeSet<>();
+            TreeSet<Integer> right = new TreeSet<>();
+            BinarySearchTree a = new BinarySearchTree();
+            BinarySearchTree b = new BinarySearchTree();
+            int range = 2 * (sizes[0] + sizes[1]) + 1;
+            for (int i = 0; i < sizes[0]; i++) {
+                int value = random.nextInt(range);
+                a.insert(value);
+                left.add(value);
+            }
+            for (int i = 0; i < sizes[1]; i++) {
+                int value = random.nextInt(range);
+                b.insert(value);
+                right.add(value);
+            }
+            
+            TreeSet<Integer> union = new TreeSet<>(left);
+            union.addAll(right);
+            TreeSet<Integer> intersection = new TreeSet<>(left);
+            intersection.retainAll(right);
+            TreeSet<Integer> difference = new TreeSet<>(left);
+            difference.removeAll(right);
+            
+            String label = " for sizes " + Arrays.toString(sizes);
+            assertEquals(new ArrayList<>(union), a.union(b).inorderTraversal(), "Union" + label);
+            assertEquals(new ArrayList<>(intersection), a.intersect(b).inorderTraversal(), "Intersection" + label);
+            assertEquals(new ArrayList<>(difference), a.difference(b).inorderTraversal(), "Difference" + label);
+            assertEquals(new ArrayList<>(left), a.inorderTraversal(), "Left input should be unchanged" + label);
+            assertEquals(new ArrayList<>(right), b.inorderTraversal(), "Right input should be unchanged" + label);
+        }
+    }
+    
+    @Test
+    @DisplayName("Test set operation results are balanced and keep sizes")
+    void testSetOperationResultShape() {
+        int[] evens = new int[100_000];
+        int[] threes = new int[70_000];
+        for (int i = 0; i < evens.length; i++) {
+            evens[i] = 2 * i;
+        }
+        for (int i = 0; i < threes.length; i++) {
+            threes[i] = 3 * i;
+        }
+        BinarySearchTree a = BinarySearchTree.fromSorted(evens);
+        BinarySearchTree b = BinarySearchTree.fromSorted(threes);
+        
+        for (BinarySearchTree result : new BinarySearchTree[]{a.union(b), a.intersect(b), a.difference(b)}) {
+            int n = result.size();
+            assertEquals(result.inorderArray().length, n, "Subtree sizes should be exact");
+            assertEquals(n / 2, result.rank(result.select(n / 2)), "Rank and select should agree");
+            // A weight-balanced tree is at most about 2.06 * log2(n) high
+            assertTrue(result.height() <= 2.1 * Math.log(n + 1) / Math.log(2) + 1,
+                       "Result of size " + n + " should be balanced, height " + result.height());
+        }
+    }
+    
+    @Test
+    @DisplayName("Test set operation results are independent writable trees")
+    void testSetOperationResultIsIndependent() {
+        for (int i = 0; i < 100; i++) {
+            bst.insert(i);
+        }
+        BinarySearchTree other = new BinarySearchTree();
+        for (int i = 50; i < 150; i++) {
+            other.insert(i);
+        }
+        BinarySearchTree union = bst.union(other);
+        
+        union.delete(10);
+        union.insert(1_000);
+        bst.delete(20);
+        other.insert(-5);
+        
+        assertEquals(150, union.size(), "Union should see only its own changes");
+        assertFalse(union.search(10), "Union should reflect its delete");
+        assertTrue(union.search(20), "Union should not see changes to the left input");
+        assertFalse(union.search(-5), "Union should not see changes to the right input");
+        assertFalse(bst.search(1_000), "Left input should not see changes to the union");
+        assertEquals(99, bst.size(), "Left input size should reflect only its delete");
+    }
+    
+    @Test
+    @DisplayName("Test set operations on degenerate trees")
+    void testSetOperationsOnDegenerateTrees() {
+        // Sorted inserts build a linked list; the operation must not recurse along it
+        BinarySearchTree chain = new BinarySearchTree();
+        for (int i = 0; i < 50_000; i++) {
+            chain.insert(i);
+        }
+        BinarySearchTree odds = new BinarySearchTree();
+        for (int i = 1; i < 100_000; i += 2) {
+            odds.insert(i);
+        }
+        
+        assertEquals(75_000, chain.union(odds).size(), "Union size should match");
+        assertEquals(25_000, chain.intersect(odds).size(), "Intersection size should match");
+        assertEquals(25_000, chain.difference(odds).size(), "Difference size should match");
+        assertEquals(49_999, chain.height(), "Degenerate input should be left as it was");
+    }
+    
+    @Test
+    @DisplayName("Test height, balance and depth histogram track random updates")
+    void testIncrementalMetadataMatchesRecount() {
+        Random random = new Random(17);
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                bst.delete(value);
+            } else {
+                bst.insert(value);
+            }
+            if (i % 50 == 0) {
+                assertMetadataMatchesRecount(bst, "after " + i + " updates");
+            }
+        }
+        assertMetadataMatchesRecount(bst, "at the end");
+    }
+    
+    @Test
+    @DisplayName("Test depth histogram after deletes lift small and large subtrees")
+    void testDepthHistogramAfterLiftingSubtrees() {
+        // 0 has only a right child: deleting it lifts the perfect subtree below
+        bst.insert(0);
+        for (int value : new int[]{8, 4, 12, 2, 6, 10, 14}) {
+            bst.insert(value);
+        }
+        bst.delete(0);
+        assertMetadataMatchesRecount(bst, "after lifting 7 nodes");
+    
+        bst.clear();
+        bst.insert(-1);
+        for (int i = 0; i < 200; i++) {
+            bst.insert((i * 37) % 200);
+        }
+        bst.delete(-1);
+        assertMetadataMatchesRecount(bst, "after lifting 200 nodes");
+        bst.insert(-1);
+        assertMetadataMatchesRecount(bst, "after inserting into the recounted histogram");
+    }
+    
+    @Test
+    @DisplayName("Test metadata of snapshots, bulk loads and set operations")
+    void testMetadataAcrossTreeBuilders() {
+        for (int i = 0; i < 200; i++) {
+            bst.insert((i * 37) % 200);
+        }
+        BinarySearchTree snapshot = bst.snapshot();
+        int[] snapshotHistogram = snapshot.depthHistogram();
+        for (int i = 0; i < 200; i += 3) {
+            bst.delete(i);
+        }
+        bst.insertAll(new int[]{1_000, 1_001, 1_002});
+        
+        assertArrayEquals(snapshotHistogram, snapshot.depthHistogram(), "Snapshot histogram should not change");
+        assertMetadataMatchesRecount(snapshot, "for the snapshot");
+        assertMetadataMatchesRecount(bst, "after deletes and insertAll");
+        
+        BinarySearchTree loaded = BinarySearchTree.fromSorted(new int[]{1, 2, 3, 4, 5, 6, 7});
+        assertArrayEquals(new int[]{1, 2, 4}, loaded.depthHistogram(), "Perfect tree should fill every level");
+        assertTrue(loaded.isBalanced(), "Bulk-loaded tree should be balanced");
+        assertMetadataMatchesRecount(loaded.union(snapshot), "for a union");
+        assertMetadataMatchesRecount(bst.difference(loaded), "for a difference");
+        
+        bst.clear();
+        assertEquals(0, bst.depthHistogram().length, "Cleared tree should have an empty histogram");
+        bst.insert(1);
+        assertArrayEquals(new int[]{1}, bst.depthHistogram(), "Histogram should restart after clear");
+    }
+    
+    @Test
+    @DisplayName("Test balance is tracked for an unbalancing insert")
+    void testBalanceFlipsIncrementally() {
+        bst.insert(2);
+        bst.insert(1);
+        bst.insert(3);
+        assertTrue(bst.isBalanced(), "Full tree should be balanced");
+        bst.insert(4);
+        bst.insert(5);
+        assertFalse(bst.isBalanced(), "Right spine of three under a leaf should be unbalanced");
+        assertEquals(3, bst.height(), "Height should follow the right spine");
+        assertArrayEquals(new int[]{1, 2, 1, 1}, bst.depthHistogram(), "Histogram should count each level");
+        bst.delete(5);
+        assertTrue(bst.isBalanced(), "Removing the extra leaf should restore balance");
+        assertEquals(2, bst.height(), "Height should shrink after the delete");
+    }
+    
+    @Test
+    @DisplayName("Test adaptive search splays the accessed node to the root")
+    void testAdaptiveSearchSplays() {
+        for (int i = 1; i <= 64; i++) {
+            bst.insert(i);
+        }
+        bst.setAdaptive(true);
+        assertTrue(bst.isAdaptive(), "Tree should report adaptive mode");
+        
+        assertTrue(bst.search(64), "Deepest key should be found");
+        assertEquals(64, bst.root.value, "Found key should become the root");
+        assertTrue(bst.height() < 63, "Splaying the end of a chain should shorten it");
+        assertTrue(bst.search(1), "Key at the bottom should be found");
+        assertEquals(1, bst.root.value, "Found key should become the root");
+        assertFalse(bst.search(100), "Missing key should not be found");
+        assertEquals(64, bst.root.value, "Last node visited on a miss should become the root");
+        
+        assertEquals(64, bst.size(), "Splaying should not change the size");
+        for (int k = 0; k < 64; k++) {
+            assertEquals(k + 1, bst.select(k), "Subtree sizes should stay correct after rotations");
+        }
+        assertMetadataMatchesRecount(bst, "after splaying");
+    }
+    
+    @Test
+    @DisplayName("Test adaptive mode keeps order and metadata under random updates")
+    void testAdaptiveRandomOperations() {
+        bst.setAdaptive(true);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(23);
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(500);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    bst.delete(value);
+                    expected.remove(value);
+                }
+                case 1 -> {
+                    bst.insert(value);
+                    expected.add(value);
+                }
+                default -> assertEquals(expected.contains(value), bst.search(value), "Search for " + value);
+            }
+            if (i % 100 == 0) {
+                assertEquals(new ArrayList<>(expected), bst.inorderTraversal(), "Order after " + i + " operations");
+                assertMetadataMatchesRecount(bst, "after " + i + " operations");
+            }
+        }
+        assertEquals(expected.size(), bst.size(), "Size should match the reference set");
+    }
+    
+    @Test
+    @DisplayName("Test adaptive search leaves snapshots untouched")
+    void testAdaptiveSearchAndSnapshots() {
+        for (int value : new int[]{50, 30, 70, 20, 40, 60, 80, 10}) {
+            bst.insert(value);
+        }
+        bst.setAdaptive(true);
+        BinarySearchTree snapshot = bst.snapshot();
+        List<Integer> preorder = snapshot.preorderTraversal();
+        
+        assertTrue(bst.search(10), "Key should be found");
+        assertEquals(10, bst.root.value, "Tree should splay the found key");
+        assertEquals(preorder, snapshot.preorderTraversal(), "Snapshot shape should not change");
+        
+        assertTrue(snapshot.search(80), "Snapshot search should still work");
+        assertEquals(50, snapshot.root.value, "Snapshot should never splay");
+        assertFalse(snapshot.isAdaptive(), "Snapshot should not inherit adaptive mode");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setAdaptive(true),
+                     "Snapshot should reject adaptive mode");
+    }
+    
+    @Test
+    @DisplayName("Test searchAll agrees with search for every position in the batch")
+    void testSearchAllMatchesSearch() {
+        assertArrayEquals(new boolean[]{false, false}, bst.searchAll(new int[]{1, 2}), "Empty tree should find nothing");
+        Random random = new Random(31);
+        for (int i = 0; i < 3_000; i++) {
+            bst.insert(random.nextInt(10_000));
+        }
+        assertEquals(0, bst.searchAll(new int[0]).length, "Empty batch should give an empty result");
+        
+        int[] batch = new int[20_000];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = random.nextInt(10_200) - 100;
+        }
+        batch[0] = Integer.MIN_VALUE;
+        batch[1] = Integer.MAX_VALUE;
+        batch[2] = batch[3];
+        boolean[] found = bst.searchAll(batch);
+        assertEquals(batch.length, found.length, "Result should line up with the batch");
+        for (int i = 0; i < batch.length; i++) {
+            assertEquals(bst.search(batch[i]), found[i], "Lookup of " + batch[i] + " at position " + i);
+        }
+    }
+    
+    @Test
+    @DisplayName("Test searchAll on a degenerate tree")
+    void testSearchAllDegenerate() {
+        for (int i = 0; i < 20_000; i++) {
+            bst.insert(i);
+        }
+        boolean[] found = bst.searchAll(new int[]{19_999, -1, 0, 20_000, 10_000, 10_000});
+        assertArrayEquals(new boolean[]{true, false, true, false, true, true}, found,
+                          "Long chains should be searched without recursion");
+    }
+    
+    @Test
+    @DisplayName("Test searchAll on trees holding more tombstones than live values")
+    void testSearchAllLazyDeletion() {
+        bst.setLazyDeletion(true);
+        bst.setCompactionThreshold(1);
+        bst.insert(1);
+        bst.delete(1);
+        assertArrayEquals(new boolean[]{false}, bst.searchAll(new int[]{1}), "Only a tombstone is left");
+        
+        int[] keys = new int[1_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+            bst.insert(i);
+        }
+        for (int i = 0; i < 990; i++) {
+            bst.delete(i);
+        }
+        boolean[] found = bst.searchAll(keys);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i >= 990, found[i], "Batch search for " + i);
+        }
+        
+        // Default threshold: a background compaction is still pending
+        int[] sorted = new int[20_000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        BinarySearchTree large = BinarySearchTree.fromSorted(sorted);
+        large.setLazyDeletion(true);
+        for (int key : sorted) {
+            large.delete(key);
+        }
+        found = large.searchAll(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            assertFalse(found[i], "Deleted key " + i + " should not be found");
+        }
+    }
+    
+    @Test
+    @DisplayName("Test cursor search agrees with search for sorted and random lookups")
+    void testCursorMatchesSearch() {
+        Random random = new Random(29);
+        for (int i = 0; i < 2_000; i++) {
+            bst.insert(random.nextInt(10_000));
+        }
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        for (int value = -5; value < 10_005; value++) {
+            assertEquals(bst.search(value), cursor.search(value), "Sorted lookup of " + value);
+        }
+        for (int value = 10_005; value >= -5; value -= 3) {
+            assertEquals(bst.search(value), cursor.search(value), "Descending lookup of " + value);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(10_000);
+            assertEquals(bst.search(value), cursor.search(value), "Random lookup of " + value);
+        }
+        assertFalse(cursor.search(Integer.MIN_VALUE), "Smallest int should not be found");
+        assertFalse(cursor.search(Integer.MAX_VALUE), "Largest int should not be found");
+    }
+    
+    @Test
+    @DisplayName("Test cursor stays correct while the tree changes")
+    void testCursorAfterModifications() {
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        assertFalse(cursor.search(5), "Empty tree should find nothing");
+        
+        for (int value = 0; value < 100; value += 2) {
+            bst.insert(value);
+        }
+        assertTrue(cursor.search(40), "Cursor should see values inserted after it was created");
+        bst.delete(42);
+        assertFalse(cursor.search(42), "Cursor should not find a deleted value");
+        bst.insert(43);
+        assertTrue(cursor.search(43), "Cursor should find a newly inserted neighbour");
+        bst.insertAll(new int[]{1, 3, 5, 7, 9, 11, 13, 15, 17, 19, 21});
+        assertTrue(cursor.search(21), "Cursor should follow a rebuild");
+        bst.clear();
+        assertFalse(cursor.search(21), "Cursor should see a cleared tree");
+    }
+    
+    @Test
+    @DisplayName("Test cursor on snapshots and adaptive trees")
+    void testCursorSnapshotAndAdaptive() {
+        for (int value : new int[]{50, 30, 70, 20, 40, 60, 80}) {
+            bst.insert(value);
+        }
+        BinarySearchTree snapshot = bst.snapshot();
+        BinarySearchTree.Cursor snapshotCursor = snapshot.cursor();
+        bst.delete(40);
+        assertTrue(snapshotCursor.search(40), "Snapshot cursor should keep the old contents");
+        
+        bst.setAdaptive(true);
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        assertTrue(cursor.search(20), "Cursor should find the value");
+        assertEquals(50, bst.root.value, "Cursor searches should not splay");
+        bst.search(20);
+        assertTrue(cursor.search(80), "Cursor should recover after a splaying search");
+        assertFalse(cursor.search(40), "Cursor should not find the deleted value");
+    }
+    
+    @Test
+    @DisplayName("Test cursors see lazy deletes on copied paths")
+    void testCursorAfterLazyDelete() {
+        for (int value : new int[]{50, 30, 70, 20, 40, 60, 80}) {
+            bst.insert(value);
+        }
+        bst.setLazyDeletion(true);
+        bst.setCompactionThreshold(1);
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        assertTrue(cursor.search(40), "Cursor should find the value");
+        BinarySearchTree snapshot = bst.snapshot();
+        bst.delete(40);
+        assertFalse(cursor.search(40), "Cursor should not find a value deleted on a copied path");
+        assertFalse(bst.search(40), "Tree should not find the deleted value");
+        assertTrue(snapshot.search(40), "Snapshot should keep the deleted value");
+        
+        // Large enough for the compaction to run in the background from a
+        // snapshot, so every later delete copies its path
+        BinarySearchTree large = new BinarySearchTree();
+        for (int value = 0; value < 20_000; value++) {
+            large.insert((int) (value * 2_654_435_761L % 20_000));
+        }
+        large.setLazyDeletion(true);
+        BinarySearchTree.Cursor largeCursor = large.cursor();
+        for (int value = 0; value < 20_000; value += 2) {
+            assertTrue(largeCursor.search(value), "Cursor should find " + value);
+            large.delete(value);
+            assertFalse(largeCursor.search(value), "Cursor should not find deleted " + value);
+        }
+        for (int value = 0; value < 20_000; value++) {
+            assertEquals(value % 2 == 1, largeCursor.search(value), "Cursor search for " + value);
+        }
+        large.awaitCompaction();
+        for (int value = 0; value < 20_000; value++) {
+            assertEquals(value % 2 == 1, largeCursor.search(value), "Cursor search after compaction for " + value);
+        }
+    }
+    
+    @Test
+    @DisplayName("Test lazy deletion hides values from every query")
+    void testLazyDeletionQueries() {
+        int[] values = {50, 30, 70, 20, 40, 60, 80, 10, 25, 35, 45};
+        for (int value : values) {
+            bst.insert(value);
+        }
+        bst.setLazyDeletion(true);
+        bst.setCompactionThreshold(1);
+        BinarySearchTree.TreeNode root = bst.root;
+        bst.delete(50);
+        bst.delete(10);
+        bst.delete(45);
+        bst.delete(45);
+        bst.delete(99);
+        
+        assertSame(root, bst.root, "Lazy delete should not restructure the tree");
+        assertEquals(3, bst.tombstones(), "Each value should leave one tombstone");
+        assertEquals(8, bst.size(), "Size should count live values only");
+        assertFalse(bst.search(50), "Deleted root should not be found");
+        assertTrue(bst.search(30), "Live values should be found");
+        assertEquals(List.of(20, 25, 30, 35, 40, 60, 70, 80), bst.inorderTraversal(), "Inorder should skip tombstones");
+        assertEquals(List.of(30, 20, 25, 40, 35, 70, 60, 80), bst.preorderTraversal(), "Preorder should skip tombstones");
+        assertEquals(List.of(25, 20, 35, 40, 30, 60, 80, 70), bst.postorderTraversal(), "Postorder should skip tombstones");
+        assertEquals(List.of(30, 70, 20, 40, 60, 80, 25, 35), bst.levelOrderTraversal(), "Level order should skip tombstones");
+        assertEquals(List.of(20, 25, 30, 35, 40, 60, 70, 80), boxed(bst.intStream().toArray()), "Iterator should skip tombstones");
+        assertEquals(List.of(20, 25, 30, 35, 40, 60, 70, 80), boxed(bst.intStream().parallel().toArray()),
+                     "Spliterator should skip tombstones");
+        assertArrayEquals(new int[]{35, 40, 60}, bst.range(32, 65), "Range should skip tombstones");
+        
+        assertEquals(20, bst.min().getAsInt(), "Min should skip a dead minimum");
+        assertEquals(80, bst.max().getAsInt(), "Max should be live");
+        assertEquals(40, bst.floor(50).getAsInt(), "Floor should skip the dead value");
+        assertEquals(60, bst.ceiling(50).getAsInt(), "Ceiling should skip the dead value");
+        assertEquals(40, bst.lower(60).getAsInt(), "Lower should skip tombstones");
+        assertEquals(60, bst.higher(40).getAsInt(), "Higher should skip tombstones");
+        assertEquals(5, bst.rank(60), "Rank should count live values only");
+        assertEquals(60, bst.select(5), "Select should skip tombstones");
+        assertEquals(2, bst.countInRange(45, 70), "Range count should skip tombstones");
+        assertArrayEquals(new boolean[]{false, true, false}, bst.searchAll(new int[]{50, 30, 10}),
+                          "Batch search should skip tombstones");
+        BinarySearchTree.Cursor cursor = bst.cursor();
+        assertFalse(cursor.search(45), "Cursor should skip tombstones");
+        assertTrue(cursor.search(40), "Cursor should find live values");
+        
+        assertTrue(bst.toString().contains("50 (deleted)"), "Text output should mark tombstones");
+        assertEquals(3, bst.height(), "Height should still count tombstones");
+        
+        bst.insert(50);
+        assertTrue(bst.search(50), "Reinsert should revive the tombstone");
+        assertSame(root, bst.root, "Reviving should not add a node");
+        assertEquals(2, bst.tombstones(), "Reviving should remove the tombstone");
+        assertEquals(9, bst.size(), "Size should count the revived value");
+        
+        bst.setLazyDeletion(false);
+        assertEquals(0, bst.tombstones(), "Leaving lazy mode should compact");
+        assertEquals(List.of(20, 25, 30, 35, 40, 50, 60, 70, 80), bst.inorderTraversal(), "Compaction should keep live values");
+        assertMetadataMatchesRecount(bst, "after compaction");
+        assertThrows(IllegalArgumentException.class, () -> bst.setCompactionThreshold(0),
+                     "Threshold must be positive");
+    }
+    
+    @Test
+    @DisplayName("Test lazy deletion under random updates matches a reference set")
+    void testLazyDeletionRandomOperations() {
+        bst.setLazyDeletion(true);
+        bst.setCompactionThreshold(0.5);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(29);
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(1_000);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    bst.delete(value);
+                    expected.remove(value);
+                }
+                case 2 -> {
+                    bst.insert(value);
+                    expected.add(value);
+                }
+                default -> {
+                    assertEquals(expected.contains(value), bst.search(value), "Search for " + value);
+                    Integer floor = expected.floor(value);
+                    assertEquals(floor == null ? -1 : floor, bst.floor(value).orElse(-1), "Floor of " + value);
+                    Integer higher = expected.higher(value);
+                    assertEquals(higher == null ? -1 : higher, bst.higher(value).orElse(-1), "Higher of " + value);
+                }
+            }
+            assertEquals(expected.size(), bst.size(), "Size after " + i + " operations");
+            if (i % 250 == 0) {
+                assertEquals(new ArrayList<>(expected), bst.inorderTraversal(), "Order after " + i + " operations");
+                assertMetadataMatchesRecount(bst, "after " + i + " operations");
+                assertTrue(bst.tombstones() <= bst.size(), "Tombstones should stay under the threshold");
+                if (!expected.isEmpty()) {
+                    int k = random.nextInt(expected.size());
+                    assertEquals(new ArrayList<>(expected).get(k), bst.select(k), "Select " + k);
+                }
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("Test background compaction with updates while it runs")
+    void testBackgroundCompaction() {
+        int n = 40_000;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = 2 * i;
+        }
+        Random random = new Random(31);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = keys[i];
+            keys[i] = keys[j];
+            keys[j] = swap;
+        }
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int key : keys) {
+            bst.insert(key);
+            expected.add(key);
+        }
+        BinarySearchTree before = bst.snapshot();
+        bst.setLazyDeletion(true);
+        
+        // Past a quarter dead, a rebuild starts; keep updating while it runs
+        for (int i = 0; i < n / 2; i++) {
+            bst.delete(keys[i]);
+            expected.remove(keys[i]);
+            if (i % 3 == 0) {
+                bst.insert(keys[i] + 1);
+                expected.add(keys[i] + 1);
+            }
+        }
+        bst.awaitCompaction();
+        
+        assertEquals(new ArrayList<>(expected), bst.inorderTraversal(), "Contents should survive compaction");
+        assertEquals(expected.size(), bst.size(), "Size should match the reference set");
+        assertTrue(bst.tombstones() < n / 4, "Compaction should have dropped most tombstones");
+        assertTrue(bst.height() < 40, "Compacted tree should be shallow: " + bst.height());
+        assertMetadataMatchesRecount(bst, "after background compaction");
+        assertEquals(n, before.size(), "Snapshot should not see the deletes");
+        assertTrue(before.search(keys[0]), "Snapshot should keep deleted values");
+        
+        bst.insert(keys[0]);
+        bst.delete(keys[n - 1]);
+        expected.add(keys[0]);
+        expected.remove(keys[n - 1]);
+        assertEquals(new ArrayList<>(expected), bst.inorderTraversal(), "Installed tree should stay writable");
+    }
+    
+    @Test
+    @DisplayName("Test tombstones in snapshots, set operations, encoding and adaptive mode")
+    void testLazyDeletionWithOtherFeatures() throws IOException {
+        for (int value = 1; value <= 100; value++) {
+            bst.insert(value * 7 % 101);
+        }
+        bst.setLazyDeletion(true);
+        bst.setCompactionThreshold(1);
+        for (int value = 0; value <= 100; value += 2) {
+            bst.delete(value);
+        }
+        List<Integer> odd = new ArrayList<>();
+        for (int value = 1; value <= 100; value += 2) {
+            odd.add(value);
+        }
+        
+        BinarySearchTree snapshot = bst.snapshot();
+        assertEquals(odd, snapshot.inorderTraversal(), "Snapshot should skip tombstones");
+        bst.insert(2);
+        assertFalse(snapshot.search(2), "Reviving should not reach the snapshot");
+        bst.delete(2);
+        
+        BinarySearchTree other = BinarySearchTree.fromSorted(new int[]{1, 2, 3, 4});
+        assertEquals(odd, bst.union(BinarySearchTree.fromSorted(new int[]{})).inorderTraversal(),
+                     "Union should skip tombstones");
+        assertEquals(List.of(1, 3), bst.intersect(other).inorderTraversal(), "Intersection should skip tombstones");
+        assertEquals(List.of(2, 4), other.difference(bst).inorderTraversal(), "Difference should skip tombstones");
+        assertEquals(odd, roundTrip(bst).inorderTraversal(), "Encoding should skip tombstones");
+        
+        bst.setAdaptive(true);
+        for (int value = 0; value <= 100; value++) {
+            assertEquals(value % 2 == 1, bst.search(value), "Adaptive search for " + value);
+        }
+        assertEquals(odd, bst.inorderTraversal(), "Splaying should keep tombstones dead");
+        assertEquals(odd.size(), bst.size(), "Splaying should keep live counts");
+        assertMetadataMatchesRecount(bst, "after splaying");
+        
+        bst.compact();
+        assertEquals(0, bst.tombstones(), "Compaction should drop every tombstone");
+        assertEquals(odd, bst.inorderTraversal(), "Compaction should keep live values");
+        bst.clear();
+        assertEquals(0, bst.tombstones(), "Clear should drop tombstones");
+        assertTrue(bst.isEmpty(), "Tree should be empty");
+    }
+    
+    /**
+     * Compare the incrementally kept height, balance and depth histogram
+     * with a full recount of the tree
+     */
+    private static void assertMetadataMatchesRecount(BinarySearchTree tree, String label) {
+        List<Integer> levels = new ArrayList<>();
+        int[] unbalanced = {0};
+        recount(tree.root, 0, levels, unbalanced);
+        int[] expected = levels.stream().mapToInt(Integer::intValue).toArray();
+        
+        assertEquals(expected.length - 1, tree.height(), "Height " + label);
+        assertEquals(unbalanced[0] == 0, tree.isBalanced(), "Balance " + label);
+        assertArrayEquals(expected, tree.depthHistogram(), "Depth histogram " + label);
+    }
+    
+    private static int recount(BinarySearchTree.TreeNode node, int depth, List<Integer> levels, int[] unbalanced) {
+        if (node == null) {
+            return -1;
+        }
+        if (levels.size() == depth) {
+            levels.add(0);
+        }
+        levels.set(depth, levels.get(depth) + 1);
+        int left = recount(node.left, depth + 1, levels, unbalanced);
+        int right = recount(node.right, depth + 1, levels, unbalanced);
+        if (Math.abs(left - right) > 1) {
+            unbalanced[0]++;
+        }
+        return 1 + Math.max(left, right);
+    }
+    
+    private static List<Integer> boxed(int[] values) {
+        List<Integer> result = new ArrayList<>();
+        for (int value : values) {
+            result.add(value);
+        }
+        return result;
+    }
 }
+
+
+
+
+
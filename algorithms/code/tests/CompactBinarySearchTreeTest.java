@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Test suite for the array-backed CompactBinarySearchTree
+ */
+public class CompactBinarySearchTreeTest {
+
+    private CompactBinarySearchTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new CompactBinarySearchTree();
+    }
+
+    /** Nodes per storage page, mirroring CompactBinarySearchTree */
+    private static final int PAGE_SIZE = 1 << 16;
+
+    private static List<Integer> shuffledRange(int from, int to, long seed) {
+        List<Integer> values = new ArrayList<>();
+        for (int value = from; value < to; value++) {
+            values.add(value);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+
+    @Test
+    @DisplayName("Test storage grows one page at a time")
+    void testPageGrowth() {
+        assertEquals(0, tree.storagePages(), "New tree should hold no pages");
+        List<Integer> values = shuffledRange(0, PAGE_SIZE + 1, 1);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            tree.insert(values.get(i));
+        }
+        assertEquals(1, tree.storagePages(), "A full page should not trigger growth");
+
+        tree.insert(values.get(PAGE_SIZE));
+        assertEquals(2, tree.storagePages(), "One more node should add exactly one page");
+        assertEquals(PAGE_SIZE + 1, tree.size(), "Size should count every insert");
+    }
+
+    @Test
+    @DisplayName("Test freed slots are reused before a new page is added")
+    void testFreeListReuse() {
+        List<Integer> values = shuffledRange(0, PAGE_SIZE, 2);
+        for (int value : values) {
+            tree.insert(value);
+        }
+
+        // Free half the page, then refill it with fresh keys: every new node
+        // must land in a freed slot, so no second page appears
+        TreeSet<Integer> reference = new TreeSet<>(values);
+        for (int i = 0; i < PAGE_SIZE / 2; i++) {
+            tree.delete(values.get(i));
+            reference.remove(values.get(i));
+        }
+        for (int value : shuffledRange(PAGE_SIZE, PAGE_SIZE + PAGE_SIZE / 2, 3)) {
+            tree.insert(value);
+            reference.add(value);
+        }
+
+        assertEquals(1, tree.storagePages(), "Freed slots should be reused before growing");
+        assertEquals(reference.size(), tree.size(), "Size should match reference set");
+        assertEquals(new ArrayList<>(reference), tree.inorderTraversal(), "Reused slots should hold the new values");
+    }
+
+    @Test
+    @DisplayName("Test degenerate tree does not overflow the stack")
+    void testDegenerateTree() {
+        int n = 50_000;
+        for (int i = 0; i < n; i++) {
+            tree.insert(i);
+        }
+        assertEquals(n - 1, tree.height(), "Height of a chain should be n - 1");
+        assertFalse(tree.isBalanced(), "Chain should not be balanced");
+        assertEquals(n, tree.postorderTraversal().size(), "Postorder should visit every node");
+    }
+
+    @Test
+    @DisplayName("Test empty tree and clear")
+    void testEmptyAndClear() {
+        assertTrue(tree.isEmpty(), "New tree should be empty");
+        assertEquals(-1, tree.height(), "Height of empty tree should be -1");
+        assertFalse(tree.search(1), "Search in empty tree should return false");
+        assertDoesNotThrow(() -> tree.delete(1), "Deleting from empty tree should not throw exception");
+        assertEquals("Empty BST", tree.toString());
+
+        tree.insert(1);
+        tree.insert(2);
+        tree.clear();
+        assertTrue(tree.isEmpty(), "Tree should be empty after clear");
+        assertEquals(0, tree.size(), "Size should be 0 after clear");
+        assertEquals(0, tree.storagePages(), "Clear should release the storage pages");
+        tree.insert(3);
+        assertTrue(tree.search(3), "Tree should be usable after clear");
+    }
+}
@@ -0,0 +1,352 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Test suite for ConcurrentBinarySearchTree, including multi-threaded stress tests
+ */
+public class ConcurrentBinarySearchTreeTest {
+
+    private static final int THREADS = 8;
+
+    private ConcurrentBinarySearchTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new ConcurrentBinarySearchTree();
+    }
+
+    @Test
+    @DisplayName("Test single-threaded operations")
+    void testSingleThreadedOperations() {
+        assertTrue(tree.isEmpty(), "New tree should be empty");
+        assertFalse(tree.search(5), "Search in empty tree should return false");
+        assertFalse(tree.delete(5), "Deleting from empty tree should return false");
+
+        int[] values = {50, 30, 70, 20, 40, 60, 80, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        for (int value : values) {
+            assertTrue(tree.insert(value), "First insert of " + value + " should succeed");
+        }
+        assertFalse(tree.insert(50), "Duplicate insert should return false");
+
+        assertEquals(Arrays.asList(Integer.MIN_VALUE, 20, 30, 40, 50, 60, 70, 80, Integer.MAX_VALUE),
+                     tree.inorderTraversal(), "Inorder traversal should be sorted");
+        assertEquals(values.length, tree.size(), "Size should count distinct values");
+        assertTrue(tree.search(Integer.MAX_VALUE), "Should find MAX_VALUE");
+
+        assertTrue(tree.delete(30), "Deleting present value should return true");
+        assertFalse(tree.delete(30), "Deleting it again should return false");
+        assertFalse(tree.search(30), "Deleted value should not be found");
+        assertEquals(values.length - 1, tree.size(), "Size should drop after deletion");
+    }
+
+    @Test
+    @DisplayName("Test random operations match a reference set")
+    void testRandomOperationsMatchReference() {
+        Random random = new Random(5);
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(reference.add(value), tree.insert(value), "Insert result mismatch for " + value);
+            } else {
+                assertEquals(reference.remove(value), tree.delete(value), "Delete result mismatch for " + value);
+            }
+        }
+        assertEquals(new ArrayList<>(reference), tree.inorderTraversal(), "Contents should match reference set");
+    }
+
+    @Test
+    @DisplayName("Stress: per-thread key ownership gives sequential results")
+    void testOwnedKeysBehaveSequentially() throws Exception {
+        // Keys 0..999 stay present and keys 1_000_000+ are never inserted, so
+        // any reader must always see true and false for them respectively
+        for (int value = 0; value < 1_000; value++) {
+            tree.insert(value);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+        AtomicBoolean writersDone = new AtomicBoolean(false);
+        List<Future<Set<Integer>>> writers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int owner = t;
+            writers.add(pool.submit(() -> {
+                // Each writer owns keys 1000 + owner (mod THREADS); with no other
+                // writer touching them, every result must match a local set
+                Random random = new Random(owner);
+                Set<Integer> model = new HashSet<>();
+                for (int i = 0; i < 200_000; i++) {
+                    int value = 1_000 + random.nextInt(5_000) * THREADS + owner;
+                    if (random.nextBoolean()) {
+                        assertEquals(model.add(value), tree.insert(value), "Insert result mismatch for " + value);
+                    } else {
+                        assertEquals(model.remove(value), tree.delete(value), "Delete result mismatch for " + value);
+                    }
+                    assertEquals(model.contains(value), tree.search(value), "Search mismatch for " + value);
+                }
+                return model;
+            }));
+        }
+
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                Random random = new Random();
+                while (!writersDone.get()) {
+                    assertTrue(tree.search(random.nextInt(1_000)), "Stable key must always be visible");
+                    assertFalse(tree.search(1_000_000 + random.nextInt(1_000)), "Absent key must never be visible");
+                }
+            }));
+        }
+
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int value = 0; value < 1_000; value++) {
+            expected.add(value);
+        }
+        try {
+            for (Future<Set<Integer>> writer : writers) {
+                expected.addAll(writer.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            // A failed writer must still release the readers and the pool
+            writersDone.set(true);
+        }
+        try {
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(new ArrayList<>(expected), tree.inorderTraversal(), "Final contents should be the union of all models");
+        assertEquals(expected.size(), tree.size(), "Size should match final contents");
+    }
+
+    @Test
+    @DisplayName("Stress: contended keys conserve successful inserts and deletes")
+    void testContendedKeysConserveUpdates() throws Exception {
+        // All threads fight over a tiny key range. For each key, successful
+        // inserts minus successful deletes must equal its final membership;
+        // a lost or duplicated update would break that balance.
+        int keyRange = 64;
+        AtomicLongArray balance = new AtomicLongArray(keyRange);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            workers.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < 300_000; i++) {
+                    int value = random.nextInt(keyRange);
+                    if (random.nextBoolean()) {
+                        if (tree.insert(value)) {
+                            balance.incrementAndGet(value);
+                        }
+                    } else if (tree.delete(value)) {
+                        balance.decrementAndGet(value);
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Integer> contents = tree.inorderTraversal();
+        for (int value = 0; value < keyRange; value++) {
+            long expected = tree.search(value) ? 1 : 0;
+            assertEquals(expected, balance.get(value), "Insert/delete balance mismatch for " + value);
+            assertEquals(expected == 1, contents.contains(value), "Traversal mismatch for " + value);
+        }
+        assertEquals(contents.size(), tree.size(), "Size should match final contents");
+    }
+
+    /** Operation kinds recorded in a history */
+    private static final int SEARCH = 0;
+    private static final int INSERT = 1;
+    private static final int DELETE = 2;
+
+    /**
+     * One completed call, stamped just before invocation and just after it
+     * returned. The call took effect somewhere between the two stamps.
+     */
+    private static final class Call {
+        final long invoke;
+        final long response;
+        final int kind;
+        final boolean result;
+
+        Call(long invoke, long response, int kind, boolean result) {
+            this.invoke = invoke;
+            this.response = response;
+            this.kind = kind;
+            this.result = result;
+        }
+
+        /**
+         * Membership of the key after this call, or null if the result is
+         * impossible from the given membership in a sequential set
+         */
+        Boolean apply(boolean present) {
+            switch (kind) {
+                case INSERT:
+                    return result == !present ? Boolean.TRUE : null;
+                case DELETE:
+                    return result == present ? Boolean.FALSE : null;
+                default:
+                    return result == present ? present : null;
+            }
+        }
+    }
+
+    /**
+     * Check that one key's history has a linearization: a sequential order,
+     * consistent with real time, in which every result matches a set that
+     * starts without the key (Wing and Gong's search, memoizing visited
+     * configurations as in Lowe's variant). Set operations on different keys
+     * commute, so checking each key on its own checks the whole history.
+     */
+    private static boolean isLinearizable(List<Call> history) {
+        Call[] calls = history.toArray(new Call[0]);
+        Arrays.sort(calls, Comparator.comparingLong(call -> call.invoke));
+        int n = calls.length;
+
+        BitSet linearized = new BitSet(n);
+        Set<BitSet> visited = new HashSet<>();
+        int[] order = new int[n];
+        boolean[] before = new boolean[n];
+        boolean present = false;
+        int depth = 0;
+        int candidate = 0;
+
+        while (depth < n) {
+            // A call may go next only if it started before every pending call returned
+            long deadline = Long.MAX_VALUE;
+            for (int i = linearized.nextClearBit(0); i < n; i = linearized.nextClearBit(i + 1)) {
+                deadline = Math.min(deadline, calls[i].response);
+            }
+
+            int chosen = -1;
+            Boolean after = null;
+            for (int i = linearized.nextClearBit(candidate); i < n && calls[i].invoke <= deadline;
+                 i = linearized.nextClearBit(i + 1)) {
+                after = calls[i].apply(present);
+                if (after != null) {
+                    BitSet configuration = (BitSet) linearized.clone();
+                    configuration.set(i);
+                    configuration.set(n, after);
+                    if (visited.add(configuration)) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+
+            if (chosen >= 0) {
+                linearized.set(chosen);
+                order[depth] = chosen;
+                before[depth] = present;
+                present = after;
+                depth++;
+                candidate = 0;
+            } else if (depth == 0) {
+                return false;
+            } else {
+                // Undo the last choice and try the next call in its place
+                depth--;
+                linearized.clear(order[depth]);
+                present = before[depth];
+                candidate = order[depth] + 1;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    @DisplayName("Test the history checker rejects impossible histories")
+    void testCheckerRejectsImpossibleHistories() {
+        // Two inserts of the same key, one after the other, cannot both succeed
+        assertFalse(isLinearizable(Arrays.asList(new Call(0, 1, INSERT, true), new Call(2, 3, INSERT, true))),
+                    "Sequential double insert should be rejected");
+        // Overlapping, they still cannot: the key is never deleted
+        assertFalse(isLinearizable(Arrays.asList(new Call(0, 3, INSERT, true), new Call(1, 2, INSERT, true))),
+                    "Concurrent double insert should be rejected");
+        // A search that returned after a successful insert returned must see the key
+        assertFalse(isLinearizable(Arrays.asList(new Call(0, 1, INSERT, true), new Call(2, 3, SEARCH, false))),
+                    "Stale read should be rejected");
+        // But a search overlapping the insert may go either way
+        assertTrue(isLinearizable(Arrays.asList(new Call(0, 3, INSERT, true), new Call(1, 2, SEARCH, false))),
+                   "Overlapping read may miss the insert");
+        assertTrue(isLinearizable(Arrays.asList(new Call(0, 3, DELETE, false), new Call(1, 2, INSERT, true),
+                                                new Call(4, 5, SEARCH, true))),
+                   "Delete may take effect before the overlapping insert");
+    }
+
+    @Test
+    @DisplayName("Stress: concurrent histories are linearizable")
+    void testHistoriesAreLinearizable() throws Exception {
+        // A few hot keys keep every call overlapping calls from other threads
+        int keyRange = 16;
+        int callsPerThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<List<List<Call>>>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            workers.add(pool.submit(() -> {
+                List<List<Call>> byKey = new ArrayList<>();
+                for (int key = 0; key < keyRange; key++) {
+                    byKey.add(new ArrayList<>());
+                }
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < callsPerThread; i++) {
+                    int key = random.nextInt(keyRange);
+                    int kind = random.nextInt(3);
+                    long invoke = System.nanoTime();
+                    boolean result = kind == INSERT ? tree.insert(key)
+                                   : kind == DELETE ? tree.delete(key)
+                                   : tree.search(key);
+                    long response = System.nanoTime();
+                    byKey.get(key).add(new Call(invoke, response, kind, result));
+                }
+                return byKey;
+            }));
+        }
+
+        List<List<Call>> histories = new ArrayList<>();
+        for (int key = 0; key < keyRange; key++) {
+            histories.add(new ArrayList<>());
+        }
+        try {
+            for (Future<List<List<Call>>> worker : workers) {
+                List<List<Call>> byKey = worker.get(60, TimeUnit.SECONDS);
+                for (int key = 0; key < keyRange; key++) {
+                    histories.get(key).addAll(byKey.get(key));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int key = 0; key < keyRange; key++) {
+            assertTrue(isLinearizable(histories.get(key)), "History of key " + key + " has no linearization");
+        }
+    }
+}
@@ -0,0 +1,276 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Test suite for the write-ahead logged DurableBinarySearchTree
+ */
+public class DurableBinarySearchTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static DurableBinarySearchTree.Options manualOptions(int batchSize) {
+        DurableBinarySearchTree.Options options = new DurableBinarySearchTree.Options();
+        options.batchSize = batchSize;
+        options.flushIntervalMillis = 0;
+        options.checkpointEveryRecords = 0;
+        return options;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Test contents survive close and reopen")
+    void testReopen() throws IOException {
+        TreeSet<Integer> reference = new TreeSet<>();
+        Random random = new Random(1);
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(64))) {
+            for (int i = 0; i < 10_000; i++) {
+                int value = random.nextInt(5_000);
+                if (random.nextInt(3) == 0) {
+                    tree.delete(value);
+                    reference.remove(value);
+                } else {
+                    tree.insert(value);
+                    reference.add(value);
+                }
+            }
+        }
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(64))) {
+            assertEquals(reference.size(), tree.size(), "Size should be recovered");
+            assertEquals(new ArrayList<>(reference), tree.snapshot().inorderTraversal(), "Contents should be recovered");
+        }
+    }
+
+    @Test
+    @DisplayName("Test synced mutations survive a crash")
+    void testCrashAfterSync() throws IOException {
+        DurableBinarySearchTree crashed = DurableBinarySearchTree.open(tempDir, manualOptions(1_000));
+        for (int i = 0; i < 100; i++) {
+            crashed.insert(i);
+        }
+        crashed.sync();
+        for (int i = 100; i < 150; i++) {
+            crashed.insert(i); // never committed
+        }
+        // Abandon without close, as if the process died
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(1_000))) {
+            assertEquals(100, tree.size(), "Only committed mutations should be recovered");
+            assertTrue(tree.search(99), "Last synced value should be present");
+            assertFalse(tree.search(100), "Unsynced value should be lost");
+        }
+    }
+
+    @Test
+    @DisplayName("Test full batches are committed without sync")
+    void testGroupCommit() throws IOException {
+        DurableBinarySearchTree crashed = DurableBinarySearchTree.open(tempDir, manualOptions(10));
+        for (int i = 0; i < 25; i++) {
+            crashed.insert(i);
+        }
+
+        long logBytes = Files.size(segments().get(0));
+        assertEquals(2 * (8 + 10 * 5), logBytes, "Two full frames of ten records should be on disk");
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(10))) {
+            assertEquals(20, tree.size(), "Committed batches should be recovered");
+        }
+    }
+
+    @Test
+    @DisplayName("Test no-op mutations are not logged")
+    void testNoOpsNotLogged() throws IOException {
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(1))) {
+            tree.insert(7);
+            tree.insert(7);
+            tree.delete(8);
+        }
+        assertEquals(8 + 5, Files.size(segments().get(0)), "Only the effective insert should be logged");
+    }
+
+    @Test
+    @DisplayName("Test torn tail is discarded on recovery")
+    void testTornTail() throws IOException {
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(4))) {
+            for (int i = 0; i < 8; i++) {
+                tree.insert(i);
+            }
+        }
+        Path log = segments().get(0);
+        long intactBytes = Files.size(log);
+
+        // A partial frame, then a complete frame with a bad checksum
+        Files.write(log, new byte[]{13, 0, 0}, StandardOpenOption.APPEND);
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(4))) {
+            assertEquals(8, tree.size(), "Intact frames should be recovered");
+        }
+        assertEquals(intactBytes, Files.size(log), "Torn tail should be truncated");
+
+        byte[] corrupt = Files.readAllBytes(log);
+        corrupt[corrupt.length - 1] ^= 1;
+        Files.write(log, corrupt);
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(4))) {
+            assertEquals(4, tree.size(), "Frame with a bad checksum should be dropped");
+            assertFalse(tree.search(7), "Values from the corrupt frame should be absent");
+        }
+    }
+
+    @Test
+    @DisplayName("Test checkpoint drops covered log segments")
+    void testCheckpoint() throws IOException {
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(16))) {
+            for (int i = 0; i < 1_000; i++) {
+                tree.insert(i);
+            }
+            tree.checkpoint();
+            assertTrue(Files.exists(tempDir.resolve("tree.snapshot")), "Checkpoint file should exist");
+            assertEquals(1, segments().size(), "Only the fresh segment should remain");
+            assertEquals(0, Files.size(segments().get(0)), "Fresh segment should be empty");
+
+            for (int i = 0; i < 500; i++) {
+                tree.delete(i);
+            }
+        }
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(16))) {
+            assertEquals(500, tree.size(), "Checkpoint plus log should be recovered");
+            assertFalse(tree.search(0), "Logged delete should be replayed over the checkpoint");
+            assertTrue(tree.search(999), "Checkpointed value should be present");
+        }
+    }
+
+    @Test
+    @DisplayName("Test directory is synced before segments are relied on or dropped")
+    void testDirectorySyncOrdering() throws IOException {
+        List<String> events = new ArrayList<>();
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(16), events::add)) {
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            tree.sync();
+            tree.checkpoint();
+        }
+
+        String first = "wal-00000000000000000001.log";
+        String second = "wal-00000000000000000002.log";
+        assertEquals(List.of("create " + first, "sync directory",
+                             "create " + second, "sync directory",
+                             "checkpoint", "sync directory",
+                             "delete " + first),
+                     events, "Each new segment and the checkpoint rename should be synced before use or deletion");
+    }
+
+    @Test
+    @DisplayName("Test replaying an already checkpointed log is harmless")
+    void testReplayOverCheckpoint() throws IOException {
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(8))) {
+            for (int i = 0; i < 100; i++) {
+                tree.insert(i);
+            }
+            for (int i = 0; i < 100; i += 2) {
+                tree.delete(i);
+            }
+        }
+        List<Path> before = segments();
+        Map<Path, byte[]> saved = new HashMap<>();
+        for (Path segment : before) {
+            saved.put(segment, Files.readAllBytes(segment));
+        }
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(8))) {
+            tree.checkpoint();
+        }
+        // Simulate a crash after the checkpoint was written but before old segments were deleted
+        for (Map.Entry<Path, byte[]> entry : saved.entrySet()) {
+            Files.write(entry.getKey(), entry.getValue());
+        }
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(8))) {
+            assertEquals(50, tree.size(), "Replay over a newer checkpoint should not change contents");
+            assertTrue(tree.search(1), "Odd values should remain");
+            assertFalse(tree.search(2), "Even values should stay deleted");
+        }
+    }
+
+    @Test
+    @DisplayName("Test automatic checkpoints bound the log")
+    void testAutomaticCheckpoint() throws IOException {
+        DurableBinarySearchTree.Options options = manualOptions(100);
+        options.flushIntervalMillis = 5;
+        options.checkpointEveryRecords = 1_000;
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, options)) {
+            for (int i = 0; i < 20_000; i++) {
+                tree.insert(i);
+            }
+        }
+
+        assertTrue(Files.exists(tempDir.resolve("tree.snapshot")), "A checkpoint should have been written");
+        long loggedBytes = 0;
+        for (Path segment : segments()) {
+            loggedBytes += Files.size(segment);
+        }
+        assertTrue(loggedBytes < 20_000 * 5, "Checkpoints should have dropped most of the log");
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, options)) {
+            assertEquals(20_000, tree.size(), "Everything should be recovered");
+        }
+    }
+
+    @Test
+    @DisplayName("Test concurrent writers")
+    void testConcurrentWriters() throws Exception {
+        DurableBinarySearchTree.Options options = manualOptions(32);
+        options.flushIntervalMillis = 1;
+        options.checkpointEveryRecords = 5_000;
+        int threads = 4;
+        int perThread = 5_000;
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, options)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                Thread worker = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        tree.insert(offset + i);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(threads * perThread, tree.size(), "All inserts should be applied");
+        }
+
+        try (DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(32))) {
+            assertEquals(threads * perThread, tree.size(), "All inserts should be recovered");
+        }
+    }
+
+    @Test
+    @DisplayName("Test close rejects further use")
+    void testClose() throws IOException {
+        DurableBinarySearchTree tree = DurableBinarySearchTree.open(tempDir, manualOptions(8));
+        tree.insert(1);
+        tree.close();
+
+        assertThrows(IllegalStateException.class, () -> tree.insert(2), "Insert after close should fail");
+        assertThrows(IllegalStateException.class, () -> tree.search(1), "Search after close should fail");
+        assertDoesNotThrow(() -> tree.close(), "Closing twice should be harmless");
+    }
+}
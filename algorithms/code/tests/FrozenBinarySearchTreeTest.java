@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Test suite for the Eytzinger-layout FrozenBinarySearchTree
+ */
+public class FrozenBinarySearchTreeTest {
+
+    @Test
+    @DisplayName("Test empty frozen tree")
+    void testEmpty() {
+        FrozenBinarySearchTree frozen = new BinarySearchTree().freeze();
+        assertTrue(frozen.isEmpty(), "Frozen empty tree should be empty");
+        assertFalse(frozen.search(0), "Search should fail");
+        assertFalse(frozen.floor(0).isPresent(), "Floor should be empty");
+        assertFalse(frozen.ceiling(0).isPresent(), "Ceiling should be empty");
+        assertFalse(frozen.min().isPresent(), "Min should be empty");
+        assertFalse(frozen.iterator().hasNext(), "Iterator should be empty");
+        assertThrows(NoSuchElementException.class, () -> frozen.iterator().nextInt(), "nextInt should fail");
+    }
+
+    @Test
+    @DisplayName("Test every size matches the source tree")
+    void testAllSmallSizes() {
+        // Covers complete, full and ragged last levels
+        for (int n = 1; n <= 70; n++) {
+            int[] sorted = new int[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = i * 10;
+            }
+            FrozenBinarySearchTree frozen = FrozenBinarySearchTree.fromSorted(sorted);
+
+            assertArrayEquals(sorted, frozen.inorderArray(), "In-order should be sorted for n=" + n);
+            assertEquals(0, frozen.min().getAsInt(), "Min for n=" + n);
+            assertEquals((n - 1) * 10, frozen.max().getAsInt(), "Max for n=" + n);
+            for (int probe = -5; probe <= n * 10; probe += 5) {
+                boolean present = probe >= 0 && probe < n * 10 && probe % 10 == 0;
+                assertEquals(present, frozen.search(probe), "Search " + probe + " for n=" + n);
+
+                int floor = Math.floorDiv(probe, 10) * 10;
+                assertEquals(floor < 0 ? OptionalInt.empty() : OptionalInt.of(Math.min(floor, (n - 1) * 10)),
+                             frozen.floor(probe), "Floor " + probe + " for n=" + n);
+
+                int ceiling = Math.floorDiv(probe + 9, 10) * 10;
+                assertEquals(ceiling > (n - 1) * 10 ? OptionalInt.empty() : OptionalInt.of(Math.max(ceiling, 0)),
+                             frozen.ceiling(probe), "Ceiling " + probe + " for n=" + n);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test random tree matches a reference set")
+    void testRandomMatchesReference() {
+        Random random = new Random(5);
+        BinarySearchTree tree = new BinarySearchTree();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt();
+            tree.insert(value);
+            reference.add(value);
+        }
+        reference.add(Integer.MIN_VALUE);
+        reference.add(Integer.MAX_VALUE);
+        tree.insert(Integer.MIN_VALUE);
+        tree.insert(Integer.MAX_VALUE);
+
+        FrozenBinarySearchTree frozen = tree.freeze();
+        assertEquals(reference.size(), frozen.size(), "Size should match");
+
+        List<Integer> iterated = new ArrayList<>();
+        frozen.iterator().forEachRemaining((int value) -> iterated.add(value));
+        assertEquals(new ArrayList<>(reference), iterated, "Iteration should be in ascending order");
+
+        for (int i = 0; i < 20_000; i++) {
+            int probe = random.nextInt();
+            assertEquals(reference.contains(probe), frozen.search(probe), "Search " + probe);
+            assertEquals(reference.floor(probe), boxed(frozen.floor(probe)), "Floor " + probe);
+            assertEquals(reference.ceiling(probe), boxed(frozen.ceiling(probe)), "Ceiling " + probe);
+        }
+    }
+
+    @Test
+    @DisplayName("Test frozen tree is independent of the source")
+    void testIndependentOfSource() {
+        BinarySearchTree tree = new BinarySearchTree();
+        tree.insert(1);
+        tree.insert(2);
+        FrozenBinarySearchTree frozen = tree.freeze();
+        tree.insert(3);
+        tree.delete(1);
+
+        assertArrayEquals(new int[]{1, 2}, frozen.inorderArray(), "Frozen tree should keep its contents");
+    }
+
+    @Test
+    @DisplayName("Test fromSorted rejects unsorted input")
+    void testFromSortedRejectsUnsorted() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> FrozenBinarySearchTree.fromSorted(new int[]{1, 3, 2}), "Unsorted input should be rejected");
+        assertThrows(IllegalArgumentException.class,
+                     () -> FrozenBinarySearchTree.fromSorted(new int[]{1, 1}), "Duplicates should be rejected");
+    }
+
+    private static Integer boxed(OptionalInt value) {
+        return value.isPresent() ? value.getAsInt() : null;
+    }
+}
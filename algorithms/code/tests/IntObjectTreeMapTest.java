@@ -0,0 +1,115 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Test suite for the primitive-keyed IntObjectTreeMap
+ */
+public class IntObjectTreeMapTest {
+
+    @Test
+    @DisplayName("Test put, get and replace")
+    void testPutGet() {
+        IntObjectTreeMap<String> map = new IntObjectTreeMap<>();
+        assertNull(map.put(2, "two"), "New key should have no previous value");
+        assertNull(map.put(1, "one"), "New key should have no previous value");
+        assertEquals("two", map.put(2, "TWO"), "Replacing should return the previous value");
+
+        assertEquals(2, map.size(), "Replacing should not change the size");
+        assertEquals("TWO", map.get(2), "Get should return the replaced value");
+        assertNull(map.get(3), "Absent key should map to null");
+        assertEquals("none", map.getOrDefault(3, "none"), "Absent key should use the default");
+        assertTrue(map.containsKey(1), "Present key should be found");
+        assertEquals("{1=one, 2=TWO}", map.toString(), "String should list entries in key order");
+    }
+
+    @Test
+    @DisplayName("Test null values are distinct from absent keys")
+    void testNullValues() {
+        IntObjectTreeMap<String> map = new IntObjectTreeMap<>();
+        map.put(5, null);
+        assertTrue(map.containsKey(5), "Key mapped to null should be present");
+        assertNull(map.getOrDefault(5, "default"), "Stored null should win over the default");
+    }
+
+    @Test
+    @DisplayName("Test random operations match a reference map")
+    void testRandomOperationsMatchReference() {
+        IntObjectTreeMap<Integer> map = new IntObjectTreeMap<>();
+        TreeMap<Integer, Integer> reference = new TreeMap<>();
+        Random random = new Random(9);
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key), "Remove result for " + key);
+            } else {
+                assertEquals(reference.put(key, i), map.put(key, i), "Put result for " + key);
+            }
+        }
+
+        assertEquals(reference.size(), map.size(), "Size should match reference map");
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>();
+        map.forEach((key, value) -> entries.add(Map.entry(key, value)));
+        assertEquals(new ArrayList<>(reference.entrySet()), entries, "Entries should match in key order");
+        assertArrayEquals(reference.keySet().stream().mapToInt(Integer::intValue).toArray(), map.keys(),
+                          "Keys should match in order");
+
+        for (int probe = -1_100; probe <= 1_100; probe += 7) {
+            Integer floor = reference.floorKey(probe);
+            Integer ceiling = reference.ceilingKey(probe);
+            assertEquals(floor == null ? OptionalInt.empty() : OptionalInt.of(floor), map.floorKey(probe),
+                         "Floor key " + probe);
+            assertEquals(ceiling == null ? OptionalInt.empty() : OptionalInt.of(ceiling), map.ceilingKey(probe),
+                         "Ceiling key " + probe);
+        }
+    }
+
+    @Test
+    @DisplayName("Test lookups do not allocate")
+    void testLookupsDoNotAllocate() {
+        IntObjectTreeMap<String> map = new IntObjectTreeMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i * 3, "v");
+        }
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        int hits = 0;
+        int misses = 0;
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            if (map.get(i % 3_000) != null) {
+                hits++;
+            }
+            map.put(0, "v");
+            if (map.floorKeyOrDefault(i % 3_000, -1) != i % 3_000 / 3 * 3) {
+                misses++;
+            }
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(100_000 / 3 + 1, hits, "Every third key should be present");
+        assertEquals(0, misses, "Floor keys without Optional should match");
+        assertTrue(allocated < 10_000, "100k lookups should not allocate, but allocated " + allocated + " bytes");
+        assertTrue(map.height() <= 14, "Ascending keys should not form a chain, height " + map.height());
+    }
+
+    @Test
+    @DisplayName("Test remove and clear")
+    void testRemoveAndClear() {
+        IntObjectTreeMap<String> map = new IntObjectTreeMap<>();
+        assertNull(map.remove(1), "Remove from empty map should return null");
+        map.put(1, "one");
+        map.put(2, "two");
+        map.put(3, "three");
+        assertEquals("one", map.remove(1), "Remove should return the removed value");
+        assertFalse(map.containsKey(1), "Removed key should be absent");
+        map.clear();
+        assertTrue(map.isEmpty(), "Map should be empty after clear");
+        assertEquals("{}", map.toString(), "Empty map string should match");
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Test suite for the long-valued LongBinarySearchTree
+ */
+public class LongBinarySearchTreeTest {
+
+    @Test
+    @DisplayName("Test values beyond the int range")
+    void testLongValues() {
+        LongBinarySearchTree tree = new LongBinarySearchTree();
+        long[] values = {5_000_000_000L, -5_000_000_000L, 0L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            assertTrue(tree.insert(value), "First insert of " + value + " should succeed");
+        }
+        assertFalse(tree.insert(5_000_000_000L), "Duplicate insert should be rejected");
+
+        assertEquals(5, tree.size(), "Size should count distinct values");
+        assertArrayEquals(new long[]{Long.MIN_VALUE, -5_000_000_000L, 0L, 5_000_000_000L, Long.MAX_VALUE},
+                          tree.inorderArray(), "Inorder should be sorted");
+        assertTrue(tree.search(-5_000_000_000L), "Should find a large negative value");
+        assertFalse(tree.search(5_000_000_001L), "Should not find an absent value");
+        assertFalse(tree.search(705_032_704L), "Should not confuse a value with its low 32 bits");
+        assertEquals(Long.MIN_VALUE, tree.min().getAsLong(), "Min should match");
+        assertEquals(Long.MAX_VALUE, tree.max().getAsLong(), "Max should match");
+    }
+
+    @Test
+    @DisplayName("Test random operations match a reference set")
+    void testRandomOperationsMatchReference() {
+        LongBinarySearchTree tree = new LongBinarySearchTree();
+        TreeSet<Long> reference = new TreeSet<>();
+        Random random = new Random(3);
+
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(10_000) * 1_000_000_007L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(value), tree.delete(value), "Delete result for " + value);
+            } else {
+                assertEquals(reference.add(value), tree.insert(value), "Insert result for " + value);
+            }
+        }
+
+        assertEquals(reference.size(), tree.size(), "Size should match reference set");
+        List<Long> iterated = new ArrayList<>();
+        tree.iterator().forEachRemaining((long value) -> iterated.add(value));
+        assertEquals(new ArrayList<>(reference), iterated, "Iteration should match reference set");
+
+        for (int i = 0; i < 1_000; i++) {
+            long probe = random.nextLong() % (10_000 * 1_000_000_007L);
+            assertEquals(reference.floor(probe), boxed(tree.floor(probe)), "Floor " + probe);
+            assertEquals(reference.ceiling(probe), boxed(tree.ceiling(probe)), "Ceiling " + probe);
+        }
+    }
+
+    @Test
+    @DisplayName("Test monotonic IDs keep the tree balanced")
+    void testMonotonicIdsStayBalanced() {
+        LongBinarySearchTree tree = new LongBinarySearchTree();
+        long first = 1L << 40;
+        for (long id = first; id < first + 100_000; id++) {
+            tree.insert(id);
+        }
+        // An AVL tree of n nodes is at most 1.44 log2(n + 2) high
+        assertTrue(tree.height() <= 23, "Ascending IDs should not form a chain, height " + tree.height());
+        for (long id = first; id < first + 90_000; id++) {
+            tree.delete(id);
+        }
+        assertEquals(10_000, tree.size(), "Deletes should remove every ID");
+        assertTrue(tree.height() <= 19, "Deleting a prefix should rebalance, height " + tree.height());
+        assertEquals(first + 90_000, tree.floorOrDefault(first + 90_000, -1L), "Floor of a present ID");
+        assertEquals(-1L, tree.floorOrDefault(first, -1L), "Floor below every ID should be the default");
+        assertEquals(first + 90_000, tree.ceilingOrDefault(first, -1L), "Ceiling below every ID");
+        assertEquals(-1L, tree.ceilingOrDefault(Long.MAX_VALUE, -1L), "Ceiling above every ID should be the default");
+    }
+
+    @Test
+    @DisplayName("Test empty tree and clear")
+    void testEmptyAndClear() {
+        LongBinarySearchTree tree = new LongBinarySearchTree();
+        assertTrue(tree.isEmpty(), "New tree should be empty");
+        assertEquals(-1, tree.height(), "Empty tree height should be -1");
+        assertEquals("Empty BST", tree.toString(), "Empty tree string should match");
+        assertFalse(tree.min().isPresent(), "Min of empty tree should be empty");
+        assertFalse(tree.delete(1L), "Delete from empty tree should fail");
+
+        tree.insert(2L);
+        tree.insert(1L);
+        tree.insert(3L);
+        assertEquals("2\n  1\n  3\n", tree.toString(), "String layout should match BinarySearchTree");
+        tree.clear();
+        assertTrue(tree.isEmpty(), "Tree should be empty after clear");
+        assertEquals(0, tree.size(), "Size should be zero after clear");
+    }
+
+    private static Long boxed(OptionalLong value) {
+        return value.isPresent() ? value.getAsLong() : null;
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+/**
+ * Test suite for the primitive-keyed LongObjectTreeMap
+ */
+public class LongObjectTreeMapTest {
+
+    @Test
+    @DisplayName("Test keys beyond the int range")
+    void testLongKeys() {
+        LongObjectTreeMap<String> map = new LongObjectTreeMap<>();
+        map.put(4_294_967_296L, "2^32");
+        map.put(0L, "zero");
+        map.put(Long.MIN_VALUE, "min");
+
+        assertEquals("2^32", map.get(4_294_967_296L), "Key above the int range should be found");
+        assertNull(map.get(0L + Integer.MAX_VALUE), "Absent key should map to null");
+        assertArrayEquals(new long[]{Long.MIN_VALUE, 0L, 4_294_967_296L}, map.keys(), "Keys should be sorted");
+        assertEquals(0L, map.floorKey(4_294_967_295L).getAsLong(), "Floor key should match");
+        assertEquals(4_294_967_296L, map.ceilingKey(1L).getAsLong(), "Ceiling key should match");
+        assertEquals(0L, map.floorKeyOrDefault(4_294_967_295L, -1L), "Floor key without Optional should match");
+        assertEquals(-1L, map.ceilingKeyOrDefault(4_294_967_297L, -1L), "Missing ceiling key should be the default");
+    }
+
+    @Test
+    @DisplayName("Test monotonic IDs keep the map balanced")
+    void testMonotonicIdsStayBalanced() {
+        LongObjectTreeMap<String> map = new LongObjectTreeMap<>();
+        long first = 1L << 40;
+        for (long id = first; id < first + 100_000; id++) {
+            map.put(id, "v");
+        }
+        // An AVL tree of n nodes is at most 1.44 log2(n + 2) high
+        assertTrue(map.height() <= 23, "Ascending IDs should not form a chain, height " + map.height());
+        for (long id = first + 99_999; id >= first + 10_000; id--) {
+            assertEquals("v", map.remove(id), "Remove " + id);
+        }
+        assertEquals(10_000, map.size(), "Removes should drop every ID");
+        assertTrue(map.height() <= 19, "Removing a suffix should rebalance, height " + map.height());
+    }
+
+    @Test
+    @DisplayName("Test random operations match a reference map")
+    void testRandomOperationsMatchReference() {
+        LongObjectTreeMap<Long> map = new LongObjectTreeMap<>();
+        TreeMap<Long, Long> reference = new TreeMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = (random.nextInt(2_000) - 1_000) * 10_000_000_019L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key), "Remove result for " + key);
+            } else {
+                assertEquals(reference.put(key, (long) i), map.put(key, (long) i), "Put result for " + key);
+            }
+        }
+
+        assertEquals(reference.size(), map.size(), "Size should match reference map");
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>();
+        map.forEach((key, value) -> entries.add(Map.entry(key, value)));
+        assertEquals(new ArrayList<>(reference.entrySet()), entries, "Entries should match in key order");
+        for (Map.Entry<Long, Long> entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), "Get " + entry.getKey());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Test suite for snapshot files and the memory-mapped MappedBinarySearchTree
+ */
+public class MappedBinarySearchTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BinarySearchTree randomTree(int count, long seed) {
+        BinarySearchTree tree = new BinarySearchTree();
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            tree.insert(random.nextInt(1_000_000) - 500_000);
+        }
+        return tree;
+    }
+
+    @Test
+    @DisplayName("Test snapshot round trip")
+    void testRoundTrip() throws IOException {
+        BinarySearchTree tree = randomTree(50_000, 1);
+        Path file = tempDir.resolve("tree.snapshot");
+        tree.writeSnapshot(file);
+
+        assertEquals(16 + 4L * tree.size(), Files.size(file), "File should be a header plus 4 bytes per value");
+
+        BinarySearchTree reloaded = BinarySearchTree.readSnapshot(file);
+        assertArrayEquals(tree.inorderArray(), reloaded.inorderArray(), "Reloaded values should match");
+        assertTrue(reloaded.isBalanced(), "Reloaded tree should be balanced");
+    }
+
+    @Test
+    @DisplayName("Test queries on the mapped tree")
+    void testMappedQueries() throws IOException {
+        BinarySearchTree tree = randomTree(20_000, 2);
+        Path file = tempDir.resolve("tree.snapshot");
+        tree.writeSnapshot(file);
+
+        try (MappedBinarySearchTree mapped = MappedBinarySearchTree.open(file)) {
+            assertEquals(tree.size(), mapped.size(), "Size should match");
+            Random random = new Random(3);
+            for (int i = 0; i < 5_000; i++) {
+                int value = random.nextInt(1_100_000) - 550_000;
+                assertEquals(tree.search(value), mapped.search(value), "Search mismatch for " + value);
+                assertEquals(tree.floor(value), mapped.floor(value), "Floor mismatch for " + value);
+                assertEquals(tree.ceiling(value), mapped.ceiling(value), "Ceiling mismatch for " + value);
+                assertEquals(tree.rank(value), mapped.rank(value), "Rank mismatch for " + value);
+            }
+            assertEquals(tree.select(1_234), mapped.select(1_234), "Select should match");
+
+            List<Integer> expected = new ArrayList<>();
+            tree.range(-1_000, 1_000, expected::add);
+            List<Integer> actual = new ArrayList<>();
+            mapped.range(-1_000, 1_000, actual::add);
+            assertEquals(expected, actual, "Range scan should match");
+        }
+    }
+
+    @Test
+    @DisplayName("Test empty snapshot and closed tree")
+    void testEmptyAndClosed() throws IOException {
+        Path file = tempDir.resolve("empty.snapshot");
+        new BinarySearchTree().writeSnapshot(file);
+
+        MappedBinarySearchTree mapped = MappedBinarySearchTree.open(file);
+        assertTrue(mapped.isEmpty(), "Empty snapshot should map to an empty tree");
+        assertFalse(mapped.search(0), "Empty tree contains nothing");
+        assertFalse(mapped.floor(0).isPresent(), "Empty tree has no floor");
+        mapped.close();
+
+        BinarySearchTree one = new BinarySearchTree();
+        one.insert(1);
+        one.writeSnapshot(file);
+        MappedBinarySearchTree closed = MappedBinarySearchTree.open(file);
+        closed.close();
+        assertThrows(IllegalStateException.class, () -> closed.search(1), "Queries after close should fail");
+    }
+
+    @Test
+    @DisplayName("Test invalid files are rejected")
+    void testInvalidFilesRejected() throws IOException {
+        Path garbage = tempDir.resolve("garbage.snapshot");
+        Files.write(garbage, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> MappedBinarySearchTree.open(garbage), "Bad magic should be rejected");
+
+        Path truncated = tempDir.resolve("truncated.snapshot");
+        ByteBuffer header = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x42535453).putInt(1).putLong(5).putInt(42);
+        Files.write(truncated, header.array());
+        assertThrows(IOException.class, () -> MappedBinarySearchTree.open(truncated), "Count/size mismatch should be rejected");
+
+        Path unordered = tempDir.resolve("unordered.snapshot");
+        ByteBuffer body = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(0x42535453).putInt(1).putLong(3).putInt(1).putInt(3).putInt(2);
+        Files.write(unordered, body.array());
+        assertThrows(IOException.class, () -> BinarySearchTree.readSnapshot(unordered), "Unordered values should be rejected");
+        Files.write(unordered, body.putInt(24, 1).array());
+        assertThrows(IOException.class, () -> BinarySearchTree.readSnapshot(unordered), "Repeated values should be rejected");
+    }
+
+    @Test
+    @DisplayName("Test a failed write leaves no temporary file")
+    void testFailedWriteCleansUp() throws IOException {
+        // A non-empty directory in the way makes the final rename fail
+        Path file = tempDir.resolve("tree.snapshot");
+        Files.createDirectories(file.resolve("occupied"));
+        assertThrows(IOException.class, () -> randomTree(1_000, 3).writeSnapshot(file), "Rename should fail");
+        assertFalse(Files.exists(tempDir.resolve("tree.snapshot.tmp")), "Temporary file should be deleted");
+    }
+}
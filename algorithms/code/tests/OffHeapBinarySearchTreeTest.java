@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Test suite for the native-memory OffHeapBinarySearchTree
+ */
+public class OffHeapBinarySearchTreeTest {
+
+    private OffHeapBinarySearchTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new OffHeapBinarySearchTree();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tree.close();
+    }
+
+    /** Nodes per native chunk and bytes per node, mirroring OffHeapBinarySearchTree */
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final long CHUNK_BYTES = CHUNK_SIZE * 12L;
+
+    @Test
+    @DisplayName("Test native memory grows one chunk at a time")
+    void testChunkGrowth() {
+        assertEquals(0, tree.offHeapBytes(), "New tree should reserve no native memory");
+        List<Integer> values = new ArrayList<>();
+        for (int value = 0; value <= CHUNK_SIZE; value++) {
+            values.add(value);
+        }
+        Collections.shuffle(values, new Random(7));
+
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            tree.insert(values.get(i));
+        }
+        assertEquals(CHUNK_BYTES, tree.offHeapBytes(), "A full chunk should not trigger growth");
+
+        // A freed slot is reused instead of reserving another chunk
+        tree.delete(values.get(0));
+        tree.insert(values.get(CHUNK_SIZE));
+        assertEquals(CHUNK_BYTES, tree.offHeapBytes(), "Freed slots should be reused before growing");
+
+        tree.insert(values.get(0));
+        assertEquals(2 * CHUNK_BYTES, tree.offHeapBytes(), "One more node should add exactly one chunk");
+        assertEquals(CHUNK_SIZE + 1, tree.size(), "Size should count every value");
+        assertTrue(tree.search(values.get(0)) && tree.search(values.get(CHUNK_SIZE)), "Values in both chunks should be found");
+    }
+
+    @Test
+    @DisplayName("Test close releases the tree")
+    void testClose() {
+        tree.insert(1);
+        tree.close();
+
+        assertThrows(IllegalStateException.class, () -> tree.search(1), "Search after close should fail");
+        assertThrows(IllegalStateException.class, () -> tree.insert(2), "Insert after close should fail");
+        assertThrows(IllegalStateException.class, () -> tree.size(), "Size after close should fail");
+        assertThrows(IllegalStateException.class, () -> tree.isEmpty(), "isEmpty after close should fail");
+        assertThrows(IllegalStateException.class, () -> tree.offHeapBytes(), "offHeapBytes after close should fail");
+        assertDoesNotThrow(() -> tree.close(), "Closing twice should be harmless");
+    }
+
+    @Test
+    @DisplayName("Test close frees native memory without a GC")
+    void testCloseFreesNativeMemory() {
+        BufferPoolMXBean direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .findFirst()
+            .orElseThrow();
+        long before = direct.getMemoryUsed();
+        OffHeapBinarySearchTree other = new OffHeapBinarySearchTree();
+        other.insert(1);
+        assertEquals(before + CHUNK_BYTES, direct.getMemoryUsed(), "The first insert should reserve one chunk");
+        other.close();
+        assertEquals(before, direct.getMemoryUsed(), "Close should free the chunk at once");
+    }
+
+    @Test
+    @DisplayName("Test clear keeps the tree usable")
+    void testClear() {
+        for (int i = 0; i < 100; i++) {
+            tree.insert(i);
+        }
+        long reserved = tree.offHeapBytes();
+        tree.clear();
+        assertTrue(tree.isEmpty(), "Tree should be empty after clear");
+        assertEquals(reserved, tree.offHeapBytes(), "Clear should keep the chunks for reuse");
+        tree.insert(5);
+        assertEquals(Arrays.asList(5), tree.inorderTraversal(), "Tree should be usable after clear");
+    }
+}